@@ -0,0 +1,140 @@
+-- Actualización de una base de datos creada por Hibernate (ddl-auto: update) antes de las migraciones de Flyway. Se ejecuta una sola
+-- vez, con la aplicación detenida, y deja el esquema igual al de src/main/resources/db/migration/V1__esquema_inicial.sql. Al iniciar,
+-- Flyway encuentra las tablas sin historial de migraciones, registra la base en la versión 1 (spring.flyway.baseline-on-migrate) y
+-- solo aplica las migraciones posteriores. Las bases nuevas no necesitan este script: Flyway crea todo desde V1.
+--
+-- 1) Las claves primarias y foráneas pasan de VARCHAR(255) utf8mb4 con el UUID en texto a BINARY(16) con sus 16 bytes (ver
+--    TipoIdBinario): como InnoDB repite la clave primaria en cada índice secundario, todos los índices se achican. Primero las
+--    columnas pasan a VARBINARY(36), que conserva el texto tal cual, después se reemplaza cada UUID por sus bytes y por último se
+--    fija el tipo BINARY(16).
+-- 2) Los ids de los préstamos existentes se reescriben como UUID versión 7 según su fecha de préstamo, para que las filas viejas
+--    también queden ordenadas en el índice clúster (ninguna otra tabla guarda ids de préstamos). Los ids de Libros, Clientes,
+--    Autores y Editoriales existentes se conservan porque pueden estar en enlaces o marcadores; sus filas nuevas ya nacen ordenadas.
+-- 3) Se crean los índices únicos y secundarios de V1. Los índices únicos fallan si hay valores repetidos; para encontrarlos antes:
+--      SELECT isbn, COUNT(*) FROM libro GROUP BY isbn HAVING COUNT(*) > 1;
+--    (y lo mismo con libro.titulo, cliente.dni, autor.nombre y editorial.nombre)
+--    Los índices idx_cliente_dni e idx_libro_isbn solo existen si Hibernate actualizó el esquema después de agregarlos a las
+--    entidades, así que se borran únicamente si están.
+-- 4) Se borra la clave única que la antigua relación @OneToOne generaba sobre prestamo.libro_id (Hibernate le pone un nombre al
+--    azar, por eso se busca en information_schema). Mientras exista, un mismo Libro no puede prestarse dos veces.
+-- 5) Se reconstruyen las tablas para eliminar la fragmentación acumulada.
+--
+-- Para comparar el espacio ocupado, ejecutar antes y después:
+--   SELECT table_name, data_length, index_length FROM information_schema.tables WHERE table_schema = 'libreriaspring2';
+
+USE libreriaspring2;
+
+-- Procedimientos auxiliares para borrar índices que pueden no existir; se eliminan al final del script
+DELIMITER //
+CREATE PROCEDURE quitar_indice(IN tabla VARCHAR(64), IN indice VARCHAR(64))
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = tabla AND index_name = indice) THEN
+        SET @sentencia = CONCAT('ALTER TABLE `', tabla, '` DROP INDEX `', indice, '`');
+        PREPARE sentencia FROM @sentencia;
+        EXECUTE sentencia;
+        DEALLOCATE PREPARE sentencia;
+    END IF;
+END //
+CREATE PROCEDURE quitar_unicos_de_columna(IN tabla VARCHAR(64), IN columna VARCHAR(64))
+BEGIN
+    -- Índices únicos (sin contar la clave primaria) formados solo por esa columna
+    SET @sentencia = NULL;
+    SELECT GROUP_CONCAT(CONCAT('DROP INDEX `', s.index_name, '`')) INTO @sentencia
+    FROM information_schema.statistics s
+    WHERE s.table_schema = DATABASE() AND s.table_name = tabla AND s.column_name = columna
+      AND s.non_unique = 0 AND s.index_name <> 'PRIMARY'
+      AND NOT EXISTS (SELECT 1 FROM information_schema.statistics o
+                      WHERE o.table_schema = s.table_schema AND o.table_name = s.table_name
+                        AND o.index_name = s.index_name AND o.seq_in_index > 1);
+    IF @sentencia IS NOT NULL THEN
+        SET @sentencia = CONCAT('ALTER TABLE `', tabla, '` ', @sentencia);
+        PREPARE sentencia FROM @sentencia;
+        EXECUTE sentencia;
+        DEALLOCATE PREPARE sentencia;
+    END IF;
+END //
+DELIMITER ;
+
+SET FOREIGN_KEY_CHECKS = 0;
+
+ALTER TABLE autor MODIFY id VARBINARY(36) NOT NULL;
+ALTER TABLE editorial MODIFY id VARBINARY(36) NOT NULL;
+ALTER TABLE cliente MODIFY id VARBINARY(36) NOT NULL;
+ALTER TABLE libro
+    MODIFY id VARBINARY(36) NOT NULL,
+    MODIFY autor_id VARBINARY(36),
+    MODIFY editorial_id VARBINARY(36);
+ALTER TABLE prestamo
+    MODIFY id VARBINARY(36) NOT NULL,
+    MODIFY libro_id VARBINARY(36),
+    MODIFY cliente_id VARBINARY(36);
+
+UPDATE autor SET id = UNHEX(REPLACE(id, '-', ''));
+UPDATE editorial SET id = UNHEX(REPLACE(id, '-', ''));
+UPDATE cliente SET id = UNHEX(REPLACE(id, '-', ''));
+UPDATE libro
+SET id = UNHEX(REPLACE(id, '-', '')),
+    autor_id = UNHEX(REPLACE(autor_id, '-', '')),
+    editorial_id = UNHEX(REPLACE(editorial_id, '-', ''));
+UPDATE prestamo
+SET libro_id = UNHEX(REPLACE(libro_id, '-', '')),
+    cliente_id = UNHEX(REPLACE(cliente_id, '-', ''));
+
+-- UUID versión 7 a partir de la fecha de préstamo: 48 bits de milisegundos, versión 7, 12 bits de contador dentro del mismo día
+-- (cada 4096 préstamos se avanza un milisegundo), variante 10 y 62 bits aleatorios
+CREATE TEMPORARY TABLE prestamo_ids AS
+SELECT id AS viejo,
+       LOWER(CONCAT(
+           LPAD(HEX(UNIX_TIMESTAMP(fecha_prestamo) * 1000 + (n DIV 4096)), 12, '0'),
+           '7', LPAD(HEX(n MOD 4096), 3, '0'),
+           HEX(8 + FLOOR(RAND() * 4)), SUBSTRING(MD5(RAND()), 1, 3),
+           SUBSTRING(MD5(RAND()), 1, 12))) AS nuevo
+FROM (SELECT id, fecha_prestamo, ROW_NUMBER() OVER (PARTITION BY fecha_prestamo ORDER BY id) - 1 AS n FROM prestamo) p;
+
+UPDATE prestamo p
+    JOIN prestamo_ids i ON i.viejo = p.id
+SET p.id = UNHEX(i.nuevo);
+
+DROP TEMPORARY TABLE prestamo_ids;
+
+ALTER TABLE autor MODIFY id BINARY(16) NOT NULL;
+ALTER TABLE editorial MODIFY id BINARY(16) NOT NULL;
+ALTER TABLE cliente MODIFY id BINARY(16) NOT NULL;
+ALTER TABLE libro
+    MODIFY id BINARY(16) NOT NULL,
+    MODIFY autor_id BINARY(16),
+    MODIFY editorial_id BINARY(16);
+ALTER TABLE prestamo
+    MODIFY id BINARY(16) NOT NULL,
+    MODIFY libro_id BINARY(16),
+    MODIFY cliente_id BINARY(16);
+
+SET FOREIGN_KEY_CHECKS = 1;
+
+-- Índices de V1. Al crear idx_libro_autor, idx_libro_editorial, idx_prestamo_libro e idx_prestamo_cliente, MySQL descarta los
+-- índices que había generado para las claves foráneas de Hibernate, porque los nuevos ya sirven para verificarlas
+ALTER TABLE autor
+    ADD UNIQUE INDEX uk_autor_nombre (nombre);
+ALTER TABLE editorial
+    ADD UNIQUE INDEX uk_editorial_nombre (nombre);
+CALL quitar_indice('cliente', 'idx_cliente_dni');
+ALTER TABLE cliente
+    ADD UNIQUE INDEX uk_cliente_dni (dni);
+CALL quitar_indice('libro', 'idx_libro_isbn');
+ALTER TABLE libro
+    ADD UNIQUE INDEX uk_libro_isbn (isbn),
+    ADD UNIQUE INDEX uk_libro_titulo (titulo),
+    ADD INDEX idx_libro_autor (autor_id),
+    ADD INDEX idx_libro_editorial (editorial_id);
+ALTER TABLE prestamo
+    ADD INDEX idx_prestamo_cliente (cliente_id, alta),
+    ADD INDEX idx_prestamo_libro (libro_id, alta);
+
+-- Recién ahora, con idx_prestamo_libro disponible para la clave foránea, se puede borrar la clave única de la relación @OneToOne
+CALL quitar_unicos_de_columna('prestamo', 'libro_id');
+
+DROP PROCEDURE quitar_indice;
+DROP PROCEDURE quitar_unicos_de_columna;
+
+OPTIMIZE TABLE autor, editorial, cliente, libro, prestamo;
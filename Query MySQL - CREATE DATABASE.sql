@@ -1,2 +0,0 @@
-DROP DATABASE IF EXISTS libreriaspring2;
-CREATE DATABASE libreriaspring2
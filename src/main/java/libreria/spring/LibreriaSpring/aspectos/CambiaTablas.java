@@ -0,0 +1,25 @@
+package libreria.spring.LibreriaSpring.aspectos;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
+
+/**
+ * Marca un método de Service que escribe en las tablas indicadas, para que sus versiones se incrementen al confirmarse la
+ * transacción. Ver {@link CambiaTablasAspecto}.
+ *
+ * @author Matias Luca Soto
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CambiaTablas {
+
+    /**
+     * @return Tablas que el método puede modificar
+     */
+    Tabla[] value();
+}
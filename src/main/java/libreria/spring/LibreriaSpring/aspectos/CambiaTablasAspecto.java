@@ -0,0 +1,46 @@
+package libreria.spring.LibreriaSpring.aspectos;
+
+import libreria.spring.LibreriaSpring.versiones.VersionesTablas;
+import org.aspectj.lang.annotation.After;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Aspecto que incrementa las versiones de las tablas declaradas en {@link CambiaTablas} cuando termina el método anotado. Se ejecuta
+ * por fuera del interceptor de @Transactional (pero por dentro de los reintentos), así que el incremento ocurre con la transacción ya
+ * confirmada; si el método se llamó desde otra transacción, se posterga hasta que esa se confirme. También incrementa cuando el
+ * método termina con una excepción, porque puede haber confirmado una parte de los cambios (por ejemplo, una importación por lotes):
+ * un incremento de más solo cuesta una recarga completa del listado.
+ *
+ * @author Matias Luca Soto
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class CambiaTablasAspecto {
+
+    @Autowired
+    private VersionesTablas versionesTablas;
+
+    /**
+     * @param cambiaTablas Anotación del método interceptado, con las tablas que modifica
+     */
+    @After(value = "@annotation(cambiaTablas)", argNames = "cambiaTablas")
+    public void incrementarVersiones(CambiaTablas cambiaTablas) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versionesTablas.incrementar(cambiaTablas.value());
+                }
+            });
+        } else {
+            versionesTablas.incrementar(cambiaTablas.value());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package libreria.spring.LibreriaSpring.aspectos;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Aspecto que mide la duración de cada método público de los Services y la publica como el timer 'libreria.servicios', con las
+ * etiquetas clase, metodo, resultado (exito o error) y excepcion (el tipo de la excepción, o 'ninguna'). Así cada operación tiene
+ * su cantidad de llamadas exitosas, sus fallas por tipo de excepción y su distribución de tiempos; el histograma y los percentiles
+ * se configuran con 'management.metrics.distribution.*' en application.properties, y Prometheus los lee de /actuator/prometheus.
+ *
+ * Se ejecuta por fuera de los reintentos y de las transacciones, así que mide lo que espera quien llama al Service. Para que el
+ * costo por llamada sea solo leer el reloj dos veces y sumar en el timer, los timers de cada método se registran una única vez y
+ * quedan guardados.
+ *
+ * @author Matias Luca Soto
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MedicionServiciosAspecto {
+
+    //NOMBRE DE LA METRICA
+    public static final String METRICA = "libreria.servicios";
+
+    @Autowired
+    private MeterRegistry registro;
+
+    //TIMERS YA REGISTRADOS, POR METODO
+    private final Map<Method, Medidores> medidores = new ConcurrentHashMap<>();
+
+    /**
+     * Ejecuta el método interceptado y registra su duración según cómo haya terminado. El punto de corte pide la anotación @Service
+     * con within(@Service ...) y no con @within(Service): Spring AOP resuelve @within recién en cada llamada, evaluando la expresión
+     * de nuevo, mientras que within se resuelve una sola vez por método al armar el proxy
+     *
+     * @param punto Invocación interceptada
+     * @return El resultado del método
+     * @throws Throwable La excepción original del método
+     */
+    @Around("within(@org.springframework.stereotype.Service libreria.spring.LibreriaSpring.servicios..*) "
+            + "&& execution(public * *(..))")
+    public Object medir(ProceedingJoinPoint punto) throws Throwable {
+        Medidores medidoresMetodo = medidores.computeIfAbsent(((MethodSignature) punto.getSignature()).getMethod(), Medidores::new);
+        long inicio = System.nanoTime();
+        try {
+            Object resultado = punto.proceed();
+            medidoresMetodo.exito.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            return resultado;
+        } catch (Throwable e) {
+            medidoresMetodo.error(e.getClass()).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    /**
+     * Los timers de un método: uno para las llamadas exitosas y uno por cada tipo de excepción con que haya fallado
+     */
+    private class Medidores {
+
+        private final String clase;
+        private final String metodo;
+        private final Timer exito;
+        private final Map<Class<?>, Timer> errores = new ConcurrentHashMap<>();
+
+        private Medidores(Method metodo) {
+            this.clase = metodo.getDeclaringClass().getSimpleName();
+            this.metodo = metodo.getName();
+            this.exito = timer("exito", "ninguna");
+        }
+
+        private Timer error(Class<?> excepcion) {
+            return errores.computeIfAbsent(excepcion, tipo -> timer("error", tipo.getSimpleName()));
+        }
+
+        private Timer timer(String resultado, String excepcion) {
+            return Timer.builder(METRICA)
+                    .description("Duración de las operaciones de los Services")
+                    .tag("clase", clase)
+                    .tag("metodo", metodo)
+                    .tag("resultado", resultado)
+                    .tag("excepcion", excepcion)
+                    .register(registro);
+        }
+    }
+}
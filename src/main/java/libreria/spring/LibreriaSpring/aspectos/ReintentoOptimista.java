@@ -0,0 +1,20 @@
+package libreria.spring.LibreriaSpring.aspectos;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca un método de Service cuya transacción debe reintentarse si falla por un conflicto de bloqueo optimista (otra transacción
+ * modificó la misma entidad versionada antes de que esta confirmara sus cambios). Ver {@link ReintentoOptimistaAspecto}.
+ *
+ * @author Matias Luca Soto
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReintentoOptimista {
+
+}
@@ -0,0 +1,84 @@
+package libreria.spring.LibreriaSpring.aspectos;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ThreadLocalRandom;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Aspecto que reintenta los métodos anotados con {@link ReintentoOptimista} cuando su transacción falla por un conflicto de versión.
+ * Se ejecuta por fuera del interceptor de @Transactional, de modo que cada reintento abre una transacción nueva y vuelve a leer
+ * las entidades actualizadas. Entre intentos espera un tiempo que crece exponencialmente (con una parte aleatoria para que dos
+ * bibliotecarios en conflicto no vuelvan a chocar). Los reintentos y los conflictos no resueltos se publican como métricas.
+ *
+ * @author Matias Luca Soto
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ReintentoOptimistaAspecto {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReintentoOptimistaAspecto.class);
+
+    //ATRIBUTOS - CONFIGURACION
+    @Value("${libreria.reintentos.maximo:3}")
+    private int maximoReintentos;
+    @Value("${libreria.reintentos.espera-inicial-ms:25}")
+    private long esperaInicial;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    /**
+     * Ejecuta el método anotado y, si falla por bloqueo optimista, lo vuelve a ejecutar hasta agotar los reintentos configurados
+     *
+     * @param punto Invocación interceptada
+     * @return El resultado del método
+     * @throws Throwable La excepción original del método, o el último conflicto si se agotaron los reintentos
+     */
+    @Around("@annotation(libreria.spring.LibreriaSpring.aspectos.ReintentoOptimista)")
+    public Object reintentar(ProceedingJoinPoint punto) throws Throwable {
+
+        //Si ya estamos dentro de una transacción, reintentar no sirve: el conflicto debe resolverlo quien la abrió
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return punto.proceed();
+        }
+
+        String metodo = punto.getSignature().getDeclaringType().getSimpleName() + "." + punto.getSignature().getName();
+        int intento = 0;
+        while (true) {
+            try {
+                return punto.proceed();
+            } catch (OptimisticLockingFailureException e) {
+                if (intento >= maximoReintentos) {
+                    registro.counter("libreria.bloqueo.optimista.conflictos", "metodo", metodo).increment();
+                    LOG.warn("Conflicto de versión sin resolver en {} luego de {} reintentos", metodo, intento);
+                    throw e;
+                }
+                intento++;
+                registro.counter("libreria.bloqueo.optimista.reintentos", "metodo", metodo).increment();
+                esperar(intento);
+            }
+        }
+    }
+
+    /**
+     * Duerme el hilo con una espera exponencial más una fracción aleatoria
+     *
+     * @param intento Número de reintento (comienza en 1)
+     */
+    private void esperar(int intento) throws InterruptedException {
+        long base = esperaInicial << (intento - 1);
+        Thread.sleep(base + ThreadLocalRandom.current().nextLong(esperaInicial + 1));
+    }
+}
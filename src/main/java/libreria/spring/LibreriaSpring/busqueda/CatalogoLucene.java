@@ -0,0 +1,454 @@
+package libreria.spring.LibreriaSpring.busqueda;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import libreria.spring.LibreriaSpring.entidades.Libro;
+import libreria.spring.LibreriaSpring.repositorios.LibroRepositorio;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.es.SpanishLightStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Búsqueda de texto completo sobre el catálogo de Libros con un índice Lucene guardado en disco, dentro de la misma aplicación.
+ * Cada Libro activo es un documento con su título, Autor, Editorial, ISBN y año; los textos se separan en palabras, se pasan a
+ * minúsculas, se les quitan los acentos y se reducen a su raíz en castellano, así que "Cronica" encuentra "Crónicas". Los
+ * resultados se ordenan por relevancia, pesando más el título que el Autor y el Autor más que la Editorial.
+ *
+ * LibroService mantiene el índice al día. Los cambios de una transacción se juntan y se aplican todos al confirmarse, con una sola
+ * escritura a disco y una sola actualización de los buscadores, así que importar un lote de Libros cuesta lo mismo que cambiar
+ * uno. Cuando se renombra un Autor o una Editorial se vuelven a indexar sus Libros. El índice se puede reconstruir
+ * completo desde la base de datos iniciando la aplicación con libreria.busqueda.reconstruir=true, y se reconstruye solo si al
+ * iniciar está vacío.
+ *
+ * Con libreria.busqueda.directorio vacío el índice se guarda en memoria, uno por ApplicationContext (lo usa el perfil 'embebido',
+ * que de todos modos lo reconstruye al iniciar). Si el directorio en disco está bloqueado por otra instancia de la aplicación, esta
+ * arranca igual, con la búsqueda de texto completo deshabilitada.
+ *
+ * @author Matias Luca Soto
+ */
+@Component
+public class CatalogoLucene {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CatalogoLucene.class);
+
+    //CAMPOS DEL DOCUMENTO
+    private static final String ID = "id";
+    private static final String TITULO = "titulo";
+    private static final String AUTOR = "autor";
+    private static final String EDITORIAL = "editorial";
+    private static final String ISBN = "isbn";
+    private static final String ANIO = "anio";
+
+    //RELEVANCIA DE CADA CAMPO DE TEXTO
+    private static final Map<String, Float> PESOS = new HashMap<>();
+
+    static {
+        PESOS.put(TITULO, 3f);
+        PESOS.put(AUTOR, 2f);
+        PESOS.put(EDITORIAL, 1f);
+    }
+
+    //CANTIDAD DE LIBROS LEIDOS ENTRE CADA LIMPIEZA DEL CONTEXTO DE PERSISTENCIA AL RECONSTRUIR
+    private static final int LOTE_RECONSTRUCCION = 1000;
+
+    //ATRIBUTOS - CONFIGURACION
+    @Value("${libreria.busqueda.directorio:indice-catalogo}")
+    private String directorio;
+    @Value("${libreria.busqueda.reconstruir:false}")
+    private boolean reconstruirAlIniciar;
+
+    //ATRIBUTOS - PERSISTENCIA
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    //ATRIBUTOS - LUCENE
+    private final Analyzer analizador = new AnalizadorCastellano();
+    private volatile IndexWriter escritor;
+    private volatile SearcherManager buscadores;
+
+    //ATRIBUTOS - CAMBIOS CONFIRMADOS ANTES DE ABRIR EL INDICE (null una vez abierto, o si no se pudo abrir)
+    private List<CambioIndice> antesDeAbrir = new ArrayList<>();
+
+    /**
+     * Un Libro encontrado, con los datos guardados en el índice y su puntaje de relevancia
+     */
+    public static class LibroEncontrado {
+
+        private final String id;
+        private final String titulo;
+        private final String autor;
+        private final String editorial;
+        private final String isbn;
+        private final String anio;
+        private final float puntaje;
+
+        private LibroEncontrado(Document documento, float puntaje) {
+            this.id = documento.get(ID);
+            this.titulo = documento.get(TITULO);
+            this.autor = documento.get(AUTOR);
+            this.editorial = documento.get(EDITORIAL);
+            this.isbn = documento.get(ISBN);
+            this.anio = documento.get(ANIO);
+            this.puntaje = puntaje;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTitulo() {
+            return titulo;
+        }
+
+        public String getAutor() {
+            return autor;
+        }
+
+        public String getEditorial() {
+            return editorial;
+        }
+
+        public String getIsbn() {
+            return isbn;
+        }
+
+        public String getAnio() {
+            return anio;
+        }
+
+        public float getPuntaje() {
+            return puntaje;
+        }
+    }
+
+    /**
+     * Abre (o crea) el índice, aplica los cambios confirmados mientras la aplicación arrancaba y, si está vacío o se pidió
+     * explícitamente, lo reconstruye desde la base de datos
+     *
+     * @throws IOException Si no se puede abrir el directorio del índice por otro motivo que un bloqueo
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void abrir() throws IOException {
+        Directory almacenamiento = directorio.trim().isEmpty() ? new ByteBuffersDirectory() : FSDirectory.open(Paths.get(directorio));
+        IndexWriter nuevoEscritor;
+        try {
+            nuevoEscritor = new IndexWriter(almacenamiento, new IndexWriterConfig(analizador));
+        } catch (LockObtainFailedException e) {
+            LOG.error("El índice de texto completo en '{}' está en uso por otra instancia; la búsqueda queda deshabilitada", directorio, e);
+            almacenamiento.close();
+            synchronized (this) {
+                antesDeAbrir = null;
+            }
+            return;
+        }
+        buscadores = new SearcherManager(nuevoEscritor, null);
+
+        //A partir de acá los cambios se aplican directamente; los que llegaron antes se aplican ahora
+        List<CambioIndice> pendientes;
+        synchronized (this) {
+            escritor = nuevoEscritor;
+            pendientes = antesDeAbrir;
+            antesDeAbrir = null;
+        }
+        if (reconstruirAlIniciar || escritor.getDocStats().numDocs == 0) {
+            reconstruir();
+        } else if (!pendientes.isEmpty()) {
+            aplicar(pendientes);
+        }
+    }
+
+    /**
+     * Cierra el índice al detener la aplicación, confirmando los cambios pendientes
+     *
+     * @throws IOException Si falla la escritura final
+     */
+    @PreDestroy
+    public void cerrar() throws IOException {
+        if (escritor != null) {
+            buscadores.close();
+            escritor.close();
+        }
+    }
+
+    /**
+     * Vuelve a armar el índice completo recorriendo todos los Libros activos de la base de datos
+     *
+     * @throws IOException Si falla la escritura del índice
+     */
+    public void reconstruir() throws IOException {
+        long inicio = System.currentTimeMillis();
+        escritor.deleteAll();
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setReadOnly(true);
+        Integer cantidad = transaccion.execute(estado -> {
+            int leidos = 0;
+            try (Stream<Libro> libros = libroRepositorio.recorrerActivos()) {
+                Iterator<Libro> iterador = libros.iterator();
+                while (iterador.hasNext()) {
+                    escritor.addDocument(documento(iterador.next()));
+                    if (++leidos % LOTE_RECONSTRUCCION == 0) {
+                        entityManager.clear();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return leidos;
+        });
+        escritor.commit();
+        buscadores.maybeRefresh();
+        LOG.info("Índice de texto completo reconstruido en {} ms con {} libros", System.currentTimeMillis() - inicio, cantidad);
+    }
+
+    /**
+     * Agrega o actualiza un Libro en el índice al confirmarse la transacción actual. El documento se arma en el momento, mientras el
+     * Libro y sus relaciones siguen cargados
+     *
+     * @param libro Activo, con su Autor y Editorial
+     */
+    public void indexar(Libro libro) {
+        Document documento = documento(libro);
+        Term id = new Term(ID, libro.getId());
+        registrar(() -> escritor.updateDocument(id, documento));
+    }
+
+    /**
+     * Vuelve a indexar los Libros activos de un Autor al confirmarse la transacción actual, para que las búsquedas encuentren su
+     * nombre nuevo. Debe llamarse dentro de la transacción que lo renombró
+     *
+     * @param idAutor Del Autor renombrado
+     */
+    public void indexarLibrosDelAutor(String idAutor) {
+        libroRepositorio.listarActivosPorAutor(idAutor).forEach(this::indexar);
+    }
+
+    /**
+     * Vuelve a indexar los Libros activos de una Editorial al confirmarse la transacción actual, para que las búsquedas encuentren
+     * su nombre nuevo. Debe llamarse dentro de la transacción que la renombró
+     *
+     * @param idEditorial De la Editorial renombrada
+     */
+    public void indexarLibrosDeLaEditorial(String idEditorial) {
+        libroRepositorio.listarActivosPorEditorial(idEditorial).forEach(this::indexar);
+    }
+
+    /**
+     * Quita un Libro dado de baja del índice al confirmarse la transacción actual
+     *
+     * @param id Del Libro
+     */
+    public void quitar(String id) {
+        Term termino = new Term(ID, id);
+        registrar(() -> escritor.deleteDocuments(termino));
+    }
+
+    /**
+     * Busca Libros por palabras del título, Autor o Editorial, o por ISBN o año exactos si la consulta es un número
+     *
+     * @param consulta Texto libre ingresado por el usuario
+     * @param limite Cantidad máxima de resultados
+     * @return Los Libros encontrados, del más al menos relevante
+     * @throws IOException Si falla la lectura del índice
+     */
+    public List<LibroEncontrado> buscar(String consulta, int limite) throws IOException {
+        List<LibroEncontrado> resultado = new ArrayList<>();
+        if (buscadores == null || consulta == null || consulta.trim().isEmpty()) {
+            return resultado;
+        }
+
+        IndexSearcher buscador = buscadores.acquire();
+        try {
+            TopDocs encontrados = buscador.search(armarConsulta(consulta.trim()), limite);
+            for (ScoreDoc encontrado : encontrados.scoreDocs) {
+                resultado.add(new LibroEncontrado(buscador.doc(encontrado.doc), encontrado.score));
+            }
+        } finally {
+            buscadores.release(buscador);
+        }
+        return resultado;
+    }
+
+    /**
+     * Arma la consulta de Lucene: todas las palabras deben aparecer en alguno de los campos de texto (con sus pesos), y si el texto
+     * es un número también se busca como ISBN o año exactos
+     */
+    private Query armarConsulta(String texto) {
+        BooleanQuery.Builder consulta = new BooleanQuery.Builder();
+        MultiFieldQueryParser analizadorConsulta = new MultiFieldQueryParser(PESOS.keySet().toArray(new String[0]), analizador, PESOS);
+        analizadorConsulta.setDefaultOperator(QueryParser.Operator.AND);
+        try {
+            consulta.add(analizadorConsulta.parse(QueryParser.escape(texto)), BooleanClause.Occur.SHOULD);
+        } catch (ParseException e) {
+            //Con el texto escapado no debería pasar; en ese caso solo quedan las búsquedas numéricas
+            LOG.debug("Consulta de texto completo inválida: {}", texto, e);
+        }
+        if (texto.chars().allMatch(Character::isDigit)) {
+            consulta.add(new BoostQuery(new TermQuery(new Term(ISBN, texto)), 10f), BooleanClause.Occur.SHOULD);
+            if (texto.length() <= 4) {
+                consulta.add(IntPoint.newExactQuery(ANIO, Integer.parseInt(texto)), BooleanClause.Occur.SHOULD);
+            }
+        }
+        return consulta.build();
+    }
+
+    private Document documento(Libro libro) {
+        Document documento = new Document();
+        documento.add(new StringField(ID, libro.getId(), Field.Store.YES));
+        documento.add(new TextField(TITULO, libro.getTitulo(), Field.Store.YES));
+        if (libro.getAutor() != null) {
+            documento.add(new TextField(AUTOR, libro.getAutor().getNombre(), Field.Store.YES));
+        }
+        if (libro.getEditorial() != null) {
+            documento.add(new TextField(EDITORIAL, libro.getEditorial().getNombre(), Field.Store.YES));
+        }
+        if (libro.getIsbn() != null) {
+            documento.add(new StringField(ISBN, libro.getIsbn().toString(), Field.Store.YES));
+        }
+        if (libro.getAnio() != null) {
+            documento.add(new IntPoint(ANIO, libro.getAnio()));
+            documento.add(new StoredField(ANIO, libro.getAnio()));
+        }
+        return documento;
+    }
+
+    /**
+     * Agrega el cambio a los pendientes de la transacción actual, que se aplican juntos cuando se confirme. Sin una transacción
+     * activa se aplica en el momento
+     */
+    private void registrar(CambioIndice cambio) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            aplicar(Collections.singletonList(cambio));
+            return;
+        }
+
+        //Las sincronizaciones visibles son solo las de la transacción actual (las de una transacción suspendida no aparecen)
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sincronizacion instanceof CambiosPendientes && ((CambiosPendientes) sincronizacion).catalogo() == this) {
+                ((CambiosPendientes) sincronizacion).cambios.add(cambio);
+                return;
+            }
+        }
+        CambiosPendientes pendientes = new CambiosPendientes();
+        pendientes.cambios.add(cambio);
+        TransactionSynchronizationManager.registerSynchronization(pendientes);
+    }
+
+    /**
+     * Aplica los cambios al índice, los confirma en disco y los deja visibles para las próximas búsquedas. Un error acá no deshace
+     * la transacción (que ya se confirmó): se registra y el índice se corrige en la próxima reconstrucción
+     */
+    private void aplicar(List<CambioIndice> cambios) {
+        //Si el índice todavía no se abrió, los cambios se guardan para aplicarlos al abrirlo (si no se pudo abrir, se descartan)
+        if (escritor == null) {
+            synchronized (this) {
+                if (escritor == null) {
+                    if (antesDeAbrir != null) {
+                        antesDeAbrir.addAll(cambios);
+                    }
+                    return;
+                }
+            }
+        }
+        try {
+            for (CambioIndice cambio : cambios) {
+                cambio.aplicar();
+            }
+            escritor.commit();
+            buscadores.maybeRefresh();
+        } catch (IOException e) {
+            LOG.error("No se pudo actualizar el índice de texto completo", e);
+        }
+    }
+
+    private interface CambioIndice {
+
+        void aplicar() throws IOException;
+    }
+
+    /**
+     * Los cambios al índice de una transacción, que se aplican todos juntos al confirmarse y se descartan si se deshace
+     */
+    private class CambiosPendientes implements TransactionSynchronization {
+
+        private final List<CambioIndice> cambios = new ArrayList<>();
+
+        private CatalogoLucene catalogo() {
+            return CatalogoLucene.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            aplicar(cambios);
+        }
+    }
+
+    /**
+     * Separa el texto en palabras, lo pasa a minúsculas, le quita los acentos y reduce cada palabra a su raíz en castellano
+     */
+    private static class AnalizadorCastellano extends Analyzer {
+
+        @Override
+        protected TokenStreamComponents createComponents(String campo) {
+            Tokenizer tokenizador = new StandardTokenizer();
+            TokenStream filtros = new LowerCaseFilter(tokenizador);
+            filtros = new ASCIIFoldingFilter(filtros);
+            filtros = new SpanishLightStemFilter(filtros);
+            return new TokenStreamComponents(tokenizador, filtros);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package libreria.spring.LibreriaSpring.busqueda;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
+import libreria.spring.LibreriaSpring.repositorios.AutorRepositorio;
+import libreria.spring.LibreriaSpring.repositorios.EditorialRepositorio;
+import libreria.spring.LibreriaSpring.repositorios.LibroRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Índices en memoria de los títulos de Libros y los nombres de Autores y Editoriales activos. Se arman al iniciar la aplicación y
+ * los Services los mantienen al día con cada alta, modificación o baja. Los cambios hechos dentro de una transacción se aplican
+ * recién cuando esta se confirma, para que el índice nunca muestre algo que terminó deshaciéndose.
+ *
+ * @author Matias Luca Soto
+ */
+@Component
+public class IndiceCatalogo {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndiceCatalogo.class);
+
+    //ATRIBUTOS - INDICES
+    private final IndiceNgramas libros = new IndiceNgramas();
+    private final IndiceNgramas autores = new IndiceNgramas();
+    private final IndiceNgramas editoriales = new IndiceNgramas();
+
+    //ATRIBUTOS - REPOSITORIOS
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+    @Autowired
+    private AutorRepositorio autorRepositorio;
+    @Autowired
+    private EditorialRepositorio editorialRepositorio;
+
+    /**
+     * Arma los tres índices con los Libros, Autores y Editoriales activos de la base de datos
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        long inicio = System.currentTimeMillis();
+        libros.reconstruir(porId(libroRepositorio.listarOpcionesActivas()));
+        autores.reconstruir(porId(autorRepositorio.listarOpcionesActivas()));
+        editoriales.reconstruir(porId(editorialRepositorio.listarOpcionesActivas()));
+        LOG.info("Índices de búsqueda construidos en {} ms: {} libros, {} autores, {} editoriales",
+                System.currentTimeMillis() - inicio, libros.tamanio(), autores.tamanio(), editoriales.tamanio());
+    }
+
+    /**
+     * @param consulta Parte del título a buscar, sin importar mayúsculas ni acentos
+     * @param limite Cantidad máxima de resultados
+     * @return Libros activos que contienen la consulta, primero los que empiezan con ella
+     */
+    public List<IndiceNgramas.Resultado> buscarLibros(String consulta, int limite) {
+        return libros.buscar(consulta, limite);
+    }
+
+    /**
+     * @param consulta Parte del nombre a buscar, sin importar mayúsculas ni acentos
+     * @param limite Cantidad máxima de resultados
+     * @return Autores activos que contienen la consulta, primero los que empiezan con ella
+     */
+    public List<IndiceNgramas.Resultado> buscarAutores(String consulta, int limite) {
+        return autores.buscar(consulta, limite);
+    }
+
+    /**
+     * @param consulta Parte del nombre a buscar, sin importar mayúsculas ni acentos
+     * @param limite Cantidad máxima de resultados
+     * @return Editoriales activos que contienen la consulta, primero los que empiezan con ella
+     */
+    public List<IndiceNgramas.Resultado> buscarEditoriales(String consulta, int limite) {
+        return editoriales.buscar(consulta, limite);
+    }
+
+    /**
+     * Agrega o actualiza un Libro en el índice al confirmarse la transacción actual (lo mismo para Autores y Editoriales)
+     *
+     * @param id Del Libro
+     * @param titulo Actual del Libro
+     */
+    public void indexarLibro(String id, String titulo) {
+        Transacciones.despuesDelCommit(() -> libros.indexar(id, titulo));
+    }
+
+    /**
+     * Quita un Libro dado de baja del índice al confirmarse la transacción actual (lo mismo para Autores y Editoriales)
+     *
+     * @param id Del Libro
+     */
+    public void quitarLibro(String id) {
+        Transacciones.despuesDelCommit(() -> libros.quitar(id));
+    }
+
+    public void indexarAutor(String id, String nombre) {
+        Transacciones.despuesDelCommit(() -> autores.indexar(id, nombre));
+    }
+
+    public void quitarAutor(String id) {
+        Transacciones.despuesDelCommit(() -> autores.quitar(id));
+    }
+
+    public void indexarEditorial(String id, String nombre) {
+        Transacciones.despuesDelCommit(() -> editoriales.indexar(id, nombre));
+    }
+
+    public void quitarEditorial(String id) {
+        Transacciones.despuesDelCommit(() -> editoriales.quitar(id));
+    }
+
+    private Map<String, String> porId(List<Opcion> opciones) {
+        Map<String, String> textos = new HashMap<>(opciones.size() * 2);
+        for (Opcion opcion : opciones) {
+            textos.put(opcion.getId(), opcion.getNombre());
+        }
+        return textos;
+    }
+}
@@ -0,0 +1,88 @@
+package libreria.spring.LibreriaSpring.busqueda;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import libreria.spring.LibreriaSpring.entidades.Cliente;
+import libreria.spring.LibreriaSpring.repositorios.ClienteRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Índice en memoria de los nombres y apellidos de los Clientes activos para la búsqueda aproximada: encuentra a "Matías Soto" aunque
+ * se escriba "matias soto", "Soto Matias" o "Mathias Sotto". Se arma al iniciar la aplicación y ClienteService lo mantiene al día,
+ * aplicando los cambios recién cuando se confirma la transacción.
+ *
+ * @author Matias Luca Soto
+ */
+@Component
+public class IndiceClientes {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndiceClientes.class);
+
+    //PARECIDO MINIMO (COEFICIENTE DE DICE SOBRE TRIGRAMAS) PARA CONSIDERAR QUE UN CLIENTE COINCIDE
+    private static final double PARECIDO_MINIMO = 0.3;
+
+    //ATRIBUTOS - INDICE
+    private final IndiceNgramas clientes = new IndiceNgramas();
+
+    //ATRIBUTOS - REPOSITORIO
+    @Autowired
+    private ClienteRepositorio clienteRepositorio;
+
+    /**
+     * Arma el índice con los Clientes activos de la base de datos
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        long inicio = System.currentTimeMillis();
+        List<Object[]> filas = clienteRepositorio.listarNombresActivos();
+        Map<String, String> textos = new HashMap<>(filas.size() * 2);
+        Map<String, String> mostrados = new HashMap<>(filas.size() * 2);
+        for (Object[] fila : filas) {
+            String id = (String) fila[0];
+            textos.put(id, fila[1] + " " + fila[2]);
+            mostrados.put(id, mostrado((String) fila[1], (String) fila[2], (Long) fila[3]));
+        }
+        clientes.reconstruir(textos, mostrados);
+        LOG.info("Índice de clientes construido en {} ms: {} clientes", System.currentTimeMillis() - inicio, clientes.tamanio());
+    }
+
+    /**
+     * @param consulta Nombre, apellido o ambos, sin importar mayúsculas, acentos, orden ni pequeños errores de tipeo
+     * @param limite Cantidad máxima de resultados
+     * @return Clientes activos ordenados del más al menos parecido a la consulta
+     */
+    public List<IndiceNgramas.Resultado> buscar(String consulta, int limite) {
+        return clientes.buscarParecidos(consulta, limite, PARECIDO_MINIMO);
+    }
+
+    /**
+     * Agrega o actualiza un Cliente en el índice al confirmarse la transacción actual
+     *
+     * @param cliente Con sus datos actuales
+     */
+    public void indexar(Cliente cliente) {
+        String id = cliente.getId();
+        String texto = cliente.getNombre() + " " + cliente.getApellido();
+        String mostrado = mostrado(cliente.getNombre(), cliente.getApellido(), cliente.getDni());
+        Transacciones.despuesDelCommit(() -> clientes.indexar(id, texto, mostrado));
+    }
+
+    /**
+     * Quita un Cliente dado de baja del índice al confirmarse la transacción actual
+     *
+     * @param id Del Cliente
+     */
+    public void quitar(String id) {
+        Transacciones.despuesDelCommit(() -> clientes.quitar(id));
+    }
+
+    private String mostrado(String nombre, String apellido, Long dni) {
+        return nombre + " " + apellido + " - DNI " + dni;
+    }
+}
@@ -0,0 +1,639 @@
+package libreria.spring.LibreriaSpring.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
+
+/**
+ * Índice en memoria para buscar textos cortos (títulos, nombres) por prefijo o por cualquier parte del texto. Cada texto se
+ * normaliza (minúsculas y sin acentos) y se descompone en trigramas; por cada trigrama se guarda la lista ordenada de posiciones
+ * de los textos que lo contienen en un int[]. Una búsqueda intersecta las listas de los trigramas de la consulta y confirma cada
+ * candidato contra el texto completo, sin recorrer todo el índice. Las consultas de una o dos letras, que no llegan a formar un
+ * trigrama, buscan solo comienzos de palabra: las de dos letras usan el trigrama del borde de la palabra (" ab") y las de una, una
+ * lista aparte por primera letra de cada palabra.
+ *
+ * Las posiciones nunca se reutilizan: quitar un texto solo lo marca como borrado, y cuando los borrados superan a los vigentes el
+ * índice se reconstruye. Admite lecturas concurrentes; las escrituras son exclusivas.
+ *
+ * @author Matias Luca Soto
+ */
+public class IndiceNgramas {
+
+    //LARGO DE LOS N-GRAMAS INDEXADOS
+    private static final int N = 3;
+
+    //CANDIDATOS CUYO PARECIDO FINAL SE CALCULA POR CADA RESULTADO PEDIDO, PARA SUBIR EL UMBRAL DE LAS BUSQUEDAS DE PARECIDOS
+    private static final int CONFIRMADOS_POR_RESULTADO = 4;
+
+    //MARCA DE LAS CLAVES DE PRIMERA LETRA DE PALABRA, FUERA DEL RANGO DE LOS TRIGRAMAS CODIFICADOS (48 BITS)
+    private static final long INICIAL = 1L << 48;
+
+    //ATRIBUTOS
+    private final ReadWriteLock candado = new ReentrantReadWriteLock();
+    private final Map<String, Integer> posiciones = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private String[] ids = new String[64];
+    private String[] textos = new String[64];
+    private String[] normalizados = new String[64];
+    private int[] trigramas = new int[64];
+    private int cantidad;
+    private int borrados;
+
+    //ATRIBUTOS - CONTADORES DE LAS BUSQUEDAS DE PARECIDOS, REUTILIZADOS (UNO POR CADA BUSQUEDA SIMULTANEA)
+    private final Queue<Contadores> contadores = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Un resultado de búsqueda: el id de la entidad y su texto original
+     */
+    public static class Resultado implements Opcion {
+
+        private final String id;
+        private final String nombre;
+
+        private Resultado(String id, String nombre) {
+            this.id = id;
+            this.nombre = nombre;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getNombre() {
+            return nombre;
+        }
+    }
+
+    /**
+     * Agrega un texto al índice, o lo reemplaza si el id ya estaba indexado
+     *
+     * @param id De la entidad
+     * @param texto A indexar
+     */
+    public void indexar(String id, String texto) {
+        indexar(id, texto, texto);
+    }
+
+    /**
+     * Agrega un texto al índice, o lo reemplaza si el id ya estaba indexado, con un texto distinto para mostrar en los resultados
+     *
+     * @param id De la entidad
+     * @param texto A indexar
+     * @param mostrado Texto devuelto en los resultados (por ejemplo, con datos que no deben influir en la búsqueda)
+     */
+    public void indexar(String id, String texto, String mostrado) {
+        candado.writeLock().lock();
+        try {
+            quitarSinBloquear(id);
+            agregarSinBloquear(id, normalizar(texto), mostrado);
+            compactarSiHaceFalta();
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita del índice el texto de la entidad, si estaba indexado
+     *
+     * @param id De la entidad
+     */
+    public void quitar(String id) {
+        candado.writeLock().lock();
+        try {
+            quitarSinBloquear(id);
+            compactarSiHaceFalta();
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reemplaza todo el contenido del índice
+     *
+     * @param textosPorId Textos a indexar por id de entidad
+     */
+    public void reconstruir(Map<String, String> textosPorId) {
+        reconstruir(textosPorId, textosPorId);
+    }
+
+    /**
+     * Reemplaza todo el contenido del índice, con un texto distinto para mostrar en los resultados
+     *
+     * @param textosPorId Textos a indexar por id de entidad
+     * @param mostradosPorId Textos devueltos en los resultados por id de entidad
+     */
+    public void reconstruir(Map<String, String> textosPorId, Map<String, String> mostradosPorId) {
+        candado.writeLock().lock();
+        try {
+            vaciar(Math.max(64, textosPorId.size()));
+            textosPorId.forEach((id, texto) -> agregarSinBloquear(id, normalizar(texto), mostradosPorId.get(id)));
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los textos que contienen la consulta. Primero se devuelven los que empiezan con ella (o que tienen una palabra que
+     * empieza con ella) y después los que la contienen en cualquier otra posición, cada grupo en orden alfabético. Una consulta de
+     * una o dos letras solo encuentra los textos con una palabra que empieza con ella
+     *
+     * @param consulta Texto a buscar, sin importar mayúsculas ni acentos
+     * @param limite Cantidad máxima de resultados
+     * @return Hasta 'limite' resultados
+     */
+    public List<Resultado> buscar(String consulta, int limite) {
+        String buscado = normalizar(consulta);
+        List<Resultado> resultado = new ArrayList<>();
+        if (buscado.isEmpty() || limite < 1) {
+            return resultado;
+        }
+
+        List<Integer> prefijos = new ArrayList<>();
+        List<Integer> contenidos = new ArrayList<>();
+        candado.readLock().lock();
+        try {
+            int[] candidatos = buscado.length() < N ? comienzosDePalabra(buscado) : intersectar(buscado);
+            for (int candidato : candidatos) {
+                clasificar(candidato, buscado, prefijos, contenidos);
+            }
+            ordenar(prefijos);
+            ordenar(contenidos);
+            for (List<Integer> grupo : Arrays.asList(prefijos, contenidos)) {
+                for (int i = 0; i < grupo.size() && resultado.size() < limite; i++) {
+                    resultado.add(new Resultado(ids[grupo.get(i)], textos[grupo.get(i)]));
+                }
+            }
+        } finally {
+            candado.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca los textos parecidos a la consulta aunque tengan errores de tipeo, letras de más o de menos o las palabras en otro
+     * orden. El parecido es el coeficiente de Dice entre los trigramas de ambos textos: 2 * trigramas en común / (trigramas de la
+     * consulta + trigramas del texto), entre 0 y 1. Solo se recorren las listas de los trigramas de la consulta, y las más largas
+     * solo mientras puedan aparecer candidatos capaces de entrar entre los 'limite' mejores, así que el costo depende de cuántos
+     * textos comparten los trigramas menos comunes de la consulta y no del tamaño del índice
+     *
+     * @param consulta Texto a buscar, sin importar mayúsculas ni acentos
+     * @param limite Cantidad máxima de resultados
+     * @param parecidoMinimo Entre 0 y 1; los textos menos parecidos se descartan
+     * @return Hasta 'limite' resultados, del más al menos parecido
+     */
+    public List<Resultado> buscarParecidos(String consulta, int limite, double parecidoMinimo) {
+        String buscado = normalizar(consulta);
+        List<Resultado> resultado = new ArrayList<>();
+        if (buscado.isEmpty() || limite < 1) {
+            return resultado;
+        }
+
+        //Trigramas distintos de la consulta, con los mismos bordes que al indexar
+        String conBordes = " " + buscado + " ";
+        Set<Long> trigramasConsulta = new HashSet<>();
+        for (int i = 0; i + N <= conBordes.length(); i++) {
+            trigramasConsulta.add(codificar(conBordes, i));
+        }
+
+        candado.readLock().lock();
+        Contadores contador = tomarContadores();
+        int[] enComun = contador.enComun;
+        int[] tocados = contador.tocados;
+        int cantidadTocados = 0;
+        try {
+            //Las listas de los trigramas de la consulta, de la más corta a la más larga. Un texto que no apareció en las primeras
+            //'l' listas comparte a lo sumo (m - l) trigramas con la consulta, y por lo tanto no puede superar un parecido de
+            //2 * (m - l) / (total + m - l): en cuanto eso queda por debajo del umbral, las listas que faltan (las de los trigramas
+            //más comunes) ya no pueden sumar candidatos nuevos
+            List<Postings> listas = new ArrayList<>();
+            for (Long trigrama : trigramasConsulta) {
+                Postings lista = postings.get(trigrama);
+                if (lista != null) {
+                    listas.add(lista);
+                }
+            }
+            listas.sort((a, b) -> Integer.compare(a.tamanio, b.tamanio));
+            int totalTrigramas = trigramasConsulta.size();
+            int m = listas.size();
+
+            //El umbral arranca en el parecido mínimo y sube con el parecido que ya tienen asegurado los 'limite' mejores
+            //resultados, así que cuantos más textos muy parecidos haya, antes se deja de buscar candidatos nuevos
+            double umbral = parecidoMinimo;
+            int l = 0;
+            for (; l < m && 2.0 * (m - l) / (totalTrigramas + m - l) >= umbral; l++) {
+                Postings lista = listas.get(l);
+                for (int i = 0; i < lista.tamanio; i++) {
+                    int posicion = lista.posiciones[i];
+                    if (enComun[posicion]++ == 0) {
+                        if (cantidadTocados == tocados.length) {
+                            tocados = Arrays.copyOf(tocados, tocados.length * 2);
+                            contador.tocados = tocados;
+                        }
+                        tocados[cantidadTocados++] = posicion;
+                    }
+                }
+
+                //Recalcular el umbral cuesta una pasada por todos los candidatos: se hace recién desde la mitad de las listas
+                if (cantidadTocados >= limite && l + 1 > m - l - 1) {
+                    umbral = Math.max(umbral, asegurado(tocados, cantidadTocados, enComun, totalTrigramas, limite, listas, l + 1));
+                }
+            }
+
+            //Las listas restantes solo completan los trigramas en común de los candidatos que todavía pueden llegar al umbral. Los
+            //vivos quedan al principio de 'tocados' y los demás vuelven a cero en el momento
+            int restantes = m - l;
+            int cantidadVivos = 0;
+            for (int t = 0; t < cantidadTocados; t++) {
+                int posicion = tocados[t];
+                int posibles = enComun[posicion] + restantes;
+                if (2.0 * posibles / (totalTrigramas + posibles) < umbral) {
+                    enComun[posicion] = 0;
+                    continue;
+                }
+                posibles = Math.min(posibles, trigramas[posicion]);
+                if (ids[posicion] != null && 2.0 * posibles / (totalTrigramas + trigramas[posicion]) >= umbral) {
+                    tocados[cantidadVivos++] = posicion;
+                } else {
+                    enComun[posicion] = 0;
+                }
+            }
+            cantidadTocados = cantidadVivos;
+            int[] vivos = tocados;
+
+            //Después de cada lista, los candidatos que ya no pueden alcanzar el umbral dejan de buscarse
+            if (restantes > 0) {
+                Arrays.sort(vivos, 0, cantidadVivos);
+            }
+            for (int r = l; r < m; r++) {
+                Postings lista = listas.get(r);
+                int desde = 0;
+                for (int v = 0; v < cantidadVivos && desde < lista.tamanio; v++) {
+                    int encontrado = buscarDesde(lista, desde, vivos[v]);
+                    if (encontrado >= 0) {
+                        enComun[vivos[v]]++;
+                        desde = encontrado + 1;
+                    } else {
+                        desde = -encontrado - 1;
+                    }
+                }
+
+                //El umbral se recalcula solo después de la primera lista restante: los candidatos ya tienen casi todos sus trigramas
+                //en común y después apenas sube, mientras que cada cálculo es otra pasada por todos los vivos
+                int faltan = m - r - 1;
+                if (faltan > 0 && cantidadVivos > limite) {
+                    if (r == l) {
+                        umbral = Math.max(umbral, asegurado(vivos, cantidadVivos, enComun, totalTrigramas, limite, listas, r + 1));
+                    }
+                    int quedan = 0;
+                    for (int v = 0; v < cantidadVivos; v++) {
+                        int posicion = vivos[v];
+                        int posibles = Math.min(enComun[posicion] + faltan, trigramas[posicion]);
+                        if (2.0 * posibles / (totalTrigramas + trigramas[posicion]) >= umbral) {
+                            vivos[quedan++] = posicion;
+                        } else {
+                            enComun[posicion] = 0;
+                        }
+                    }
+                    cantidadVivos = quedan;
+                    cantidadTocados = quedan;
+                }
+            }
+
+            //Nos quedamos con los 'limite' más parecidos en arreglos ordenados, sin ordenar a todos los candidatos
+            int[] mejores = new int[limite];
+            double[] puntajes = new double[limite];
+            int cantidadMejores = 0;
+            for (int v = 0; v < cantidadVivos; v++) {
+                int posicion = vivos[v];
+                double parecido = 2.0 * enComun[posicion] / (totalTrigramas + trigramas[posicion]);
+                if (parecido < parecidoMinimo || (cantidadMejores == limite && parecido <= puntajes[limite - 1])) {
+                    continue;
+                }
+                int lugar = cantidadMejores < limite ? cantidadMejores++ : limite - 1;
+                while (lugar > 0 && puntajes[lugar - 1] < parecido) {
+                    mejores[lugar] = mejores[lugar - 1];
+                    puntajes[lugar] = puntajes[lugar - 1];
+                    lugar--;
+                }
+                mejores[lugar] = posicion;
+                puntajes[lugar] = parecido;
+            }
+            for (int i = 0; i < cantidadMejores; i++) {
+                resultado.add(new Resultado(ids[mejores[i]], textos[mejores[i]]));
+            }
+        } finally {
+            for (int t = 0; t < cantidadTocados; t++) {
+                enComun[tocados[t]] = 0;
+            }
+            contadores.offer(contador);
+            candado.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    /**
+     * @return Cantidad de textos vigentes en el índice
+     */
+    public int tamanio() {
+        candado.readLock().lock();
+        try {
+            return cantidad - borrados;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pasa a minúsculas, quita los acentos y colapsa los espacios, para que "Gabriel García" y "gabriel  garcia" coincidan
+     *
+     * @param texto Original
+     * @return Texto normalizado
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinAcentos = Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sinAcentos.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Contadores en cero con lugar para todas las posiciones del índice. Cada búsqueda devuelve los suyos en cero al terminar,
+     * así que hay tantos como búsquedas simultáneas, en lugar de arreglos nuevos del tamaño del índice por consulta
+     */
+    private Contadores tomarContadores() {
+        Contadores contador = contadores.poll();
+        return contador != null && contador.enComun.length >= cantidad ? contador : new Contadores(ids.length);
+    }
+
+    /**
+     * Posición del valor en la lista a partir de 'desde', o (-(punto de inserción) - 1) si no está, como Arrays.binarySearch.
+     * Avanza a saltos que se duplican antes de la búsqueda binaria, porque los valores buscados vienen en orden y suelen estar
+     * cerca del anterior
+     */
+    private static int buscarDesde(Postings lista, int desde, int valor) {
+        int[] posiciones = lista.posiciones;
+        int salto = 1;
+        int hasta = desde;
+        while (hasta < lista.tamanio && posiciones[hasta] < valor) {
+            desde = hasta + 1;
+            hasta += salto;
+            salto *= 2;
+        }
+        return Arrays.binarySearch(posiciones, desde, Math.min(hasta + 1, lista.tamanio), valor);
+    }
+
+    /**
+     * Un parecido que los 'limite' mejores resultados van a alcanzar sí o sí: se toman los candidatos más parecidos con las
+     * listas ya recorridas (unos cuantos por cada resultado pedido), se completan sus trigramas en común buscándolos en las que
+     * faltan y se devuelve el 'limite'-ésimo mayor de sus parecidos finales. Es 0 si todavía no hay 'limite' candidatos
+     */
+    private double asegurado(int[] candidatos, int cantidadCandidatos, int[] enComun, int totalTrigramas, int limite,
+            List<Postings> listas, int desdeLista) {
+
+        //Los de mayor parecido con lo recorrido, ordenados de menor a mayor
+        int elegidos = limite * CONFIRMADOS_POR_RESULTADO;
+        int[] mejores = new int[elegidos];
+        double[] mayores = new double[elegidos];
+        int llenos = 0;
+        for (int c = 0; c < cantidadCandidatos; c++) {
+            int posicion = candidatos[c];
+            int comunes = enComun[posicion];
+            if ((llenos == elegidos && 2.0 * comunes / (totalTrigramas + comunes) <= mayores[0]) || ids[posicion] == null) {
+                continue;
+            }
+            double parecido = 2.0 * comunes / (totalTrigramas + trigramas[posicion]);
+            if (llenos == elegidos && parecido <= mayores[0]) {
+                continue;
+            }
+            int lugar;
+            if (llenos < elegidos) {
+                lugar = llenos++;
+                while (lugar > 0 && mayores[lugar - 1] > parecido) {
+                    mejores[lugar] = mejores[lugar - 1];
+                    mayores[lugar] = mayores[lugar - 1];
+                    lugar--;
+                }
+            } else {
+                lugar = 0;
+                while (lugar + 1 < elegidos && mayores[lugar + 1] < parecido) {
+                    mejores[lugar] = mejores[lugar + 1];
+                    mayores[lugar] = mayores[lugar + 1];
+                    lugar++;
+                }
+            }
+            mejores[lugar] = posicion;
+            mayores[lugar] = parecido;
+        }
+        if (llenos < limite) {
+            return 0;
+        }
+
+        //Sus parecidos finales, de los que el 'limite'-ésimo mayor queda asegurado
+        double[] finales = new double[llenos];
+        for (int e = 0; e < llenos; e++) {
+            int posicion = mejores[e];
+            int comunes = enComun[posicion];
+            for (int r = desdeLista; r < listas.size(); r++) {
+                Postings lista = listas.get(r);
+                if (Arrays.binarySearch(lista.posiciones, 0, lista.tamanio, posicion) >= 0) {
+                    comunes++;
+                }
+            }
+            finales[e] = 2.0 * comunes / (totalTrigramas + trigramas[posicion]);
+        }
+        Arrays.sort(finales);
+        return finales[llenos - limite];
+    }
+
+    private void agregarSinBloquear(String id, String normalizado, String mostrado) {
+        if (cantidad == ids.length) {
+            int nuevoLargo = ids.length * 2;
+            ids = Arrays.copyOf(ids, nuevoLargo);
+            textos = Arrays.copyOf(textos, nuevoLargo);
+            normalizados = Arrays.copyOf(normalizados, nuevoLargo);
+            trigramas = Arrays.copyOf(trigramas, nuevoLargo);
+        }
+        int posicion = cantidad++;
+        ids[posicion] = id;
+        textos[posicion] = mostrado;
+        normalizados[posicion] = normalizado;
+        posiciones.put(id, posicion);
+
+        //Los bordes se marcan con un espacio para que el comienzo y el final de cada palabra también cuenten en los parecidos.
+        //Las posiciones crecen siempre, así que cada lista queda ordenada con solo agregar al final
+        String conBordes = " " + normalizado + " ";
+        int distintos = 0;
+        for (int i = 0; i + N <= conBordes.length(); i++) {
+            if (postings.computeIfAbsent(codificar(conBordes, i), clave -> new Postings()).agregar(posicion)) {
+                distintos++;
+            }
+        }
+        trigramas[posicion] = distintos;
+
+        //Primera letra de cada palabra, para las consultas de una sola letra
+        for (int i = 0; i + 1 < conBordes.length(); i++) {
+            if (conBordes.charAt(i) == ' ' && conBordes.charAt(i + 1) != ' ') {
+                postings.computeIfAbsent(INICIAL | conBordes.charAt(i + 1), clave -> new Postings()).agregar(posicion);
+            }
+        }
+    }
+
+    private void quitarSinBloquear(String id) {
+        Integer posicion = posiciones.remove(id);
+        if (posicion != null) {
+            ids[posicion] = null;
+            textos[posicion] = null;
+            normalizados[posicion] = null;
+            borrados++;
+        }
+    }
+
+    private void compactarSiHaceFalta() {
+        if (borrados <= cantidad - borrados) {
+            return;
+        }
+        String[] idsAnteriores = ids;
+        String[] normalizadosAnteriores = normalizados;
+        String[] textosAnteriores = textos;
+        int cantidadAnterior = cantidad;
+        vaciar(Math.max(64, cantidad - borrados));
+        for (int i = 0; i < cantidadAnterior; i++) {
+            if (idsAnteriores[i] != null) {
+                agregarSinBloquear(idsAnteriores[i], normalizadosAnteriores[i], textosAnteriores[i]);
+            }
+        }
+    }
+
+    private void vaciar(int capacidad) {
+        posiciones.clear();
+        postings.clear();
+        ids = new String[capacidad];
+        textos = new String[capacidad];
+        normalizados = new String[capacidad];
+        trigramas = new int[capacidad];
+        cantidad = 0;
+        borrados = 0;
+    }
+
+    /**
+     * Intersecta las listas de todos los trigramas de la consulta, empezando por la más corta
+     */
+    private int[] intersectar(String buscado) {
+        List<Postings> listas = new ArrayList<>();
+        for (int i = 0; i + N <= buscado.length(); i++) {
+            Postings lista = postings.get(codificar(buscado, i));
+            if (lista == null) {
+                return new int[0];
+            }
+            listas.add(lista);
+        }
+        listas.sort((a, b) -> Integer.compare(a.tamanio, b.tamanio));
+
+        int[] actual = Arrays.copyOf(listas.get(0).posiciones, listas.get(0).tamanio);
+        int largo = actual.length;
+        for (int l = 1; l < listas.size() && largo > 0; l++) {
+            Postings otra = listas.get(l);
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < largo && j < otra.tamanio) {
+                if (actual[i] < otra.posiciones[j]) {
+                    i++;
+                } else if (actual[i] > otra.posiciones[j]) {
+                    j++;
+                } else {
+                    actual[k++] = actual[i];
+                    i++;
+                    j++;
+                }
+            }
+            largo = k;
+        }
+        return Arrays.copyOf(actual, largo);
+    }
+
+    /**
+     * Textos con alguna palabra que empieza con una consulta de una o dos letras. Para dos letras alcanza con el trigrama que
+     * forman con el borde de la palabra; para una se usa la lista de primeras letras
+     */
+    private int[] comienzosDePalabra(String buscado) {
+        Postings lista = buscado.length() == 1
+                ? postings.get(INICIAL | buscado.charAt(0))
+                : postings.get(codificar(" " + buscado, 0));
+        return lista == null ? new int[0] : Arrays.copyOf(lista.posiciones, lista.tamanio);
+    }
+
+    private void clasificar(int posicion, String buscado, List<Integer> prefijos, List<Integer> contenidos) {
+        String normalizado = normalizados[posicion];
+        if (normalizado == null) {
+            return;
+        }
+        int indice = normalizado.indexOf(buscado);
+        if (indice < 0) {
+            return;
+        }
+        if (indice == 0 || normalizado.contains(" " + buscado)) {
+            prefijos.add(posicion);
+        } else {
+            contenidos.add(posicion);
+        }
+    }
+
+    private void ordenar(List<Integer> grupo) {
+        grupo.sort((a, b) -> normalizados[a].compareTo(normalizados[b]));
+    }
+
+    private static long codificar(String texto, int desde) {
+        return ((long) texto.charAt(desde) << 32) | ((long) texto.charAt(desde + 1) << 16) | texto.charAt(desde + 2);
+    }
+
+    /**
+     * Trigramas en común por posición y posiciones tocadas de una búsqueda de parecidos
+     */
+    private static class Contadores {
+
+        private final int[] enComun;
+        private int[] tocados = new int[1024];
+
+        private Contadores(int capacidad) {
+            enComun = new int[capacidad];
+        }
+    }
+
+    /**
+     * Lista de posiciones de un trigrama, en un arreglo de enteros que crece a demanda
+     */
+    private static class Postings {
+
+        private int[] posiciones = new int[4];
+        private int tamanio;
+
+        /**
+         * @return false si el trigrama ya estaba registrado para esa posición (un trigrama repetido en el mismo texto cuenta una vez)
+         */
+        private boolean agregar(int posicion) {
+            if (tamanio > 0 && posiciones[tamanio - 1] == posicion) {
+                return false;
+            }
+            if (tamanio == posiciones.length) {
+                posiciones = Arrays.copyOf(posiciones, tamanio * 2);
+            }
+            posiciones[tamanio++] = posicion;
+            return true;
+        }
+    }
+}
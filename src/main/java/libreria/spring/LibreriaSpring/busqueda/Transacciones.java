@@ -0,0 +1,34 @@
+package libreria.spring.LibreriaSpring.busqueda;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utilidades para que los índices de búsqueda acompañen a las transacciones de la base de datos
+ *
+ * @author Matias Luca Soto
+ */
+final class Transacciones {
+
+    private Transacciones() {
+    }
+
+    /**
+     * Ejecuta el cambio cuando se confirme la transacción actual, o en el momento si no hay ninguna activa. Si la transacción se
+     * deshace, el cambio se descarta
+     *
+     * @param cambio Sobre alguno de los índices
+     */
+    static void despuesDelCommit(Runnable cambio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cambio.run();
+                }
+            });
+        } else {
+            cambio.run();
+        }
+    }
+}
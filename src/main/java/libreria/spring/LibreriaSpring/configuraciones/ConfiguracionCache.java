@@ -0,0 +1,63 @@
+package libreria.spring.LibreriaSpring.configuraciones;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import java.net.URI;
+import java.util.UUID;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache local (Caffeine) de las búsquedas por id de Autores, Editoriales, Libros y Clientes. Tamaño máximo y vencimiento se
+ * configuran con 'spring.cache.caffeine.spec' en application.properties, y las métricas de aciertos, fallos y desalojos se publican
+ * en /actuator/metrics/cache.gets y /actuator/metrics/cache.evictions.
+ *
+ * Las escrituras y desalojos hechos dentro de una transacción se aplican recién cuando esta se confirma, para que una lectura
+ * concurrente no pueda volver a guardar en la cache el valor viejo entre el desalojo y el commit.
+ *
+ * La cache de segundo nivel de Hibernate (JCache sobre Caffeine) usa un CacheManager propio de este ApplicationContext. Con el
+ * CacheManager por defecto del proveedor, todos los SessionFactory de la JVM compartirían las mismas regiones, y al cerrarse uno
+ * (por ejemplo, un segundo contexto de los tests) se cerrarían también las del resto.
+ *
+ * @author Matias Luca Soto
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class ConfiguracionCache {
+
+    //NOMBRES DE LAS CACHES
+    public static final String AUTORES = "autores";
+    public static final String EDITORIALES = "editoriales";
+    public static final String LIBROS = "libros";
+    public static final String CLIENTES = "clientes";
+    public static final String CLIENTES_POR_DNI = "clientesPorDni";
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties propiedades) {
+        CaffeineCacheManager caffeine = new CaffeineCacheManager();
+        caffeine.setCacheSpecification(propiedades.getCaffeine().getSpec());
+        caffeine.setCacheNames(propiedades.getCacheNames());
+        return new TransactionAwareCacheManagerProxy(caffeine);
+    }
+
+    @Bean(destroyMethod = "close")
+    public javax.cache.CacheManager cacheHibernate() {
+        CachingProvider proveedor = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        return proveedor.getCacheManager(URI.create("libreria:hibernate:" + UUID.randomUUID()), proveedor.getDefaultClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheHibernatePropia(javax.cache.CacheManager cacheHibernate) {
+        return propiedades -> propiedades.put(ConfigSettings.CACHE_MANAGER, cacheHibernate);
+    }
+}
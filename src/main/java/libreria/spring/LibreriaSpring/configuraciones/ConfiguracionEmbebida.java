@@ -0,0 +1,43 @@
+package libreria.spring.LibreriaSpring.configuraciones;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Ajustes del perfil 'embebido' (application-embebido.properties), que reemplaza al servidor MySQL por una base H2 en memoria en
+ * modo de compatibilidad con MySQL, creada con las mismas migraciones de Flyway. Sirve para desarrollar, correr los tests o hacer
+ * pruebas de rendimiento sin instalar nada.
+ *
+ * Las consultas que recorren tablas completas como Stream piden un fetch size de Integer.MIN_VALUE, que es la forma de pedirle al
+ * driver de MySQL que envíe las filas de a una. H2 rechaza los valores negativos (y no los necesita, porque ya lee los resultados
+ * grandes de a partes), así que en este perfil se los reemplaza por 0, el valor por defecto de JDBC. El reemplazo es un listener
+ * más del proxy que ConfiguracionInspeccion ya arma sobre el DataSource, de modo que el DataSource se envuelve una sola vez.
+ *
+ * @author Matias Luca Soto
+ */
+@Configuration
+@Profile("embebido")
+public class ConfiguracionEmbebida {
+
+    @Bean
+    public MethodExecutionListener fetchSizeCompatible() {
+        return new MethodExecutionListener() {
+            @Override
+            public void beforeMethod(MethodExecutionContext contexto) {
+
+                //El proxy invoca al método real con este mismo arreglo de argumentos
+                Object[] argumentos = contexto.getMethodArgs();
+                if (contexto.getMethod().getName().equals("setFetchSize") && (Integer) argumentos[0] < 0) {
+                    argumentos[0] = 0;
+                }
+            }
+
+            @Override
+            public void afterMethod(MethodExecutionContext contexto) {
+            }
+        };
+    }
+}
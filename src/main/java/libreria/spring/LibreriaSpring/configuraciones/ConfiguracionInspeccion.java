@@ -0,0 +1,57 @@
+package libreria.spring.LibreriaSpring.configuraciones;
+
+import javax.sql.DataSource;
+import libreria.spring.LibreriaSpring.inspeccion.InspectorConsultas;
+import libreria.spring.LibreriaSpring.inspeccion.InterceptorConsultas;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Inspección de las sentencias SQL, en reemplazo de 'spring.jpa.show-sql' (que escribe cada sentencia en la salida estándar y no
+ * dice cuántas cuesta cada página). El DataSource se envuelve con datasource-proxy para que InspectorConsultas cuente sentencias,
+ * filas leídas y tiempo en la base de datos, e InterceptorConsultas junta esos datos por solicitud HTTP. Los umbrales de aviso se
+ * configuran con 'libreria.consultas.*' en application.properties.
+ *
+ * Los MethodExecutionListener declarados como beans (por ejemplo, el ajuste de fetch size de ConfiguracionEmbebida) se suman a este
+ * mismo proxy, para que el DataSource quede envuelto una sola vez y sin depender del orden de varios BeanPostProcessor.
+ *
+ * @author Matias Luca Soto
+ */
+@Configuration
+public class ConfiguracionInspeccion implements WebMvcConfigurer {
+
+    @Autowired
+    private InterceptorConsultas interceptorConsultas;
+
+    @Bean
+    public static BeanPostProcessor inspeccionConsultas(ObjectProvider<MethodExecutionListener> ajustes) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nombre) {
+                if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+                    InspectorConsultas inspector = new InspectorConsultas();
+                    ProxyDataSourceBuilder proxy = ProxyDataSourceBuilder.create(nombre, (DataSource) bean)
+                            .listener(inspector)
+                            .methodListener(inspector)
+                            .proxyResultSet();
+                    ajustes.orderedStream().forEach(proxy::methodListener);
+                    return proxy.build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptorConsultas);
+    }
+}
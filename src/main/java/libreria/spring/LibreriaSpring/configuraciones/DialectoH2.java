@@ -0,0 +1,22 @@
+package libreria.spring.LibreriaSpring.configuraciones;
+
+import java.sql.Types;
+import org.hibernate.dialect.H2Dialect;
+
+/**
+ * Dialecto de Hibernate para la base H2 del perfil 'embebido'. H2 no tiene un tipo binario de largo fijo (BINARY(16) es un
+ * sinónimo de VARBINARY(16)), así que al validar el esquema las columnas de ids (ver TipoIdBinario) se aceptan como equivalentes.
+ *
+ * @author Matias Luca Soto
+ */
+public class DialectoH2 extends H2Dialect {
+
+    @Override
+    public boolean equivalentTypes(int tipo1, int tipo2) {
+        return super.equivalentTypes(tipo1, tipo2) || (binario(tipo1) && binario(tipo2));
+    }
+
+    private static boolean binario(int tipo) {
+        return tipo == Types.BINARY || tipo == Types.VARBINARY;
+    }
+}
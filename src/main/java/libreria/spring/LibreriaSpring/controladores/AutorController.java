@@ -1,10 +1,16 @@
 package libreria.spring.LibreriaSpring.controladores;
 
-import java.util.List;
 import libreria.spring.LibreriaSpring.entidades.Autor;
 import libreria.spring.LibreriaSpring.excepciones.AutorServiceException;
 import libreria.spring.LibreriaSpring.servicios.AutorService;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
+import libreria.spring.LibreriaSpring.versiones.VersionesTablas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,6 +18,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
 
 /**
  * Controlador de la Clase Autores
@@ -22,10 +29,18 @@ import org.springframework.web.bind.annotation.RequestParam;
 @RequestMapping("/autores")
 public class AutorController {
 
+    //PAGINACION DEL LISTADO
+    private static final int TAMANIO_PAGINA = 20;
+    private static final Pageable PAGINA_INICIAL = PageRequest.of(0, TAMANIO_PAGINA, Sort.by("nombre"));
+
     //ATRIBUTOS - SERVICES
     @Autowired
     private AutorService autorService;
 
+    //ATRIBUTOS - VERSIONES DE LAS TABLAS
+    @Autowired
+    private VersionesTablas versionesTablas;
+
     /**
      * Método que devuelve el formulario vacío para poder ingresar un nuevo Autor a la base de datos
      *
@@ -63,16 +78,42 @@ public class AutorController {
      * Devuelve la vista con el listado de autores guardados en la base de datos
      *
      * @param modelo Para inyectar la lista a la vista
+     * @param paginacion Página, tamaño (hasta 100) y orden solicitados por parámetros 'pagina', 'tamanio' y 'orden'
+     * @param solicitud Para comparar el ETag del navegador con la versión actual de las tablas del listado
      * @return Lista de autores persistidos
      */
     @GetMapping("/listado_autores")
-    public String listado_autores(ModelMap modelo) {
+    public String listado_autores(ModelMap modelo, @PageableDefault(size = TAMANIO_PAGINA, sort = "nombre") Pageable paginacion, ServletWebRequest solicitud) {
+
+        //Si el navegador ya tiene la versión actual del listado, respondemos 304 sin consultar la base de datos ni armar la vista
+        if (versionesTablas.sinCambios(solicitud, Tabla.AUTORES)) {
+            return null;
+        }
+        String vista = listado_autores(modelo, paginacion);
+
+        //Una página con error no debe quedar guardada en el navegador con el ETag de la versión actual
+        if (modelo.containsAttribute("error")) {
+            versionesTablas.noGuardar(solicitud);
+        }
+        return vista;
+    }
+
+    /**
+     * Arma la vista del listado sin verificar el ETag. También la usan los demás métodos de este Controlador para volver al listado
+     * después de una operación
+     *
+     * @param modelo Para inyectar la lista a la vista
+     * @param paginacion Página, tamaño (hasta 100) y orden solicitados por parámetros 'pagina', 'tamanio' y 'orden'
+     * @return Lista de autores persistidos
+     */
+    private String listado_autores(ModelMap modelo, Pageable paginacion) {
 
         try {
             //Traigo una lista con todos los Autores desde Service -> Repositorio
-            List<Autor> autores = autorService.listarTodos();
+            Page<Autor> pagina = autorService.listarPagina(paginacion);
             //Utilizo otro método de ModelMap para inyectar una key "autores" que contenga la lista
-            modelo.addAttribute("autores", autores);
+            modelo.addAttribute("autores", pagina.getContent());
+            modelo.addAttribute("pagina", pagina);
         } catch (AutorServiceException e) {
             modelo.put("error", "Hubo un problema: " + e.getMessage());
         }
@@ -114,7 +155,7 @@ public class AutorController {
             //Se modifica la instancia en la base de datos usando un método de la Clase Service
             autorService.modificarAutor(id, nombre);
             modelo.put("exito", "¡Autor modificado con éxito!");
-            return listado_autores(modelo);
+            return listado_autores(modelo, PAGINA_INICIAL);
 
             /* Alternativa para devolver la vista, pero da errores de servidor
             List<Autor> autores = autorService.listarTodos();
@@ -155,7 +196,7 @@ public class AutorController {
             return "redirect:/autores/listado_autores";
         } catch (AutorServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
-            return listado_autores(modelo);
+            return listado_autores(modelo, PAGINA_INICIAL);
         }
     }
 
@@ -175,7 +216,7 @@ public class AutorController {
             return "redirect:/autores/listado_autores";
         } catch (AutorServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
-            return listado_autores(modelo);
+            return listado_autores(modelo, PAGINA_INICIAL);
         }
     }
 
@@ -0,0 +1,69 @@
+package libreria.spring.LibreriaSpring.controladores;
+
+import java.util.List;
+import libreria.spring.LibreriaSpring.busqueda.IndiceCatalogo;
+import libreria.spring.LibreriaSpring.busqueda.IndiceNgramas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Controlador de las búsquedas en memoria sobre el catálogo: encuentran Libros, Autores y Editoriales por cualquier parte de su
+ * título o nombre sin consultar la base de datos
+ *
+ * @author Matias Luca Soto
+ */
+@Controller
+@RequestMapping("/busqueda")
+public class BusquedaController {
+
+    //CANTIDAD MAXIMA DE RESULTADOS POR BUSQUEDA
+    private static final int LIMITE_MAXIMO = 50;
+
+    //ATRIBUTOS - INDICE
+    @Autowired
+    private IndiceCatalogo indiceCatalogo;
+
+    /**
+     * Busca Libros activos por cualquier parte del título
+     *
+     * @param q Texto a buscar
+     * @param limite Cantidad máxima de resultados (hasta 50)
+     * @return Lista de {id, nombre} en formato JSON
+     */
+    @GetMapping("/libros")
+    @ResponseBody
+    public List<IndiceNgramas.Resultado> libros(@RequestParam(defaultValue = "") String q, @RequestParam(defaultValue = "10") int limite) {
+        return indiceCatalogo.buscarLibros(q, Math.min(limite, LIMITE_MAXIMO));
+    }
+
+    /**
+     * Busca Autores activos por cualquier parte del nombre
+     *
+     * @param q Texto a buscar
+     * @param limite Cantidad máxima de resultados (hasta 50)
+     * @return Lista de {id, nombre} en formato JSON
+     */
+    @GetMapping("/autores")
+    @ResponseBody
+    public List<IndiceNgramas.Resultado> autores(@RequestParam(defaultValue = "") String q, @RequestParam(defaultValue = "10") int limite) {
+        return indiceCatalogo.buscarAutores(q, Math.min(limite, LIMITE_MAXIMO));
+    }
+
+    /**
+     * Busca Editoriales activas por cualquier parte del nombre
+     *
+     * @param q Texto a buscar
+     * @param limite Cantidad máxima de resultados (hasta 50)
+     * @return Lista de {id, nombre} en formato JSON
+     */
+    @GetMapping("/editoriales")
+    @ResponseBody
+    public List<IndiceNgramas.Resultado> editoriales(@RequestParam(defaultValue = "") String q, @RequestParam(defaultValue = "10") int limite) {
+        return indiceCatalogo.buscarEditoriales(q, Math.min(limite, LIMITE_MAXIMO));
+    }
+
+}
@@ -3,8 +3,16 @@ package libreria.spring.LibreriaSpring.controladores;
 import java.util.List;
 import libreria.spring.LibreriaSpring.entidades.Cliente;
 import libreria.spring.LibreriaSpring.excepciones.ClienteServiceException;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
 import libreria.spring.LibreriaSpring.servicios.ClienteService;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
+import libreria.spring.LibreriaSpring.versiones.VersionesTablas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,6 +20,8 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
 
 /**
  * Controlador de la Clase Cliente
@@ -22,10 +32,18 @@ import org.springframework.web.bind.annotation.RequestParam;
 @RequestMapping("/clientes")
 public class ClienteController {
 
+    //PAGINACION DEL LISTADO
+    private static final int TAMANIO_PAGINA = 20;
+    private static final Pageable PAGINA_INICIAL = PageRequest.of(0, TAMANIO_PAGINA, Sort.by("apellido"));
+
     //ATRIBUTOS - Clase Service
     @Autowired
     private ClienteService clienteService;
 
+    //ATRIBUTOS - VERSIONES DE LAS TABLAS
+    @Autowired
+    private VersionesTablas versionesTablas;
+
     /**
      * Devuelve la vista con el formulario para ingresar un nuevo Cliente
      *
@@ -70,15 +88,41 @@ public class ClienteController {
      * Controlador que devuelve la vista con todo el listado de Clientes guardados en la base de datos
      *
      * @param modelo de la vista
+     * @param paginacion Página, tamaño (hasta 100) y orden solicitados por parámetros 'pagina', 'tamanio' y 'orden'
+     * @param solicitud Para comparar el ETag del navegador con la versión actual de las tablas del listado
      * @return La vista con todo el Listado de Clientes
      */
     @GetMapping("/listado_clientes")
-    public String listado_clientes(ModelMap modelo) {
+    public String listado_clientes(ModelMap modelo, @PageableDefault(size = TAMANIO_PAGINA, sort = "apellido") Pageable paginacion, ServletWebRequest solicitud) {
+
+        //Si el navegador ya tiene la versión actual del listado, respondemos 304 sin consultar la base de datos ni armar la vista
+        if (versionesTablas.sinCambios(solicitud, Tabla.CLIENTES)) {
+            return null;
+        }
+        String vista = listado_clientes(modelo, paginacion);
+
+        //Una página con error no debe quedar guardada en el navegador con el ETag de la versión actual
+        if (modelo.containsAttribute("error")) {
+            versionesTablas.noGuardar(solicitud);
+        }
+        return vista;
+    }
+
+    /**
+     * Arma la vista del listado sin verificar el ETag. También la usan los demás métodos de este Controlador para volver al listado
+     * después de una operación
+     *
+     * @param modelo de la vista
+     * @param paginacion Página, tamaño (hasta 100) y orden solicitados por parámetros 'pagina', 'tamanio' y 'orden'
+     * @return La vista con todo el Listado de Clientes
+     */
+    private String listado_clientes(ModelMap modelo, Pageable paginacion) {
 
         try {
             //Llamado de un métood de ClienteService para obtener el listado con todos los Clientes
-            List<Cliente> clientes = clienteService.listarTodos();
-            modelo.addAttribute("clientes", clientes);
+            Page<Cliente> pagina = clienteService.listarPagina(paginacion);
+            modelo.addAttribute("clientes", pagina.getContent());
+            modelo.addAttribute("pagina", pagina);
 
         } catch (ClienteServiceException e) {
             modelo.put("error", "Hubo un problema: " + e.getMessage());
@@ -125,7 +169,7 @@ public class ClienteController {
             modelo.put("exito", "¡Cliente modificado con éxito!");
 
             //Si todo salió bien, devolvemos el listado de Clientes
-            return listado_clientes(modelo);
+            return listado_clientes(modelo, PAGINA_INICIAL);
         } catch (ClienteServiceException e) {
 
             //Si algo salió mal, se vuelve al mismo método
@@ -149,7 +193,7 @@ public class ClienteController {
             return "redirect:/clientes/listado_clientes";
         } catch (ClienteServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
-            return listado_clientes(modelo);
+            return listado_clientes(modelo, PAGINA_INICIAL);
         }
     }
 
@@ -168,8 +212,22 @@ public class ClienteController {
             return "redirect:/clientes/listado_clientes";
         } catch (ClienteServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
-            return listado_clientes(modelo);
+            return listado_clientes(modelo, PAGINA_INICIAL);
         }
     }
 
+    /**
+     * Endpoint JSON para el autocompletado de los formularios: devuelve Clientes activos por prefijo de DNI, nombre o apellido
+     *
+     * @param q Texto ingresado hasta el momento
+     * @param limite Cantidad máxima de sugerencias (hasta 50)
+     * @return Lista de {id, nombre} en formato JSON
+     * @throws ClienteServiceException Si hubo algún problema con la base de datos
+     */
+    @GetMapping("/buscar")
+    @ResponseBody
+    public List<Opcion> buscar(@RequestParam(defaultValue = "") String q, @RequestParam(defaultValue = "10") int limite) throws ClienteServiceException {
+        return clienteService.buscarOpciones(q, limite);
+    }
+
 }
@@ -1,10 +1,16 @@
 package libreria.spring.LibreriaSpring.controladores;
 
-import java.util.List;
 import libreria.spring.LibreriaSpring.entidades.Editorial;
 import libreria.spring.LibreriaSpring.excepciones.EditorialServiceException;
 import libreria.spring.LibreriaSpring.servicios.EditorialService;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
+import libreria.spring.LibreriaSpring.versiones.VersionesTablas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,6 +18,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
 
 /**
  * Controlador de la Entidad Editorial
@@ -22,10 +29,18 @@ import org.springframework.web.bind.annotation.RequestParam;
 @RequestMapping("/editoriales")
 public class EditorialController {
 
+    //PAGINACION DEL LISTADO
+    private static final int TAMANIO_PAGINA = 20;
+    private static final Pageable PAGINA_INICIAL = PageRequest.of(0, TAMANIO_PAGINA, Sort.by("nombre"));
+
     //ATRIBUTOS - SERVICES
     @Autowired
     private EditorialService editorialService;
 
+    //ATRIBUTOS - VERSIONES DE LAS TABLAS
+    @Autowired
+    private VersionesTablas versionesTablas;
+
     /**
      * Controlador que devuelve la vista con el formulario para ingresar una nueva editorial
      *
@@ -63,15 +78,41 @@ public class EditorialController {
      * Controlador del listado de editoriales
      *
      * @param modelo De la vista
+     * @param paginacion Página, tamaño (hasta 100) y orden solicitados por parámetros 'pagina', 'tamanio' y 'orden'
+     * @param solicitud Para comparar el ETag del navegador con la versión actual de las tablas del listado
      * @return Listado con todas las editoriales
      */
     @GetMapping("/listado_editoriales")
-    public String listado_editoriales(ModelMap modelo) {
+    public String listado_editoriales(ModelMap modelo, @PageableDefault(size = TAMANIO_PAGINA, sort = "nombre") Pageable paginacion, ServletWebRequest solicitud) {
+
+        //Si el navegador ya tiene la versión actual del listado, respondemos 304 sin consultar la base de datos ni armar la vista
+        if (versionesTablas.sinCambios(solicitud, Tabla.EDITORIALES)) {
+            return null;
+        }
+        String vista = listado_editoriales(modelo, paginacion);
+
+        //Una página con error no debe quedar guardada en el navegador con el ETag de la versión actual
+        if (modelo.containsAttribute("error")) {
+            versionesTablas.noGuardar(solicitud);
+        }
+        return vista;
+    }
+
+    /**
+     * Arma la vista del listado sin verificar el ETag. También la usan los demás métodos de este Controlador para volver al listado
+     * después de una operación
+     *
+     * @param modelo De la vista
+     * @param paginacion Página, tamaño (hasta 100) y orden solicitados por parámetros 'pagina', 'tamanio' y 'orden'
+     * @return Listado con todas las editoriales
+     */
+    private String listado_editoriales(ModelMap modelo, Pageable paginacion) {
 
         try {
             //Traemos a todas las editoriales usando un método de la Clase Service y lo inyectamos en el ModelMap
-            List<Editorial> editoriales = editorialService.listarTodos();
-            modelo.addAttribute("editoriales", editoriales);
+            Page<Editorial> pagina = editorialService.listarPagina(paginacion);
+            modelo.addAttribute("editoriales", pagina.getContent());
+            modelo.addAttribute("pagina", pagina);
 
         } catch (EditorialServiceException e) {
             modelo.put("error", "Hubo un problema: " + e.getMessage());
@@ -114,7 +155,7 @@ public class EditorialController {
             //Realizamos los cambios con el método de la Clase Service y devolvemos el listado si todo sale bien
             editorialService.modificarEditorial(id, nombre);
             modelo.put("exito", "¡Editorial modificada con éxito!");
-            return listado_editoriales(modelo);
+            return listado_editoriales(modelo, PAGINA_INICIAL);
         } catch (EditorialServiceException e) {
             //Si saltó alguna excepción, se inyecta el mensaje de error y se regresa al formulario de Modificar Editorial
             modelo.put("error", "¡Algo salió mal! " + e.getMessage());
@@ -137,7 +178,7 @@ public class EditorialController {
             return "redirect:/editoriales/listado_editoriales";
         } catch (EditorialServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
-            return listado_editoriales(modelo);
+            return listado_editoriales(modelo, PAGINA_INICIAL);
         }
     }
 
@@ -156,7 +197,7 @@ public class EditorialController {
             return "redirect:/editoriales/listado_editoriales";
         } catch (EditorialServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
-            return listado_editoriales(modelo);
+            return listado_editoriales(modelo, PAGINA_INICIAL);
         }
     }
 }
@@ -1,16 +1,28 @@
 package libreria.spring.LibreriaSpring.controladores;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
-import libreria.spring.LibreriaSpring.entidades.Autor;
-import libreria.spring.LibreriaSpring.entidades.Editorial;
-import libreria.spring.LibreriaSpring.entidades.Libro;
+import libreria.spring.LibreriaSpring.eventos.CambiosInventario;
 import libreria.spring.LibreriaSpring.excepciones.AutorServiceException;
 import libreria.spring.LibreriaSpring.excepciones.EditorialServiceException;
 import libreria.spring.LibreriaSpring.excepciones.LibroServiceException;
+import libreria.spring.LibreriaSpring.proyecciones.FilaCatalogo;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
 import libreria.spring.LibreriaSpring.servicios.AutorService;
 import libreria.spring.LibreriaSpring.servicios.EditorialService;
+import libreria.spring.LibreriaSpring.servicios.ImportacionService;
+import libreria.spring.LibreriaSpring.servicios.ImportacionService.ResultadoImportacion;
 import libreria.spring.LibreriaSpring.servicios.LibroService;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
+import libreria.spring.LibreriaSpring.versiones.VersionesTablas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +30,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * Controlador de la Entidad Libro
@@ -28,6 +44,13 @@ import org.springframework.web.bind.annotation.RequestParam;
 @RequestMapping("/libros")
 public class LibroController {
 
+    //PAGINACION DEL LISTADO
+    private static final int TAMANIO_PAGINA = 20;
+    private static final Pageable PAGINA_INICIAL = PageRequest.of(0, TAMANIO_PAGINA, Sort.by("titulo"));
+
+    //CANTIDAD DE RESULTADOS DE LA BUSQUEDA DE TEXTO COMPLETO
+    private static final int RESULTADOS_BUSQUEDA = 50;
+
     //ATRIBUTOS - SERVICES
     @Autowired
     private LibroService libroService;
@@ -35,6 +58,16 @@ public class LibroController {
     private AutorService autorService;
     @Autowired
     private EditorialService editorialService;
+    @Autowired
+    private ImportacionService importacionService;
+
+    //ATRIBUTOS - EVENTOS
+    @Autowired
+    private CambiosInventario cambiosInventario;
+
+    //ATRIBUTOS - VERSIONES DE LAS TABLAS
+    @Autowired
+    private VersionesTablas versionesTablas;
 
     /**
      * Controlador que se encarga de renderizar el formulario para ingresar un nuevo Libro
@@ -47,8 +80,8 @@ public class LibroController {
 
         try {
             //Se traen y se inyectan el listado de Autores y Editoriales activos para poder seleccionarlos en el tag <select> de la vista
-            List<Autor> autores = autorService.listarActivos();
-            List<Editorial> editoriales = editorialService.listarActivos();
+            List<Opcion> autores = autorService.listarOpcionesActivas();
+            List<Opcion> editoriales = editorialService.listarOpcionesActivas();
             modelo.put("autores", autores);
             modelo.put("editoriales", editoriales);
         } catch (AutorServiceException | EditorialServiceException e) {
@@ -97,16 +130,42 @@ public class LibroController {
      * Controlador que devuelve la vista con el listado de todos los libros guardados en la base de datos
      *
      * @param modelo De la vista
+     * @param paginacion Página, tamaño (hasta 100) y orden solicitados por parámetros 'pagina', 'tamanio' y 'orden'
+     * @param solicitud Para comparar el ETag del navegador con la versión actual de las tablas del listado
      * @return la vista con el listado de todos los libros guardados en la base de datos
      */
     @GetMapping("/listado_libros")
-    public String listado_libros(ModelMap modelo) {
+    public String listado_libros(ModelMap modelo, @PageableDefault(size = TAMANIO_PAGINA, sort = "titulo") Pageable paginacion, ServletWebRequest solicitud) {
+
+        //Si el navegador ya tiene la versión actual del listado, respondemos 304 sin consultar la base de datos ni armar la vista
+        if (versionesTablas.sinCambios(solicitud, Tabla.LIBROS, Tabla.AUTORES, Tabla.EDITORIALES)) {
+            return null;
+        }
+        String vista = listado_libros(modelo, paginacion);
+
+        //Una página con error no debe quedar guardada en el navegador con el ETag de la versión actual
+        if (modelo.containsAttribute("error")) {
+            versionesTablas.noGuardar(solicitud);
+        }
+        return vista;
+    }
+
+    /**
+     * Arma la vista del listado sin verificar el ETag. También la usan los demás métodos de este Controlador para volver al listado
+     * después de una operación
+     *
+     * @param modelo De la vista
+     * @param paginacion Página, tamaño (hasta 100) y orden solicitados por parámetros 'pagina', 'tamanio' y 'orden'
+     * @return la vista con el listado de todos los libros guardados en la base de datos
+     */
+    private String listado_libros(ModelMap modelo, Pageable paginacion) {
 
         try {
-            //Traigo una lista con todos los Libros desde Service -> Repositorio
-            List<Libro> libros = libroService.listarTodos();
+            //Traigo una página del listado desde Service -> Repositorio, con una sola consulta a la base de datos
+            Slice<FilaCatalogo> pagina = libroService.listarCatalogo(paginacion);
             //Utilizo otro método de ModelMap para inyectar una key "libros" que contenga la lista
-            modelo.addAttribute("libros", libros);
+            modelo.addAttribute("libros", pagina.getContent());
+            modelo.addAttribute("pagina", pagina);
         } catch (LibroServiceException e) {
             modelo.put("error", "Hubo un problema: " + e.getMessage());
         }
@@ -129,8 +188,8 @@ public class LibroController {
 
         try {
             //Traemos el listado de Autores y Editoriales para inyectarlos en el tag <select> del HTML
-            List<Autor> autores = autorService.listarActivos();
-            List<Editorial> editoriales = editorialService.listarActivos();
+            List<Opcion> autores = autorService.listarOpcionesActivas();
+            List<Opcion> editoriales = editorialService.listarOpcionesActivas();
             modelo.put("autores", autores);
             modelo.put("editoriales", editoriales);
 
@@ -164,7 +223,7 @@ public class LibroController {
         try {
             libroService.modificarLibro(id, isbn, titulo, anio, ejemplares, idAutor, idEditorial);
             modelo.put("exito", "¡Libro modificado con éxito!");
-            return listado_libros(modelo);
+            return listado_libros(modelo, PAGINA_INICIAL);
         } catch (AutorServiceException | EditorialServiceException | LibroServiceException e) {
             modelo.put("error", "¡Algo salió mal! " + e.getMessage());
             return modificarLibro(id, modelo);
@@ -186,7 +245,7 @@ public class LibroController {
             return "redirect:/libros/listado_libros";
         } catch (LibroServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
-            return listado_libros(modelo);
+            return listado_libros(modelo, PAGINA_INICIAL);
         }
     }
 
@@ -205,7 +264,87 @@ public class LibroController {
             return "redirect:/libros/listado_libros";
         } catch (LibroServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
-            return listado_libros(modelo);
+            return listado_libros(modelo, PAGINA_INICIAL);
+        }
+    }
+
+    /**
+     * Controlador de la búsqueda de texto completo en el catálogo
+     *
+     * @param modelo De la vista
+     * @param q Palabras del título, Autor o Editorial, o un ISBN o año
+     * @return Vista con el formulario de búsqueda y los Libros encontrados, del más al menos relevante
+     */
+    @GetMapping("/busqueda")
+    public String busqueda(ModelMap modelo, @RequestParam(required = false) String q) {
+
+        if (q != null && !q.trim().isEmpty()) {
+            try {
+                modelo.addAttribute("resultados", libroService.buscarEnCatalogo(q, RESULTADOS_BUSQUEDA));
+            } catch (LibroServiceException e) {
+                modelo.put("error", "Hubo un problema: " + e.getMessage());
+            }
         }
+        modelo.addAttribute("q", q);
+        return "libros/busqueda_libros";
+    }
+
+    /**
+     * Controlador que renderiza el formulario para importar Libros de forma masiva desde un archivo
+     *
+     * @return Vista con el formulario de importación
+     */
+    @GetMapping("/importar")
+    public String importar() {
+        return "libros/importar_libros";
+    }
+
+    /**
+     * Controlador POST que recibe el archivo CSV o NDJSON e importa todos sus Libros por lotes
+     *
+     * @param modelo De la vista
+     * @param archivo Archivo con un Libro por línea
+     * @return El formulario de importación con la cantidad de Libros importados y el detalle de las filas rechazadas
+     */
+    @PostMapping("/importar")
+    public String guardar_importacion(ModelMap modelo, @RequestParam MultipartFile archivo) {
+
+        //El formato se deduce de la extensión del archivo
+        String nombre = archivo.getOriginalFilename() == null ? "" : archivo.getOriginalFilename().toLowerCase();
+        String formato = nombre.endsWith(".ndjson") || nombre.endsWith(".jsonl") ? "ndjson" : "csv";
+
+        try (InputStream contenido = archivo.getInputStream()) {
+            ResultadoImportacion resultado = importacionService.importarLibros(contenido, formato);
+            modelo.put("exito", "Se importaron " + resultado.getImportados() + " libros. Filas rechazadas: " + resultado.getRechazos().size() + ".");
+            modelo.put("rechazos", resultado.getRechazos());
+        } catch (LibroServiceException | IOException e) {
+            modelo.put("error", "¡Algo salió mal! " + e.getMessage());
+        }
+        return "libros/importar_libros";
+    }
+
+    /**
+     * Endpoint JSON para el autocompletado de los formularios: devuelve Libros activos por prefijo de ISBN o título
+     *
+     * @param q Texto ingresado hasta el momento
+     * @param limite Cantidad máxima de sugerencias (hasta 50)
+     * @return Lista de {id, nombre} en formato JSON
+     * @throws LibroServiceException Si hubo algún problema con la base de datos
+     */
+    @GetMapping("/buscar")
+    @ResponseBody
+    public List<Opcion> buscar(@RequestParam(defaultValue = "") String q, @RequestParam(defaultValue = "10") int limite) throws LibroServiceException {
+        return libroService.buscarOpciones(q, limite);
+    }
+
+    /**
+     * Suscripción (Server-Sent Events) a los cambios en los ejemplares de los Libros, que usa el listado para actualizar sus filas
+     * en vivo
+     *
+     * @return Conexión abierta por la que se envían los eventos 'existencias'
+     */
+    @GetMapping(path = "/existencias", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter existencias() {
+        return cambiosInventario.suscribir();
     }
 }
@@ -1,16 +1,19 @@
 package libreria.spring.LibreriaSpring.controladores;
 
+import java.io.IOException;
+import java.util.Date;
 import java.util.List;
-import libreria.spring.LibreriaSpring.entidades.Cliente;
-import libreria.spring.LibreriaSpring.entidades.Libro;
+import javax.servlet.http.HttpServletResponse;
 import libreria.spring.LibreriaSpring.entidades.Prestamo;
 import libreria.spring.LibreriaSpring.excepciones.ClienteServiceException;
 import libreria.spring.LibreriaSpring.excepciones.LibroServiceException;
 import libreria.spring.LibreriaSpring.excepciones.PrestamoServiceException;
-import libreria.spring.LibreriaSpring.servicios.ClienteService;
-import libreria.spring.LibreriaSpring.servicios.LibroService;
 import libreria.spring.LibreriaSpring.servicios.PrestamoService;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
+import libreria.spring.LibreriaSpring.versiones.VersionesTablas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +21,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
 
 /**
  * Controlador de la Clase Prestamo
@@ -28,13 +32,16 @@ import org.springframework.web.bind.annotation.RequestParam;
 @RequestMapping("/prestamos")
 public class PrestamoController {
 
+    //PAGINACION DEL LISTADO
+    private static final int TAMANIO_PAGINA = 20;
+
     //ATRIBUTOS SERVICES
     @Autowired
     private PrestamoService prestamoService;
+
+    //ATRIBUTOS - VERSIONES DE LAS TABLAS
     @Autowired
-    private ClienteService clienteService;
-    @Autowired
-    private LibroService libroService;
+    private VersionesTablas versionesTablas;
 
     /**
      * Controlador del formulario para efectuar un nuevo prestamo y persistirlo en la base de datos
@@ -44,15 +51,7 @@ public class PrestamoController {
      */
     @GetMapping("/nuevo_prestamo")
     public String nuevo_prestamo(ModelMap modelo) {
-        try {
-            //Traemos e inyectamos dos listados con los Libros y Clientes activos para settearlos en el nuevo prestamo
-            List<Cliente> clientes = clienteService.listarActivos();
-            List<Libro> libros = libroService.listarActivos();
-            modelo.put("clientes", clientes);
-            modelo.put("libros", libros);
-        } catch (ClienteServiceException | LibroServiceException e) {
-            modelo.put("error", "Hubo un problema: " + e.getMessage());
-        }
+        //Los Clientes y Libros no se inyectan: el formulario los sugiere a medida que se escribe (/clientes/buscar y /libros/buscar)
         return "prestamos/nuevo_prestamo";
     }
 
@@ -80,18 +79,82 @@ public class PrestamoController {
     }
 
     /**
-     * Controlador que devuelve la vista con el listado con todos los prestamos
+     * Controlador del formulario para prestarle varios Libros a un mismo Cliente de una sola vez
+     *
+     * @param modelo
+     * @return Formulario para ingresar un préstamo de varios libros
+     */
+    @GetMapping("/prestamo_multiple")
+    public String prestamo_multiple(ModelMap modelo) {
+        //Igual que en nuevo_prestamo, el Cliente y los Libros se eligen con el autocompletado del formulario
+        return "prestamos/prestamo_multiple";
+    }
+
+    /**
+     * Controlador POST que recibe un Cliente y varios Libros e intenta persistir todos los préstamos en una única transacción
+     *
+     * @param modelo
+     * @param idCliente Del Cliente que se lleva los libros
+     * @param idsLibros De los Libros a prestar
+     * @return formulario de préstamo múltiple con un mensaje de éxito o error inyectado
+     */
+    @PostMapping("/prestamo_multiple")
+    public String guardar_prestamo_multiple(ModelMap modelo, @RequestParam String idCliente, @RequestParam(required = false) List<String> idsLibros) {
+
+        try {
+            prestamoService.crearPrestamos(idCliente, idsLibros);
+            modelo.put("exito", "¡Se efectuaron " + idsLibros.size() + " prestamos!");
+
+        } catch (ClienteServiceException | LibroServiceException | PrestamoServiceException e) {
+            modelo.put("error", "¡Algo salió mal! " + e.getMessage());
+        }
+        return prestamo_multiple(modelo);
+    }
+
+    /**
+     * Controlador que devuelve la vista con el listado de prestamos, del más reciente al más antiguo. Cada página comienza después
+     * del último prestamo de la anterior (fecha e id), así que navegar hasta el final del registro no se vuelve más lento.
      *
      * @param modelo
-     * @return la vista con el listado con todos los prestamos
+     * @param desdeFecha Fecha del último prestamo de la página anterior (vacío para la primera página)
+     * @param desdeId Id del último prestamo de la página anterior (vacío para la primera página)
+     * @param tamanio Cantidad de prestamos por página (hasta 100)
+     * @param solicitud Para comparar el ETag del navegador con la versión actual de las tablas del listado
+     * @return la vista con el listado de prestamos
      */
     @GetMapping("/listado_prestamos")
-    public String listado_prestamos(ModelMap modelo) {
+    public String listado_prestamos(ModelMap modelo, @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date desdeFecha, @RequestParam(required = false) String desdeId, @RequestParam(defaultValue = "" + TAMANIO_PAGINA) int tamanio, ServletWebRequest solicitud) {
+
+        //Si el navegador ya tiene la versión actual del listado, respondemos 304 sin consultar la base de datos ni armar la vista
+        if (versionesTablas.sinCambios(solicitud, Tabla.PRESTAMOS, Tabla.LIBROS, Tabla.CLIENTES)) {
+            return null;
+        }
+        String vista = listado_prestamos(modelo, desdeFecha, desdeId, tamanio);
+
+        //Una página con error no debe quedar guardada en el navegador con el ETag de la versión actual
+        if (modelo.containsAttribute("error")) {
+            versionesTablas.noGuardar(solicitud);
+        }
+        return vista;
+    }
+
+    /**
+     * Arma la vista del listado sin verificar el ETag. También la usan los demás métodos de este Controlador para volver al listado
+     * después de una operación
+     *
+     * @param modelo
+     * @param desdeFecha Fecha del último prestamo de la página anterior (vacío para la primera página)
+     * @param desdeId Id del último prestamo de la página anterior (vacío para la primera página)
+     * @param tamanio Cantidad de prestamos por página (hasta 100)
+     * @return la vista con el listado de prestamos
+     */
+    private String listado_prestamos(ModelMap modelo, Date desdeFecha, String desdeId, int tamanio) {
 
         try {
-            //Inyección del listado con todos los Prestamos dentro del MOdelMap
-            List<Prestamo> prestamos = prestamoService.listarTodos();
-            modelo.addAttribute("prestamos", prestamos);
+            //Inyección de la página de Prestamos dentro del ModelMap
+            Slice<Prestamo> pagina = prestamoService.listarDesde(desdeFecha, desdeId, tamanio);
+            modelo.addAttribute("prestamos", pagina.getContent());
+            modelo.addAttribute("pagina", pagina);
         } catch (PrestamoServiceException e) {
             modelo.put("error", "Hubo un problema: " + e.getMessage());
         }
@@ -104,19 +167,12 @@ public class PrestamoController {
      * @param id De la instancia a modificar
      * @param modelo
      * @return Formulario para modificar los atributos de una instancia de Prestamo
-     * @throws ClienteServiceException Si hay algún problema trayendo a las instancias
-     * @throws LibroServiceException Si hay algún problema trayendo a las instancias
      */
     @GetMapping("/modificar/{id}")
-    public String modificarPrestamo(@PathVariable String id, ModelMap modelo) throws ClienteServiceException, LibroServiceException {
+    public String modificarPrestamo(@PathVariable String id, ModelMap modelo) {
 
         try {
-            //Se lista y se inyectan los Clientes y Libros activos para ser seleccionados en el tag <select> del HTML,
-            //junto con el Objeto Prestamo a modificar para presetear los valores actuales de este
-            List<Cliente> clientes = clienteService.listarActivos();
-            List<Libro> libros = libroService.listarActivos();
-            modelo.put("clientes", clientes);
-            modelo.put("libros", libros);
+            //Se inyecta el Objeto Prestamo a modificar para presetear el Cliente y el Libro actuales; los nuevos se eligen con el autocompletado
             modelo.put("prestamo", prestamoService.buscarPorId(id));
         } catch (PrestamoServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
@@ -132,16 +188,14 @@ public class PrestamoController {
      * @param idLibro Atributos actualizados de la instancia Prestamo
      * @param idCliente Atributos actualizados de la instancia Prestamo
      * @return Si todo sale bien, el listado con los prestamos actualizados. Sino, el formulario de modificación con un mensaje de error inyectado
-     * @throws ClienteServiceException Si surge algun problema buscando a la entidad
-     * @throws LibroServiceException Si surge algun problema buscando a la entidad
      */
     @PostMapping("/modificar/{id}")
-    public String guardarModificacion(@PathVariable String id, ModelMap modelo, @RequestParam String idLibro, @RequestParam String idCliente) throws ClienteServiceException, LibroServiceException {
+    public String guardarModificacion(@PathVariable String id, ModelMap modelo, @RequestParam String idLibro, @RequestParam String idCliente) {
 
         try {
             prestamoService.modificarPrestamo(id, idLibro, idCliente);
             modelo.put("exito", "¡Prestamo actualizado!");
-            return listado_prestamos(modelo);
+            return listado_prestamos(modelo, null, null, TAMANIO_PAGINA);
         } catch (ClienteServiceException | LibroServiceException | PrestamoServiceException e) {
             modelo.put("error", "¡Algo salió mal! " + e.getMessage());
             return modificarPrestamo(id, modelo);
@@ -163,8 +217,27 @@ public class PrestamoController {
             return "redirect:/prestamos/listado_prestamos";
         } catch (PrestamoServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
-            return listado_prestamos(modelo);
+            return listado_prestamos(modelo, null, null, TAMANIO_PAGINA);
+        }
+    }
+
+    /**
+     * Controlador POST para devolver de una sola vez todos los prestamos seleccionados en el listado
+     *
+     * @param ids De los prestamos a devolver
+     * @param modelo
+     * @return El listado de prestamos con el resultado de cada devolución inyectado
+     */
+    @PostMapping("/devolucion_masiva")
+    public String devolucionMasiva(@RequestParam(required = false) List<String> ids, ModelMap modelo) {
+
+        try {
+            modelo.put("resultados", prestamoService.devolverPrestamos(ids));
+            modelo.put("exito", "¡Devolución procesada!");
+        } catch (PrestamoServiceException e) {
+            modelo.put("error", "Algo salió mal: " + e.getMessage());
         }
+        return listado_prestamos(modelo, null, null, TAMANIO_PAGINA);
     }
 
     /**
@@ -182,7 +255,40 @@ public class PrestamoController {
             return "redirect:/prestamos/listado_prestamos";
         } catch (PrestamoServiceException e) {
             modelo.put("error", "Algo salió mal: " + e.getMessage());
-            return listado_prestamos(modelo);
+            return listado_prestamos(modelo, null, null, TAMANIO_PAGINA);
+        }
+    }
+
+    /**
+     * Controlador GET para descargar el historial completo de prestamos. El archivo se escribe directamente en la respuesta a medida
+     * que se leen los prestamos, sin armar antes un listado en memoria
+     *
+     * @param formato csv (por defecto) o ndjson
+     * @param respuesta Donde se escribe el archivo
+     * @throws IOException Si se cortó la conexión durante la descarga
+     */
+    @GetMapping("/exportar")
+    public void exportar(@RequestParam(defaultValue = "csv") String formato, HttpServletResponse respuesta) throws IOException {
+
+        //La extensión del archivo sale de una lista fija y no del parámetro, que llega tal cual lo mandó el cliente
+        String extension;
+        if ("csv".equals(formato)) {
+            extension = "csv";
+            respuesta.setContentType("text/csv;charset=UTF-8");
+        } else if ("ndjson".equals(formato)) {
+            extension = "ndjson";
+            respuesta.setContentType("application/x-ndjson;charset=UTF-8");
+        } else {
+            respuesta.sendError(HttpServletResponse.SC_BAD_REQUEST, "El formato de exportación debe ser csv o ndjson.");
+            return;
+        }
+        respuesta.setHeader("Content-Disposition", "attachment; filename=\"prestamos." + extension + "\"");
+
+        try {
+            prestamoService.exportarHistorial(extension, respuesta.getOutputStream());
+        } catch (PrestamoServiceException e) {
+            respuesta.reset();
+            respuesta.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
         }
     }
 
@@ -1,11 +1,17 @@
 package libreria.spring.LibreriaSpring.entidades;
 
 import java.util.List;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 
 /**
  * Un Cliente posee una serie de atributos: un id único e irrepetible, un número de documento (DNI), su nombre, apellido, un número
@@ -14,12 +20,18 @@ import org.hibernate.annotations.GenericGenerator;
  * @author Matias Luca Soto
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cliente_dni", columnNames = "dni"),
+        indexes = {
+            @Index(name = "idx_cliente_alta", columnList = "alta, apellido"),
+            @Index(name = "idx_cliente_nombre", columnList = "alta, nombre")})
 public class Cliente {
 
     //ATRIBUTOS
     @Id
-    @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GeneratedValue(generator = "uuid7")
+    @GenericGenerator(name = "uuid7", strategy = "libreria.spring.LibreriaSpring.entidades.GeneradorUuidV7")
+    @Type(type = "libreria.spring.LibreriaSpring.entidades.TipoIdBinario")
+    @Column(length = 16)
     private String id;
 
     private Long dni;
@@ -27,6 +39,11 @@ public class Cliente {
     private String apellido;
     private String telefono;
     private Boolean alta;
+
+    //VERSION PARA BLOQUEO OPTIMISTA
+    @Version
+    @Column(nullable = false)
+    private Long version;
     
     //RELACIONES
     @OneToMany(mappedBy = "cliente")
@@ -150,4 +167,18 @@ public class Cliente {
     public void setCantidadPrestamos(Integer cantidadPrestamos) {
         this.cantidadPrestamos = cantidadPrestamos;
     }
+
+    /**
+     * @return the version
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param version the version to set
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -1,11 +1,19 @@
 package libreria.spring.LibreriaSpring.entidades;
 
 import java.util.List;
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 
 /**
  * Una editorial posee un único atributo que es su nombre (además de su id único y su boolean alta que determina si está disponible o no). Está ligada a una lista de libros, siendo que una editorial puede pertenecer a varios libros (relación @OneToMany)
@@ -13,12 +21,18 @@ import org.hibernate.annotations.GenericGenerator;
  * @author Matias Luca Soto
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "editorial")
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_editorial_nombre", columnNames = "nombre"),
+        indexes = @Index(name = "idx_editorial_alta", columnList = "alta, nombre"))
 public class Editorial {
 
     //ATRIBUTOS
     @Id
-    @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GeneratedValue(generator = "uuid7")
+    @GenericGenerator(name = "uuid7", strategy = "libreria.spring.LibreriaSpring.entidades.GeneradorUuidV7")
+    @Type(type = "libreria.spring.LibreriaSpring.entidades.TipoIdBinario")
+    @Column(length = 16)
     private String id;
 
     private String nombre;
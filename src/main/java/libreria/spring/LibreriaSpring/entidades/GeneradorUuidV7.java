@@ -0,0 +1,55 @@
+package libreria.spring.LibreriaSpring.entidades;
+
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Generador de ids UUID versión 7 (RFC 9562) para las entidades. A diferencia de los UUID aleatorios (versión 4, estrategia 'uuid2'),
+ * los primeros 48 bits son el momento de creación en milisegundos, así que cada id nuevo es mayor que los anteriores y InnoDB lo
+ * agrega al final del índice clúster en lugar de insertarlo en una página al azar (evitando divisiones de páginas y fragmentación).
+ *
+ * Los 12 bits siguientes funcionan como contador dentro de un mismo milisegundo, de modo que el orden se mantiene aunque se generen
+ * muchos ids a la vez (si el contador se agota, se sigue con el milisegundo siguiente). Los últimos 62 bits son aleatorios, para
+ * que los ids sigan sin poder adivinarse. En Java se usa el formato de texto de siempre (36 caracteres), cuyo orden alfabético
+ * coincide con el orden de creación, y en la base de datos se guardan sus 16 bytes (ver TipoIdBinario).
+ *
+ * @author Matias Luca Soto
+ */
+public class GeneradorUuidV7 implements IdentifierGenerator {
+
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    //ULTIMO VALOR ENTREGADO: MILISEGUNDOS << 12 | CONTADOR
+    private static final AtomicLong ULTIMO = new AtomicLong();
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor sesion, Object entidad) {
+        return generar();
+    }
+
+    /**
+     * @return Un nuevo UUID versión 7, mayor que todos los generados antes por esta aplicación
+     */
+    public static String generar() {
+
+        //Momento y contador: el milisegundo actual con el contador en 0, o el valor anterior + 1 si ya se usó ese milisegundo
+        long anterior;
+        long siguiente;
+        do {
+            anterior = ULTIMO.get();
+            siguiente = Math.max(System.currentTimeMillis() << 12, anterior + 1);
+        } while (!ULTIMO.compareAndSet(anterior, siguiente));
+
+        //48 bits de milisegundos, 4 bits de versión (7) y 12 bits de contador
+        long masSignificativos = ((siguiente >>> 12) << 16) | 0x7000L | (siguiente & 0xFFFL);
+
+        //2 bits de variante (10) y 62 bits aleatorios
+        long menosSignificativos = (ALEATORIO.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        return new UUID(masSignificativos, menosSignificativos).toString();
+    }
+}
@@ -1,25 +1,47 @@
 package libreria.spring.LibreriaSpring.entidades;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 
 /**
  * Un Libro tiene una serie de atributos principales: un id único para la base de datos, un número de ISBN, un título, el año de publicación,
  * una cantidad de ejemplares totales, prestados y restantes, un booleano para determinar si están disponibles o no y dos relaciones:
  * una relación con un Autor (@ManyToOne) y otra relación con una editorial (@ManyToOne), donde la foreign key de ambas relaciones
  * se mapea desde esta entidad en la base de datos a razón de evitar la creación de una tabla intermedia.
+ *
+ * Ambas relaciones se cargan de forma perezosa: cada consulta que necesita al Autor o a la Editorial los pide con el grafo
+ * "Libro.autorYEditorial" en el repositorio, y las demás no los traen.
  * @author Matias Luca Soto
  */
 @Entity
+@NamedEntityGraph(name = "Libro.autorYEditorial", attributeNodes = {@NamedAttributeNode("autor"), @NamedAttributeNode("editorial")})
+@Table(uniqueConstraints = {
+    @UniqueConstraint(name = "uk_libro_isbn", columnNames = "isbn"),
+    @UniqueConstraint(name = "uk_libro_titulo", columnNames = "titulo")},
+        indexes = {
+            @Index(name = "idx_libro_alta", columnList = "alta, titulo"),
+            @Index(name = "idx_libro_autor", columnList = "autor_id"),
+            @Index(name = "idx_libro_editorial", columnList = "editorial_id")})
 public class Libro {
 
     //ATRIBUTOS
     @Id
-    @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GeneratedValue(generator = "uuid7")
+    @GenericGenerator(name = "uuid7", strategy = "libreria.spring.LibreriaSpring.entidades.GeneradorUuidV7")
+    @Type(type = "libreria.spring.LibreriaSpring.entidades.TipoIdBinario")
+    @Column(length = 16)
     private String id;
 
     private Long isbn;
@@ -30,10 +52,15 @@ public class Libro {
     private Integer ejemplaresRestantes;
     private Boolean alta;
 
+    //VERSION PARA BLOQUEO OPTIMISTA
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     //RELACIONES
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Autor autor;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Editorial editorial;
 
     //GETTERS AND SETTERS
@@ -116,4 +143,18 @@ public class Libro {
     public void setEditorial(Editorial editorial) {
         this.editorial = editorial;
     }
+
+    /**
+     * @return the version
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param version the version to set
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
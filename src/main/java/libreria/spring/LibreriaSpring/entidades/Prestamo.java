@@ -1,29 +1,46 @@
 package libreria.spring.LibreriaSpring.entidades;
 
 import java.util.Date;
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
-import javax.persistence.OneToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Version;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 
 /**
  * Un Préstamo ocurre cuando se le presta un Libro de la Libreria a un Cliente específico. Cuando esto ocurre, el préstamo se registra
  * con un código único e irrepetible (id), una fecha de efectuado el préstamo y otra fecha de devolución (que en principio estará como null),
- * además de un boolean para dar de alta/baja este préstamo y dos relacones: una de @OneToOne con el Libro que se ha prestado, y otra
- * de @ManyToOne con un Cliente que será el que solicite el préstamo.
+ * además de un boolean para dar de alta/baja este préstamo y dos relacones: una de @ManyToOne con el Libro que se ha prestado (un mismo
+ * Libro puede tener varios ejemplares prestados a la vez), y otra de @ManyToOne con un Cliente que será el que solicite el préstamo.
+ *
+ * Ambas relaciones se cargan de forma perezosa: cada consulta que necesita al Libro o al Cliente los pide con el grafo
+ * "Prestamo.libroYCliente" en el repositorio, y las demás no los traen.
  * @author Matias Luca Soto
  */
 @Entity
+@NamedEntityGraph(name = "Prestamo.libroYCliente", attributeNodes = {@NamedAttributeNode("libro"), @NamedAttributeNode("cliente")})
+@Table(indexes = {
+    @Index(name = "idx_prestamo_fecha_id", columnList = "fechaPrestamo, id"),
+    @Index(name = "idx_prestamo_cliente", columnList = "cliente_id, alta"),
+    @Index(name = "idx_prestamo_libro", columnList = "libro_id, alta")})
 public class Prestamo {
 
     //ATRIBUTOS
     @Id
-    @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GeneratedValue(generator = "uuid7")
+    @GenericGenerator(name = "uuid7", strategy = "libreria.spring.LibreriaSpring.entidades.GeneradorUuidV7")
+    @Type(type = "libreria.spring.LibreriaSpring.entidades.TipoIdBinario")
+    @Column(length = 16)
     private String id;
 
     //FECHAS DE PRESTAMO Y DEVOLUCION
@@ -34,10 +51,15 @@ public class Prestamo {
 
     private Boolean alta;
 
+    //VERSION PARA BLOQUEO OPTIMISTA
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     //RELACIONES
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Libro libro;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Cliente cliente;
 
     //GETTERS N' SETTERS
@@ -125,4 +147,18 @@ public class Prestamo {
         this.cliente = cliente;
     }
 
+    /**
+     * @return the version
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param version the version to set
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
 }
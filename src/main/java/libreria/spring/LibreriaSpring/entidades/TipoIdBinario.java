@@ -0,0 +1,111 @@
+package libreria.spring.LibreriaSpring.entidades;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+import java.util.UUID;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+
+/**
+ * Tipo de Hibernate para los ids de las entidades: en Java siguen siendo el texto de siempre (un UUID de 36 caracteres, que es lo
+ * que usan las URLs, los formularios y los índices de búsqueda), pero en la base de datos se guardan como BINARY(16). Así la clave
+ * primaria, que InnoDB repite en cada índice secundario, y cada clave foránea ocupan 16 bytes en lugar de 37.
+ *
+ * Como los UUID versión 7 empiezan por el momento de creación (ver GeneradorUuidV7), el orden de los bytes coincide con el del
+ * texto, y las consultas que ordenan o comparan por id siguen dando el mismo resultado. Un id que no tiene formato de UUID (por
+ * ejemplo, uno escrito a mano en una URL) se compara como un valor vacío, que no coincide con ninguna fila.
+ *
+ * @author Matias Luca Soto
+ */
+public class TipoIdBinario implements UserType, Serializable {
+
+    private static final byte[] INEXISTENTE = new byte[0];
+
+    @Override
+    public int[] sqlTypes() {
+        return new int[]{Types.BINARY};
+    }
+
+    @Override
+    public Class<?> returnedClass() {
+        return String.class;
+    }
+
+    @Override
+    public boolean equals(Object x, Object y) {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(Object x) {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public Object nullSafeGet(ResultSet rs, String[] names, SharedSessionContractImplementor sesion, Object owner) throws SQLException {
+        byte[] bytes = rs.getBytes(names[0]);
+        return bytes == null ? null : aTexto(bytes);
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, Object value, int index, SharedSessionContractImplementor sesion) throws SQLException {
+        if (value == null) {
+            st.setNull(index, Types.BINARY);
+        } else {
+            st.setBytes(index, aBytes((String) value));
+        }
+    }
+
+    @Override
+    public Object deepCopy(Object value) {
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(Object value) {
+        return (Serializable) value;
+    }
+
+    @Override
+    public Object assemble(Serializable cached, Object owner) {
+        return cached;
+    }
+
+    @Override
+    public Object replace(Object original, Object target, Object owner) {
+        return original;
+    }
+
+    /**
+     * @param id En su forma de texto
+     * @return Los 16 bytes del UUID, o un arreglo vacío si el texto no es un UUID
+     */
+    static byte[] aBytes(String id) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return INEXISTENTE;
+        }
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    /**
+     * @param bytes Los 16 bytes del UUID
+     * @return El id en su forma de texto
+     */
+    static String aTexto(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+}
@@ -0,0 +1,259 @@
+package libreria.spring.LibreriaSpring.eventos;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import libreria.spring.LibreriaSpring.repositorios.LibroRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Difusión en vivo (Server-Sent Events) de los cambios en los ejemplares de los Libros, para que los listados abiertos corrijan sus
+ * filas sin recargar la página.
+ *
+ * Los Services avisan qué Libros modificaron y, una vez confirmada la transacción, esos ids se acumulan. Un único hilo junta los
+ * cambios de cada intervalo, trae el estado actual de esos Libros con una sola consulta y arma un único evento JSON para todos los
+ * suscriptores. Cada suscriptor tiene su propia cola acotada y un pequeño grupo de hilos se encarga de escribir en las conexiones:
+ * ninguna conexión abierta ocupa un hilo de Tomcat mientras espera, y si un navegador no lee lo suficientemente rápido como para que
+ * su cola se llene, se lo desconecta (EventSource vuelve a conectarse solo). Como cada evento trae el estado completo de los Libros y
+ * no una diferencia, perderse un evento nunca deja una fila mal: el próximo cambio de ese Libro la corrige.
+ *
+ * @author Matias Luca Soto
+ */
+@Component
+public class CambiosInventario {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CambiosInventario.class);
+
+    //NOMBRE DEL EVENTO QUE ESCUCHA EL LISTADO DE LIBROS
+    private static final String EVENTO = "existencias";
+
+    //MARCA EN LA COLA DE UN SUSCRIPTOR PARA ENVIAR UN COMENTARIO DE LATIDO EN LUGAR DE UN EVENTO
+    private static final String LATIDO = "";
+
+    //CANTIDAD MAXIMA DE IDS POR CONSULTA
+    private static final int LOTE_CONSULTA = 500;
+
+    //ATRIBUTOS - CONFIGURACION
+    @Value("${libreria.inventario.capacidad-cola:32}")
+    private int capacidadCola;
+    @Value("${libreria.inventario.intervalo-ms:250}")
+    private long intervalo;
+    @Value("${libreria.inventario.latido-ms:30000}")
+    private long latido;
+    @Value("${libreria.inventario.hilos-envio:4}")
+    private int hilosEnvio;
+    @Value("${libreria.inventario.timeout-ms:1800000}")
+    private long timeout;
+
+    //ATRIBUTOS - DEPENDENCIAS
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry registro;
+
+    //ATRIBUTOS - ESTADO
+    private final Set<String> pendientes = ConcurrentHashMap.newKeySet();
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService publicador;
+    private ExecutorService envios;
+    private Counter descartados;
+
+    @PostConstruct
+    public void iniciar() {
+        publicador = Executors.newSingleThreadScheduledExecutor(hilos("inventario-publicador"));
+        publicador.scheduleWithFixedDelay(this::publicar, intervalo, intervalo, TimeUnit.MILLISECONDS);
+        publicador.scheduleWithFixedDelay(this::latir, latido, latido, TimeUnit.MILLISECONDS);
+        envios = Executors.newFixedThreadPool(hilosEnvio, hilos("inventario-envio"));
+        registro.gaugeCollectionSize("libreria.inventario.suscriptores", Tags.empty(), suscriptores);
+        descartados = registro.counter("libreria.inventario.suscriptores.descartados");
+    }
+
+    @PreDestroy
+    public void detener() {
+        publicador.shutdownNow();
+        envios.shutdownNow();
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.emisor.complete();
+        }
+        suscriptores.clear();
+    }
+
+    /**
+     * Abre una nueva suscripción a los cambios. La conexión se cierra sola al cumplirse el timeout configurado, y el navegador la
+     * vuelve a abrir
+     *
+     * @return Emisor que Spring MVC mantiene abierto de forma asincrónica
+     */
+    public SseEmitter suscribir() {
+        SseEmitter emisor = new SseEmitter(timeout);
+        Suscriptor suscriptor = new Suscriptor(emisor);
+        emisor.onCompletion(() -> suscriptores.remove(suscriptor));
+        emisor.onTimeout(emisor::complete);
+        emisor.onError(error -> suscriptores.remove(suscriptor));
+        suscriptores.add(suscriptor);
+        return emisor;
+    }
+
+    /**
+     * Avisa que cambiaron los ejemplares de un Libro (ver {@link #librosModificados(Collection)})
+     *
+     * @param id Del Libro modificado
+     */
+    public void libroModificado(String id) {
+        librosModificados(Collections.singletonList(id));
+    }
+
+    /**
+     * Avisa que cambiaron los ejemplares de los Libros indicados. Dentro de una transacción, el aviso se registra recién al
+     * confirmarse, para no anunciar un cambio que termine deshaciéndose
+     *
+     * @param ids De los Libros modificados
+     */
+    public void librosModificados(Collection<String> ids) {
+        List<String> copia = new ArrayList<>(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pendientes.addAll(copia);
+                }
+            });
+        } else {
+            pendientes.addAll(copia);
+        }
+    }
+
+    /**
+     * Junta los Libros modificados desde la última vez, trae su estado actual y lo encola para cada suscriptor
+     */
+    private void publicar() {
+        try {
+            if (pendientes.isEmpty()) {
+                return;
+            }
+            List<String> ids = new ArrayList<>(pendientes);
+            pendientes.removeAll(ids);
+            if (suscriptores.isEmpty()) {
+                return;
+            }
+            for (int desde = 0; desde < ids.size(); desde += LOTE_CONSULTA) {
+                List<String> lote = ids.subList(desde, Math.min(ids.size(), desde + LOTE_CONSULTA));
+                String evento = objectMapper.writeValueAsString(libroRepositorio.buscarExistencias(lote));
+                for (Suscriptor suscriptor : suscriptores) {
+                    suscriptor.encolar(evento);
+                }
+            }
+        } catch (Exception e) {
+            //Un error no debe detener al publicador: los próximos cambios se publican igual
+            LOG.warn("No se pudieron publicar los cambios de inventario", e);
+        }
+    }
+
+    /**
+     * Envía un comentario a cada suscriptor para que los proxies no cierren la conexión por inactividad y para detectar las que ya
+     * se cortaron
+     */
+    private void latir() {
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.encolar(LATIDO);
+        }
+    }
+
+    private ThreadFactory hilos(String nombre) {
+        AtomicInteger numero = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, nombre + "-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    /**
+     * Una conexión abierta, con su cola acotada de eventos pendientes de enviar
+     */
+    private class Suscriptor {
+
+        private final SseEmitter emisor;
+        private final BlockingQueue<String> cola = new ArrayBlockingQueue<>(capacidadCola);
+        private final AtomicBoolean enviando = new AtomicBoolean();
+
+        private Suscriptor(SseEmitter emisor) {
+            this.emisor = emisor;
+        }
+
+        /**
+         * Agrega el evento a la cola y, si no hay un envío en curso para esta conexión, programa uno. Si la cola está llena, el
+         * navegador no está leyendo: se lo desconecta
+         */
+        private void encolar(String evento) {
+            if (!cola.offer(evento)) {
+                descartar();
+                return;
+            }
+            if (enviando.compareAndSet(false, true)) {
+                envios.execute(this::enviar);
+            }
+        }
+
+        private void enviar() {
+            try {
+                String evento;
+                while ((evento = cola.poll()) != null) {
+                    if (LATIDO.equals(evento)) {
+                        emisor.send(SseEmitter.event().comment("latido"));
+                    } else {
+                        emisor.send(SseEmitter.event().name(EVENTO).data(evento));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                //La conexión se cerró del lado del navegador o ya había sido completada
+                suscriptores.remove(this);
+                cola.clear();
+                return;
+            } finally {
+                enviando.set(false);
+            }
+
+            //Pudo haber llegado un evento entre el último poll y la liberación de 'enviando'
+            if (!cola.isEmpty() && enviando.compareAndSet(false, true)) {
+                envios.execute(this::enviar);
+            }
+        }
+
+        private void descartar() {
+            if (suscriptores.remove(this)) {
+                descartados.increment();
+                cola.clear();
+                emisor.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package libreria.spring.LibreriaSpring.inspeccion;
+
+import java.sql.ResultSet;
+import java.util.List;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Escucha del proxy del DataSource (datasource-proxy) que anota cada sentencia ejecutada y cada fila leída en el RegistroConsultas
+ * del hilo actual. Si el hilo no tiene un registro iniciado no hace nada, así que su costo fuera de las solicitudes es una lectura
+ * de un ThreadLocal.
+ *
+ * @author Matias Luca Soto
+ */
+public class InspectorConsultas implements QueryExecutionListener, MethodExecutionListener {
+
+    @Override
+    public void beforeQuery(ExecutionInfo ejecucion, List<QueryInfo> consultas) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo ejecucion, List<QueryInfo> consultas) {
+        RegistroConsultas registro = RegistroConsultas.actual();
+        if (registro == null || consultas.isEmpty()) {
+            return;
+        }
+
+        //Un lote JDBC es una sola ida a la base de datos aunque lleve muchas filas, así que cuenta como una sentencia
+        String sql = consultas.get(0).getQuery().trim();
+        boolean esSelect = !ejecucion.isBatch() && consultas.size() == 1 && sql.regionMatches(true, 0, "select", 0, 6);
+        registro.sentenciaEjecutada(sql, esSelect, ejecucion.getElapsedTime());
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext contexto) {
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext contexto) {
+        if (contexto.getTarget() instanceof ResultSet && Boolean.TRUE.equals(contexto.getResult())
+                && contexto.getMethod().getName().equals("next")) {
+            RegistroConsultas registro = RegistroConsultas.actual();
+            if (registro != null) {
+                registro.filaLeida();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package libreria.spring.LibreriaSpring.inspeccion;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Registra las sentencias SQL de cada solicitud HTTP. Al terminar la solicitud, si superó la cantidad de sentencias o el tiempo en
+ * la base de datos configurados, deja una advertencia con el mapeo del controlador que la atendió (por ejemplo
+ * /prestamos/listado_prestamos), y avisa de cada SELECT idéntico que se haya repetido demasiadas veces, porque casi siempre es un
+ * N+1. Con el nivel DEBUG se registra el resumen de todas las solicitudes.
+ *
+ * La cantidad de sentencias por solicitud también se publica como la métrica libreria.solicitudes.sentencias, por mapeo.
+ *
+ * @author Matias Luca Soto
+ */
+@Component
+public class InterceptorConsultas implements AsyncHandlerInterceptor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InterceptorConsultas.class);
+
+    //ATRIBUTOS - CONFIGURACION
+    @Value("${libreria.consultas.umbral-sentencias:20}")
+    private int umbralSentencias;
+    @Value("${libreria.consultas.umbral-ms:200}")
+    private long umbralMilisegundos;
+    @Value("${libreria.consultas.umbral-repeticiones:3}")
+    private int umbralRepeticiones;
+
+    //ATRIBUTOS - DEPENDENCIAS
+    @Autowired
+    private MeterRegistry registro;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+        //Los reenvíos internos (por ejemplo a la página de error) siguen contando dentro de la solicitud original
+        if (request.getDispatcherType() == DispatcherType.REQUEST) {
+            RegistroConsultas.iniciar();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getDispatcherType() == DispatcherType.REQUEST) {
+            RegistroConsultas consultas = RegistroConsultas.terminar();
+            if (consultas != null) {
+                informar(request, consultas);
+            }
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+        //Una solicitud asincrónica (como la suscripción a los cambios de inventario) libera este hilo sin pasar por afterCompletion
+        RegistroConsultas consultas = RegistroConsultas.terminar();
+        if (consultas != null) {
+            informar(request, consultas);
+        }
+    }
+
+    private void informar(HttpServletRequest request, RegistroConsultas consultas) {
+        String mapeo = mapeo(request);
+
+        DistributionSummary.builder("libreria.solicitudes.sentencias")
+                .description("Sentencias SQL ejecutadas por solicitud")
+                .tag("uri", mapeo)
+                .register(registro)
+                .record(consultas.getSentencias());
+
+        if (consultas.getSentencias() > umbralSentencias || consultas.getMilisegundos() > umbralMilisegundos) {
+            LOG.warn("{} {}: {}", request.getMethod(), mapeo, consultas);
+        } else {
+            LOG.debug("{} {}: {}", request.getMethod(), mapeo, consultas);
+        }
+
+        for (Map.Entry<String, Integer> repetida : consultas.getRepetidas(umbralRepeticiones).entrySet()) {
+            LOG.warn("Posible N+1 en {} {}: la misma consulta se ejecutó {} veces: {}", request.getMethod(), mapeo,
+                    repetida.getValue(), repetida.getKey());
+        }
+    }
+
+    /**
+     * @return El patrón del mapeo del controlador que atendió la solicitud, o 'SIN_MAPEO' si no llegó a ningún controlador (así la
+     * métrica no tiene una etiqueta por cada URL inexistente)
+     */
+    private static String mapeo(HttpServletRequest request) {
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return patron != null ? patron.toString() : "SIN_MAPEO";
+    }
+}
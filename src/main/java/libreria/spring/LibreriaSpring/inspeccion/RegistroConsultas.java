@@ -0,0 +1,117 @@
+package libreria.spring.LibreriaSpring.inspeccion;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lo que una unidad de trabajo (una solicitud HTTP o un bloque de un test) le pidió a la base de datos: cantidad de sentencias
+ * ejecutadas, filas leídas, tiempo total en la base de datos y cuántas veces se repitió cada SELECT. Un mismo SELECT ejecutado muchas
+ * veces con distintos parámetros es la huella típica de un N+1: una relación resuelta fila por fila en lugar de con un JOIN.
+ *
+ * El registro es del hilo que lo inicia: InspectorConsultas anota en él cada sentencia que ese hilo ejecuta, y las sentencias de
+ * otros hilos (o sin un registro iniciado) no se cuentan.
+ *
+ * @author Matias Luca Soto
+ */
+public final class RegistroConsultas {
+
+    private static final ThreadLocal<RegistroConsultas> ACTUAL = new ThreadLocal<>();
+
+    //ATRIBUTOS
+    private int sentencias;
+    private long filas;
+    private long milisegundos;
+    private final Map<String, Integer> selects = new LinkedHashMap<>();
+
+    /**
+     * Inicia un registro nuevo para el hilo actual, reemplazando al que hubiera
+     *
+     * @return El registro iniciado
+     */
+    public static RegistroConsultas iniciar() {
+        RegistroConsultas registro = new RegistroConsultas();
+        ACTUAL.set(registro);
+        return registro;
+    }
+
+    /**
+     * @return El registro del hilo actual, o null si no hay ninguno iniciado
+     */
+    public static RegistroConsultas actual() {
+        return ACTUAL.get();
+    }
+
+    /**
+     * Deja de registrar las sentencias del hilo actual
+     *
+     * @return El registro que estaba iniciado, o null si no había ninguno
+     */
+    public static RegistroConsultas terminar() {
+        RegistroConsultas registro = ACTUAL.get();
+        ACTUAL.remove();
+        return registro;
+    }
+
+    void sentenciaEjecutada(String sql, boolean esSelect, long milisegundos) {
+        this.sentencias++;
+        this.milisegundos += milisegundos;
+        if (esSelect) {
+            selects.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void filaLeida() {
+        filas++;
+    }
+
+    /**
+     * Vuelve los contadores a cero
+     */
+    public void reiniciar() {
+        sentencias = 0;
+        filas = 0;
+        milisegundos = 0;
+        selects.clear();
+    }
+
+    /**
+     * @return Cantidad de sentencias ejecutadas (un lote JDBC cuenta como una)
+     */
+    public int getSentencias() {
+        return sentencias;
+    }
+
+    /**
+     * @return Cantidad de filas leídas de todos los resultados
+     */
+    public long getFilas() {
+        return filas;
+    }
+
+    /**
+     * @return Tiempo total de ejecución de las sentencias en milisegundos
+     */
+    public long getMilisegundos() {
+        return milisegundos;
+    }
+
+    /**
+     * @param minimo Cantidad de ejecuciones a partir de la cual un SELECT se considera repetido
+     * @return Cada SELECT ejecutado al menos esa cantidad de veces, con su cantidad de ejecuciones
+     */
+    public Map<String, Integer> getRepetidas(int minimo) {
+        Map<String, Integer> repetidas = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> select : selects.entrySet()) {
+            if (select.getValue() >= minimo) {
+                repetidas.put(select.getKey(), select.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(repetidas);
+    }
+
+    @Override
+    public String toString() {
+        return sentencias + " sentencias, " + filas + " filas, " + milisegundos + " ms";
+    }
+}
@@ -0,0 +1,39 @@
+package libreria.spring.LibreriaSpring.proyecciones;
+
+/**
+ * Estado actual de los ejemplares de un Libro, tal como se envía a los listados abiertos cuando cambia
+ *
+ * @author Matias Luca Soto
+ */
+public class Existencias {
+
+    //ATRIBUTOS
+    private final String id;
+    private final Integer ejemplares;
+    private final Integer prestados;
+    private final Integer restantes;
+
+    public Existencias(String id, Integer ejemplares, Integer prestados, Integer restantes) {
+        this.id = id;
+        this.ejemplares = ejemplares;
+        this.prestados = prestados;
+        this.restantes = restantes;
+    }
+
+    //GETTERS
+    public String getId() {
+        return id;
+    }
+
+    public Integer getEjemplares() {
+        return ejemplares;
+    }
+
+    public Integer getPrestados() {
+        return prestados;
+    }
+
+    public Integer getRestantes() {
+        return restantes;
+    }
+}
@@ -0,0 +1,83 @@
+package libreria.spring.LibreriaSpring.proyecciones;
+
+/**
+ * Una fila del listado de Libros: los datos del Libro con los nombres de su Autor y Editorial ya resueltos. Se arma directamente desde
+ * una única consulta con JOIN, sin cargar entidades administradas, así que mostrar una página cuesta siempre una sola sentencia SQL
+ *
+ * @author Matias Luca Soto
+ */
+public class FilaCatalogo {
+
+    //ATRIBUTOS
+    private final String id;
+    private final Long isbn;
+    private final String titulo;
+    private final Integer anio;
+    private final String autor;
+    private final String editorial;
+    private final Integer ejemplares;
+    private final Integer ejemplaresPrestados;
+    private final Integer ejemplaresRestantes;
+    private final Boolean alta;
+
+    public FilaCatalogo(String id, Long isbn, String titulo, Integer anio, String autor, String editorial, Integer ejemplares,
+            Integer ejemplaresPrestados, Integer ejemplaresRestantes, Boolean alta) {
+        this.id = id;
+        this.isbn = isbn;
+        this.titulo = titulo;
+        this.anio = anio;
+        this.autor = autor;
+        this.editorial = editorial;
+        this.ejemplares = ejemplares;
+        this.ejemplaresPrestados = ejemplaresPrestados;
+        this.ejemplaresRestantes = ejemplaresRestantes;
+        this.alta = alta;
+    }
+
+    //GETTERS
+    public String getId() {
+        return id;
+    }
+
+    public Long getIsbn() {
+        return isbn;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public Integer getAnio() {
+        return anio;
+    }
+
+    /**
+     * @return El nombre del Autor
+     */
+    public String getAutor() {
+        return autor;
+    }
+
+    /**
+     * @return El nombre de la Editorial
+     */
+    public String getEditorial() {
+        return editorial;
+    }
+
+    public Integer getEjemplares() {
+        return ejemplares;
+    }
+
+    public Integer getEjemplaresPrestados() {
+        return ejemplaresPrestados;
+    }
+
+    public Integer getEjemplaresRestantes() {
+        return ejemplaresRestantes;
+    }
+
+    public Boolean getAlta() {
+        return alta;
+    }
+}
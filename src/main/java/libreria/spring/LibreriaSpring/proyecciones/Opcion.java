@@ -0,0 +1,20 @@
+package libreria.spring.LibreriaSpring.proyecciones;
+
+/**
+ * Proyección de solo lectura con lo mínimo que necesita una opción de un tag &lt;select&gt;: el id de la entidad y el texto a mostrar.
+ * Las queries que la devuelven no cargan entidades administradas en el contexto de persistencia ni sus colecciones.
+ *
+ * @author Matias Luca Soto
+ */
+public interface Opcion {
+
+    /**
+     * @return el id de la entidad
+     */
+    String getId();
+
+    /**
+     * @return el texto a mostrar en la opción
+     */
+    String getNombre();
+}
@@ -1,8 +1,12 @@
 package libreria.spring.LibreriaSpring.repositorios;
 
+import java.util.List;
+import javax.persistence.QueryHint;
 import libreria.spring.LibreriaSpring.entidades.Autor;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -14,11 +18,27 @@ import org.springframework.stereotype.Repository;
 public interface AutorRepositorio extends JpaRepository<Autor, String> {
 
     /**
-     * Método abstracto para realizar una query personalizada buscando 1 Autor según su atributo 'nombre'
+     * Método abstracto para realizar una query personalizada buscando 1 Autor según su atributo 'nombre'. El resultado queda en la cache de consultas de Hibernate hasta que se modifique la tabla
      * @param nombre del Autor a buscar
      * @return Autor con el nombre especificado
      */
     @Query("SELECT a FROM Autor a WHERE a.nombre = :nombre")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     public Autor buscarPorNombre(@Param("nombre") String nombre);
 
+    /**
+     * Query personalizada que trae solo los Autores dados de alta, filtrando en la base de datos (apoyada en el índice sobre 'alta')
+     * @return Autores activos ordenados por 'nombre'
+     */
+    @Query("SELECT a FROM Autor a WHERE a.alta = true ORDER BY a.nombre")
+    public List<Autor> buscarActivos();
+
+    /**
+     * Query personalizada para los tags &lt;select&gt; de los formularios: trae solo el id y el nombre de los Autores activos,
+     * sin cargar las entidades completas
+     * @return Una Opcion por cada Autor dado de alta
+     */
+    @Query("SELECT a.id AS id, a.nombre AS nombre FROM Autor a WHERE a.alta = true ORDER BY a.nombre")
+    public List<Opcion> listarOpcionesActivas();
+
 }
@@ -1,8 +1,12 @@
 package libreria.spring.LibreriaSpring.repositorios;
 
+import java.util.Collection;
 import java.util.List;
 import libreria.spring.LibreriaSpring.entidades.Cliente;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -35,6 +39,69 @@ public interface ClienteRepositorio extends JpaRepository<Cliente, String> {
      * @param apellido Parámetro de búsqueda
      * @return Clientes que coincidan con el argumento
      */
-    @Query("SELECT c FROM Cliente c WHERE c.nombre = :apellido")
+    @Query("SELECT c FROM Cliente c WHERE c.apellido = :apellido")
     public List<Cliente> buscarPorApellido(@Param("apellido") String apellido);
+
+    /**
+     * Suma 1 a la cantidad de préstamos activos del Cliente en una única sentencia UPDATE, sin traer la entidad a memoria
+     * @param id Del Cliente que recibe el préstamo
+     * @return Cantidad de filas actualizadas (0 si el Cliente no existe)
+     */
+    @Modifying
+    @Query("UPDATE Cliente c SET c.cantidadPrestamos = c.cantidadPrestamos + 1, c.version = c.version + 1 WHERE c.id = :id")
+    public int sumarPrestamo(@Param("id") String id);
+
+    /**
+     * Suma varios préstamos activos al Cliente en una única sentencia UPDATE
+     * @param id Del Cliente que recibe los préstamos
+     * @param cantidad De préstamos a sumar
+     * @return Cantidad de filas actualizadas (0 si el Cliente no existe)
+     */
+    @Modifying
+    @Query("UPDATE Cliente c SET c.cantidadPrestamos = c.cantidadPrestamos + :cantidad, c.version = c.version + 1 WHERE c.id = :id")
+    public int sumarPrestamos(@Param("id") String id, @Param("cantidad") int cantidad);
+
+    /**
+     * Resta varios préstamos activos al Cliente en una única sentencia UPDATE
+     * @param id Del Cliente que devuelve los préstamos
+     * @param cantidad De préstamos a restar
+     * @return Cantidad de filas actualizadas (0 si el Cliente no existe)
+     */
+    @Modifying
+    @Query("UPDATE Cliente c SET c.cantidadPrestamos = c.cantidadPrestamos - :cantidad, c.version = c.version + 1 WHERE c.id = :id")
+    public int restarPrestamos(@Param("id") String id, @Param("cantidad") int cantidad);
+
+    /**
+     * Trae solo los DNI de los Clientes recibidos, para poder quitarlos de la cache por DNI sin instanciar las entidades
+     * @param ids De los Clientes buscados
+     * @return Los DNI de los Clientes encontrados
+     */
+    @Query("SELECT c.dni FROM Cliente c WHERE c.id IN :ids")
+    public List<Long> buscarDnis(@Param("ids") Collection<String> ids);
+
+    /**
+     * Query personalizada que trae solo los Clientes dados de alta, filtrando en la base de datos (apoyada en el índice sobre 'alta')
+     * @return Clientes activos ordenados por 'apellido'
+     */
+    @Query("SELECT c FROM Cliente c WHERE c.alta = true ORDER BY c.apellido")
+    public List<Cliente> buscarActivos();
+
+    /**
+     * Sugerencias de autocompletado: Clientes activos con el DNI dentro del rango recibido (apoyada en el índice sobre
+     * 'alta' y 'dni', que ya entrega las filas en el orden pedido y permite cortar en el límite)
+     * @param desde Límite inferior del rango
+     * @param hasta Límite superior del rango
+     * @param limite Cantidad máxima de resultados
+     * @return Id y "nombre apellido - DNI" de los Clientes encontrados
+     */
+    @Query("SELECT c.id AS id, CONCAT(c.nombre, ' ', c.apellido, ' - DNI ', c.dni) AS nombre FROM Cliente c "
+            + "WHERE c.dni BETWEEN :desde AND :hasta AND c.alta = true ORDER BY c.alta, c.dni")
+    public List<Opcion> buscarOpcionesPorDni(@Param("desde") Long desde, @Param("hasta") Long hasta, Pageable limite);
+
+    /**
+     * Query personalizada para cargar el índice de búsqueda aproximada de Clientes sin instanciar las entidades
+     * @return Filas [id, nombre, apellido, dni] de los Clientes activos
+     */
+    @Query("SELECT c.id, c.nombre, c.apellido, c.dni FROM Cliente c WHERE c.alta = true")
+    public List<Object[]> listarNombresActivos();
 }
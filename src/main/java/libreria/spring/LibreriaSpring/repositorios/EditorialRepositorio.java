@@ -1,8 +1,12 @@
 package libreria.spring.LibreriaSpring.repositorios;
 
+import java.util.List;
+import javax.persistence.QueryHint;
 import libreria.spring.LibreriaSpring.entidades.Editorial;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -14,11 +18,27 @@ import org.springframework.stereotype.Repository;
 public interface EditorialRepositorio extends JpaRepository<Editorial, String> {
 
     /**
-     * Query personalizada para traer una Editorial según su atributo 'nombre'
+     * Query personalizada para traer una Editorial según su atributo 'nombre'. El resultado queda en la cache de consultas de Hibernate hasta que se modifique la tabla
      * @param nombre Parámetro de búsqueda
      * @return Editorial que coincida con el argumento enviado
      */
     @Query("SELECT e FROM Editorial e WHERE e.nombre = :nombre")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     public Editorial buscarPorNombre(@Param("nombre") String nombre);
 
+    /**
+     * Query personalizada que trae solo las Editoriales dadas de alta, filtrando en la base de datos (apoyada en el índice sobre 'alta')
+     * @return Editoriales activas ordenadas por 'nombre'
+     */
+    @Query("SELECT e FROM Editorial e WHERE e.alta = true ORDER BY e.nombre")
+    public List<Editorial> buscarActivos();
+
+    /**
+     * Query personalizada para los tags &lt;select&gt; de los formularios: trae solo el id y el nombre de las Editoriales activas,
+     * sin cargar las entidades completas
+     * @return Una Opcion por cada Editorial dada de alta
+     */
+    @Query("SELECT e.id AS id, e.nombre AS nombre FROM Editorial e WHERE e.alta = true ORDER BY e.nombre")
+    public List<Opcion> listarOpcionesActivas();
+
 }
@@ -1,8 +1,21 @@
 package libreria.spring.LibreriaSpring.repositorios;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import libreria.spring.LibreriaSpring.entidades.Libro;
+import libreria.spring.LibreriaSpring.proyecciones.Existencias;
+import libreria.spring.LibreriaSpring.proyecciones.FilaCatalogo;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -13,6 +26,27 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface LibroRepositorio extends JpaRepository<Libro, String> {
 
+    /**
+     * Página del listado de Libros armada con una única sentencia SQL: los nombres del Autor y la Editorial se resuelven con JOIN en
+     * la misma consulta y cada fila se construye directamente como FilaCatalogo, sin entidades administradas. Devuelve un Slice (pide
+     * una fila de más para saber si hay página siguiente), así que tampoco se ejecuta la consulta COUNT de un Page
+     * @param paginacion Número de página, tamaño y orden (por atributos de Libro) solicitados
+     * @return Las filas de la página pedida
+     */
+    @Query("SELECT new libreria.spring.LibreriaSpring.proyecciones.FilaCatalogo(l.id, l.isbn, l.titulo, l.anio, a.nombre, e.nombre, "
+            + "l.ejemplares, l.ejemplaresPrestados, l.ejemplaresRestantes, l.alta) "
+            + "FROM Libro l LEFT JOIN l.autor a LEFT JOIN l.editorial e")
+    public Slice<FilaCatalogo> listarCatalogo(Pageable paginacion);
+
+    /**
+     * Busca un Libro por id junto con su Autor y Editorial, para precargar el formulario de modificación
+     * @param id Del Libro
+     * @return El Libro con su Autor y Editorial ya cargados, si existe
+     */
+    @EntityGraph("Libro.autorYEditorial")
+    @Query("SELECT l FROM Libro l WHERE l.id = :id")
+    public Optional<Libro> buscarConAutorYEditorial(@Param("id") String id);
+
     /**
      * Busca un libro en la base de datos por el atributo 'ISBN'
      *
@@ -30,4 +64,123 @@ public interface LibroRepositorio extends JpaRepository<Libro, String> {
     @Query("SELECT l FROM Libro l WHERE l.titulo = :titulo")
     public Libro buscarPorTitulo(@Param("titulo") String titulo);
 
+    /**
+     * Presta un ejemplar del Libro en una única sentencia UPDATE: resta 1 a los restantes y suma 1 a los prestados solo si aún
+     * quedan ejemplares disponibles, evitando que dos préstamos simultáneos presten el mismo ejemplar
+     * @param id Del Libro a prestar
+     * @return Cantidad de filas actualizadas (0 si el Libro no existe o no le quedan ejemplares)
+     */
+    @Modifying
+    @Query("UPDATE Libro l SET l.ejemplaresRestantes = l.ejemplaresRestantes - 1, l.ejemplaresPrestados = l.ejemplaresPrestados + 1, l.version = l.version + 1 WHERE l.id = :id AND l.ejemplaresRestantes > 0")
+    public int prestarEjemplar(@Param("id") String id);
+
+    /**
+     * Presta varios ejemplares del mismo Libro en una única sentencia UPDATE, solo si quedan al menos esa cantidad disponibles
+     * @param id Del Libro a prestar
+     * @param cantidad De ejemplares a prestar
+     * @return Cantidad de filas actualizadas (0 si el Libro no existe o no le quedan suficientes ejemplares)
+     */
+    @Modifying
+    @Query("UPDATE Libro l SET l.ejemplaresRestantes = l.ejemplaresRestantes - :cantidad, l.ejemplaresPrestados = l.ejemplaresPrestados + :cantidad, l.version = l.version + 1 WHERE l.id = :id AND l.ejemplaresRestantes >= :cantidad")
+    public int prestarEjemplares(@Param("id") String id, @Param("cantidad") int cantidad);
+
+    /**
+     * Devuelve varios ejemplares del mismo Libro a la Libreria en una única sentencia UPDATE
+     * @param id Del Libro devuelto
+     * @param cantidad De ejemplares devueltos
+     * @return Cantidad de filas actualizadas (0 si el Libro no existe)
+     */
+    @Modifying
+    @Query("UPDATE Libro l SET l.ejemplaresRestantes = l.ejemplaresRestantes + :cantidad, l.ejemplaresPrestados = l.ejemplaresPrestados - :cantidad, l.version = l.version + 1 WHERE l.id = :id")
+    public int devolverEjemplares(@Param("id") String id, @Param("cantidad") int cantidad);
+
+    /**
+     * Query personalizada que trae solo los Libros dados de alta, filtrando en la base de datos (apoyada en el índice sobre 'alta')
+     * @return Libros activos ordenados por 'titulo'
+     */
+    @Query("SELECT l FROM Libro l WHERE l.alta = true ORDER BY l.titulo")
+    public List<Libro> buscarActivos();
+
+    /**
+     * Trae solo el id y el título de los Libros activos, sin cargar las entidades completas (por ejemplo, para armar el índice de búsqueda)
+     * @return Una Opcion por cada Libro dado de alta
+     */
+    @Query("SELECT l.id AS id, l.titulo AS nombre FROM Libro l WHERE l.alta = true")
+    public List<Opcion> listarOpcionesActivas();
+
+    /**
+     * Sugerencias de autocompletado: Libros activos cuyo título empieza con el prefijo recibido (rango sobre el índice (alta, titulo))
+     * @param prefijo Texto ingresado, con los comodines de LIKE ya escapados
+     * @param limite Cantidad máxima de resultados
+     * @return Id y "título - ISBN" de los Libros encontrados
+     */
+    @Query("SELECT l.id AS id, CONCAT(l.titulo, ' - ISBN ', l.isbn) AS nombre FROM Libro l "
+            + "WHERE l.alta = true AND l.titulo LIKE CONCAT(:prefijo, '%') ORDER BY l.titulo")
+    public List<Opcion> buscarOpcionesPorTitulo(@Param("prefijo") String prefijo, Pageable limite);
+
+    /**
+     * Sugerencias de autocompletado: Libros activos con el ISBN dentro del rango recibido (apoyada en el índice sobre
+     * 'alta' y 'isbn', que ya entrega las filas en el orden pedido y permite cortar en el límite)
+     * @param desde Límite inferior del rango
+     * @param hasta Límite superior del rango
+     * @param limite Cantidad máxima de resultados
+     * @return Id y "título - ISBN" de los Libros encontrados
+     */
+    @Query("SELECT l.id AS id, CONCAT(l.titulo, ' - ISBN ', l.isbn) AS nombre FROM Libro l "
+            + "WHERE l.isbn BETWEEN :desde AND :hasta AND l.alta = true ORDER BY l.alta, l.isbn")
+    public List<Opcion> buscarOpcionesPorIsbn(@Param("desde") Long desde, @Param("hasta") Long hasta, Pageable limite);
+
+    /**
+     * Trae solo los ISBN de todos los Libros, para validar importaciones masivas sin consultar la base de datos por cada fila
+     * @return ISBN de todos los Libros
+     */
+    @Query("SELECT l.isbn FROM Libro l")
+    public List<Long> listarIsbns();
+
+    /**
+     * Trae solo los títulos de todos los Libros, para validar importaciones masivas sin consultar la base de datos por cada fila
+     * @return Títulos de todos los Libros
+     */
+    @Query("SELECT l.titulo FROM Libro l")
+    public List<String> listarTitulos();
+
+    /**
+     * Recorre todos los Libros activos con su Autor y Editorial como un Stream de solo avance, leyendo las filas de a una (fetch size
+     * Integer.MIN_VALUE para el driver de MySQL). Debe consumirse dentro de una transacción y cerrarse al terminar.
+     * @return Stream con todos los Libros dados de alta
+     */
+    @EntityGraph("Libro.autorYEditorial")
+    @QueryHints({
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query("SELECT l FROM Libro l WHERE l.alta = true")
+    public Stream<Libro> recorrerActivos();
+
+    /**
+     * Trae los Libros activos de un Autor con su Autor y Editorial, para volver a indexarlos cuando cambia su nombre
+     * @param idAutor Del Autor
+     * @return Los Libros dados de alta del Autor
+     */
+    @EntityGraph("Libro.autorYEditorial")
+    @Query("SELECT l FROM Libro l WHERE l.alta = true AND l.autor.id = :idAutor")
+    public List<Libro> listarActivosPorAutor(@Param("idAutor") String idAutor);
+
+    /**
+     * Trae los Libros activos de una Editorial con su Autor y Editorial, para volver a indexarlos cuando cambia su nombre
+     * @param idEditorial De la Editorial
+     * @return Los Libros dados de alta de la Editorial
+     */
+    @EntityGraph("Libro.autorYEditorial")
+    @Query("SELECT l FROM Libro l WHERE l.alta = true AND l.editorial.id = :idEditorial")
+    public List<Libro> listarActivosPorEditorial(@Param("idEditorial") String idEditorial);
+
+    /**
+     * Query personalizada que trae solo los contadores de ejemplares de los Libros indicados, para avisar sus cambios a los listados
+     * abiertos
+     * @param ids De los Libros modificados
+     * @return El estado actual de los ejemplares de cada Libro encontrado
+     */
+    @Query("SELECT new libreria.spring.LibreriaSpring.proyecciones.Existencias(l.id, l.ejemplares, l.ejemplaresPrestados, l.ejemplaresRestantes) "
+            + "FROM Libro l WHERE l.id IN :ids")
+    public List<Existencias> buscarExistencias(@Param("ids") Collection<String> ids);
 }
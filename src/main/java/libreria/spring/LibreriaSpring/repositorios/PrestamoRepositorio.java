@@ -1,9 +1,20 @@
 package libreria.spring.LibreriaSpring.repositorios;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import javax.persistence.TemporalType;
 import libreria.spring.LibreriaSpring.entidades.Prestamo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Temporal;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -22,5 +33,71 @@ public interface PrestamoRepositorio extends JpaRepository<Prestamo, String> {
      */
     @Query("SELECT p FROM Prestamo p WHERE p.cliente.dni = :dni")
     public List<Prestamo> buscarPorDniCliente(@Param("dni") Long dni);
-    
+
+    /**
+     * Busca un Préstamo por id junto con su Libro y su Cliente, para precargar el formulario de modificación o para devolverlo,
+     * reactivarlo o cambiarlo, que actualizan los contadores de ambos
+     * @param id Del Préstamo
+     * @return El Préstamo con su Libro y su Cliente ya cargados, si existe
+     */
+    @EntityGraph("Prestamo.libroYCliente")
+    @Query("SELECT p FROM Prestamo p WHERE p.id = :id")
+    public Optional<Prestamo> buscarConLibroYCliente(@Param("id") String id);
+
+    /**
+     * Query personalizada que trae solo el id, el id del Libro, el id del Cliente y el alta de cada Préstamo pedido, sin cargar
+     * las entidades completas
+     * @param ids De los Préstamos a buscar
+     * @return Una fila [id, idLibro, idCliente, alta] por cada Préstamo encontrado
+     */
+    @Query("SELECT p.id, p.libro.id, p.cliente.id, p.alta FROM Prestamo p WHERE p.id IN :ids")
+    public List<Object[]> buscarEstadoPorIds(@Param("ids") Collection<String> ids);
+
+    /**
+     * Da de baja de una sola vez todos los Préstamos indicados que sigan activos, seteando su fecha de devolución
+     * @param ids De los Préstamos a devolver
+     * @param fecha De devolución
+     * @return Cantidad de Préstamos efectivamente devueltos
+     */
+    @Modifying
+    @Query("UPDATE Prestamo p SET p.alta = false, p.fechaDevolucion = :fecha, p.version = p.version + 1 WHERE p.id IN :ids AND p.alta = true")
+    public int devolverPrestamos(@Param("ids") Collection<String> ids, @Temporal(TemporalType.DATE) @Param("fecha") Date fecha);
+
+    /**
+     * Primera página del listado de Préstamos, del más reciente al más antiguo. El Cliente y el Libro se traen en la misma consulta,
+     * de modo que el listado cuesta siempre una única sentencia SQL
+     * @param limite Cantidad máxima de Préstamos a traer (solo se usa el tamaño)
+     * @return Los Préstamos más recientes
+     */
+    @EntityGraph("Prestamo.libroYCliente")
+    @Query("SELECT p FROM Prestamo p ORDER BY p.fechaPrestamo DESC, p.id DESC")
+    public List<Prestamo> listarPrimeros(Pageable limite);
+
+    /**
+     * Página siguiente del listado de Préstamos por keyset: trae los Préstamos que vienen después del último mostrado (según fecha e
+     * id) en lugar de saltear filas con OFFSET, así que cualquier página cuesta lo mismo que la primera
+     * @param fecha Fecha del último Préstamo mostrado
+     * @param id Id del último Préstamo mostrado
+     * @param limite Cantidad máxima de Préstamos a traer (solo se usa el tamaño)
+     * @return Los Préstamos siguientes al indicado
+     */
+    @EntityGraph("Prestamo.libroYCliente")
+    @Query("SELECT p FROM Prestamo p WHERE p.fechaPrestamo < :fecha OR (p.fechaPrestamo = :fecha AND p.id < :id) "
+            + "ORDER BY p.fechaPrestamo DESC, p.id DESC")
+    public List<Prestamo> listarSiguientes(@Temporal(TemporalType.DATE) @Param("fecha") Date fecha, @Param("id") String id, Pageable limite);
+
+    /**
+     * Recorre TODO el historial de Préstamos como un Stream de solo avance, del más antiguo al más reciente. El fetch size
+     * Integer.MIN_VALUE le indica al driver de MySQL que envíe las filas de a una en lugar de cargar el resultado completo en memoria,
+     * y las entidades se marcan de solo lectura para que Hibernate no guarde copias para el dirty checking. Debe consumirse dentro de
+     * una transacción y cerrarse al terminar.
+     * @return Stream con todos los Préstamos, con su Cliente y Libro ya cargados
+     */
+    @EntityGraph("Prestamo.libroYCliente")
+    @QueryHints({
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query("SELECT p FROM Prestamo p ORDER BY p.fechaPrestamo, p.id")
+    public Stream<Prestamo> exportarHistorial();
+
 }
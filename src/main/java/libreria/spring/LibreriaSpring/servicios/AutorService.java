@@ -1,12 +1,22 @@
 package libreria.spring.LibreriaSpring.servicios;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import libreria.spring.LibreriaSpring.aspectos.CambiaTablas;
+import libreria.spring.LibreriaSpring.busqueda.CatalogoLucene;
+import libreria.spring.LibreriaSpring.busqueda.IndiceCatalogo;
+import libreria.spring.LibreriaSpring.configuraciones.ConfiguracionCache;
 import libreria.spring.LibreriaSpring.entidades.Autor;
 import libreria.spring.LibreriaSpring.excepciones.AutorServiceException;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
 import libreria.spring.LibreriaSpring.repositorios.AutorRepositorio;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,6 +32,12 @@ public class AutorService {
     @Autowired
     private AutorRepositorio autorRepositorio;
 
+    //ATRIBUTOS - INDICES DE BUSQUEDA
+    @Autowired
+    private IndiceCatalogo indiceCatalogo;
+    @Autowired
+    private CatalogoLucene catalogoLucene;
+
     /**
      * Método para crear un Nuevo Objeto Autor y persistirlo en la base de datos
      *
@@ -29,6 +45,7 @@ public class AutorService {
      * @throws AutorServiceException Si el nombre está vacío, null o ya se ha persistido otro Autor con este nombre
      */
     @Transactional
+    @CambiaTablas(Tabla.AUTORES)
     public void crearNuevoAutor(String nombre) throws AutorServiceException {
 
         //Eliminación de espacios innecesarios
@@ -44,6 +61,7 @@ public class AutorService {
             autor.setNombre(nombre);
             autor.setAlta(true);
             autorRepositorio.save(autor); //Persistencia en la base de datos
+            indiceCatalogo.indexarAutor(autor.getId(), autor.getNombre());
         } else {
             throw new AutorServiceException("El autor que intenta crear ya existe.");
         }
@@ -57,6 +75,10 @@ public class AutorService {
      * @throws AutorServiceException En caso que el idAutor no traiga ningún autor en la base de datos o el nuevo 'nombre' sea inválido
      */
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = ConfiguracionCache.AUTORES, key = "#idAutor"),
+            @CacheEvict(cacheNames = ConfiguracionCache.LIBROS, allEntries = true)})
+    @CambiaTablas(Tabla.AUTORES)
     public void modificarAutor(String idAutor, String nombre) throws AutorServiceException {
 
         //Eliminación de espacios innecesarios
@@ -77,6 +99,10 @@ public class AutorService {
             autor.setNombre(nombre);
             autor.setAlta(true);
             autorRepositorio.save(autor);
+            indiceCatalogo.indexarAutor(autor.getId(), autor.getNombre());
+
+            //Los documentos del texto completo incluyen el nombre, así que sus Libros se vuelven a indexar
+            catalogoLucene.indexarLibrosDelAutor(autor.getId());
         } else {
             throw new AutorServiceException("No se ha encontrado el autor solicitado.");
         }
@@ -89,6 +115,8 @@ public class AutorService {
      * @throws AutorServiceException Si no se ha encontrado el Autor en cuestión
      */
     @Transactional
+    @CacheEvict(cacheNames = ConfiguracionCache.AUTORES, key = "#idAutor")
+    @CambiaTablas(Tabla.AUTORES)
     public void darBaja(String idAutor) throws AutorServiceException {
 
         //Buscamos el Autor por su ID en la base de datos. Si se lo encuentra, se lo dá de baja y se persisten los cambios
@@ -97,6 +125,7 @@ public class AutorService {
             Autor autor = respuesta.get();
             autor.setAlta(false);
             autorRepositorio.save(autor);
+            indiceCatalogo.quitarAutor(autor.getId());
         } else {
             throw new AutorServiceException("No se ha encontrado el autor solicitado.");
         }
@@ -109,6 +138,8 @@ public class AutorService {
      * @throws AutorServiceException Si no se ha encontrado el Autor en cuestión
      */
     @Transactional
+    @CacheEvict(cacheNames = ConfiguracionCache.AUTORES, key = "#idAutor")
+    @CambiaTablas(Tabla.AUTORES)
     public void darAlta(String idAutor) throws AutorServiceException {
 
         //Buscamos el Autor por su ID en la base de datos. Si se lo encuentra, se lo dá de alta y se persisten los cambios
@@ -117,6 +148,7 @@ public class AutorService {
             Autor autor = respuesta.get();
             autor.setAlta(true);
             autorRepositorio.save(autor);
+            indiceCatalogo.indexarAutor(autor.getId(), autor.getNombre());
         } else {
             throw new AutorServiceException("No se ha encontrado el autor solicitado.");
         }
@@ -130,6 +162,7 @@ public class AutorService {
      * @throws AutorServiceException Si no se encuentra el Autor
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = ConfiguracionCache.AUTORES, key = "#id")
     public Autor buscarPorId(String id) throws AutorServiceException {
 
         //Buscamos el Autor en la base de datos usando el método de la Clase Repository
@@ -156,25 +189,50 @@ public class AutorService {
         }
     }
 
+    /**
+     * Devuelve una sola página de Autores, con el tamaño y orden solicitados, en lugar de traer la tabla completa
+     *
+     * @param paginacion Número de página, tamaño y orden solicitados
+     * @return La página de Autores pedida
+     * @throws AutorServiceException Si hubo algún problema con la base de datos o el orden solicitado no es válido
+     */
+    @Transactional(readOnly = true)
+    public Page<Autor> listarPagina(Pageable paginacion) throws AutorServiceException {
+        try {
+            return autorRepositorio.findAll(paginacion);
+        } catch (Exception e) {
+            throw new AutorServiceException("Hubo un problema para traer a los autores. Reintente nuevamente.");
+        }
+    }
+
     /**
      * Devuelve un listado con todos los Autores dados de alta. No se listarán a los dados de baja.
      *
      * @return Un List de Autores dados de alta
      * @throws AutorServiceException Si no se logra acceder a la base de datos
      */
+    @Transactional(readOnly = true)
     public List<Autor> listarActivos() throws AutorServiceException {
 
-        //Se traen a todos los autores y se guardan en una 2da List todos los autores que estén activos
+        //Se traen directamente de la base de datos solo los Autores activos
+        try {
+            return autorRepositorio.buscarActivos();
+        } catch (Exception e) {
+            throw new AutorServiceException("Hubo un problema para traer a todos los autores. Reintente nuevamente.");
+        }
+    }
+
+    /**
+     * Devuelve el id y el texto a mostrar de los Autores activos, para listarlos en un tag &lt;select&gt; sin cargar entidades completas
+     *
+     * @return Un List de Opciones con los Autores activos
+     * @throws AutorServiceException Si hubo algún problema con la base de datos
+     */
+    @Transactional(readOnly = true)
+    public List<Opcion> listarOpcionesActivas() throws AutorServiceException {
         try {
-            List<Autor> todos = listarTodos();
-            List<Autor> activos = new ArrayList();
-            for (Autor autor : todos) {
-                if (autor.getAlta()) {
-                    activos.add(autor);
-                }
-            }
-            return activos;
-        } catch (AutorServiceException e) {
+            return autorRepositorio.listarOpcionesActivas();
+        } catch (Exception e) {
             throw new AutorServiceException("Hubo un problema para traer a todos los autores. Reintente nuevamente.");
         }
     }
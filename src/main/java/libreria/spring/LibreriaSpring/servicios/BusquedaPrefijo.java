@@ -0,0 +1,85 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import java.util.ArrayList;
+import java.util.List;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Utilidades compartidas por las búsquedas de autocompletado de los Services. Todas las búsquedas se resuelven con rangos sobre
+ * columnas indexadas, así que el costo depende de la cantidad de sugerencias y no del tamaño de la tabla
+ *
+ * @author Matias Luca Soto
+ */
+final class BusquedaPrefijo {
+
+    //CANTIDAD DE SUGERENCIAS DEVUELTAS POR DEFECTO Y MAXIMA ADMITIDA
+    static final int LIMITE_SUGERENCIAS = 10;
+    static final int LIMITE_MAXIMO = 50;
+
+    private BusquedaPrefijo() {
+    }
+
+    /**
+     * Consulta sobre un rango cerrado de una columna numérica, limitada a una cantidad de resultados
+     */
+    interface BuscadorRango {
+
+        List<Opcion> buscar(Long desde, Long hasta, Pageable limite);
+    }
+
+    /**
+     * Escapa los comodines de LIKE para que el texto ingresado se busque literalmente como prefijo
+     *
+     * @param texto Ingresado por el usuario
+     * @return El texto con '\', '%' y '_' escapados
+     */
+    static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * @param texto Ingresado por el usuario, ya sin espacios a los costados
+     * @return true si el texto es solo dígitos (y entonces se busca por DNI o ISBN)
+     */
+    static boolean esNumerico(String texto) {
+        return !texto.isEmpty() && texto.chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * Busca los valores numéricos que empiezan con los dígitos recibidos. Un prefijo numérico no es un único rango (123 incluye
+     * 1230-1239, 12300-12399, ...), así que se consulta un rango por cada cantidad de dígitos posible, de menor a mayor, y se corta
+     * en cuanto se completa el límite. Cada consulta es un recorrido acotado del índice de la columna. Los valores se guardan como
+     * números, sin ceros a la izquierda, así que un prefijo que empieza con 0 no coincide con ninguno.
+     *
+     * @param digitos Prefijo ingresado
+     * @param maximoDigitos Largo máximo de los valores de la columna
+     * @param limite Cantidad máxima de resultados
+     * @param buscador Consulta del repositorio sobre un rango
+     * @return Hasta 'limite' coincidencias, en orden numérico
+     */
+    static List<Opcion> buscarPorPrefijoNumerico(String digitos, int maximoDigitos, int limite, BuscadorRango buscador) {
+        List<Opcion> resultado = new ArrayList<>(limite);
+        if (digitos.length() > maximoDigitos || digitos.charAt(0) == '0') {
+            return resultado;
+        }
+        long prefijo = Long.parseLong(digitos);
+        long escala = 1;
+        for (int largo = digitos.length(); largo <= maximoDigitos && resultado.size() < limite; largo++) {
+            long desde = prefijo * escala;
+            long hasta = (prefijo + 1) * escala - 1;
+            resultado.addAll(buscador.buscar(desde, hasta, PageRequest.of(0, limite - resultado.size())));
+            escala *= 10;
+        }
+        return resultado;
+    }
+
+    /**
+     * @param limite Solicitado por el cliente
+     * @return El límite acotado entre 1 y LIMITE_MAXIMO
+     */
+    static int acotar(int limite) {
+        return Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+    }
+}
@@ -3,11 +3,22 @@ package libreria.spring.LibreriaSpring.servicios;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import libreria.spring.LibreriaSpring.aspectos.CambiaTablas;
+import libreria.spring.LibreriaSpring.aspectos.ReintentoOptimista;
+import libreria.spring.LibreriaSpring.busqueda.IndiceClientes;
+import libreria.spring.LibreriaSpring.configuraciones.ConfiguracionCache;
 import libreria.spring.LibreriaSpring.entidades.Cliente;
 import libreria.spring.LibreriaSpring.entidades.Prestamo;
 import libreria.spring.LibreriaSpring.excepciones.ClienteServiceException;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
 import libreria.spring.LibreriaSpring.repositorios.ClienteRepositorio;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,10 +30,21 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class ClienteService {
 
+    //CANTIDAD MAXIMA DE DIGITOS DE UN DNI
+    private static final int MAXIMO_DIGITOS_DNI = 11;
+
     //ATRIBUTOS REPOSITORIO
     @Autowired
     private ClienteRepositorio clienteRepositorio;
 
+    //ATRIBUTOS - INDICE DE BUSQUEDA
+    @Autowired
+    private IndiceClientes indiceClientes;
+
+    //ATRIBUTOS - CACHE
+    @Autowired
+    private CacheManager cacheManager;
+
     /**
      * Método para crear una nueva instancia de la Clase Cliente con sus atributos seteados y persistido en la base de datos
      *
@@ -33,6 +55,7 @@ public class ClienteService {
      * @throws ClienteServiceException Si algún atributo no cumple con las verificaciones
      */
     @Transactional
+    @CambiaTablas(Tabla.CLIENTES)
     public void crearCliente(Long dni, String nombre, String apellido, String telefono) throws ClienteServiceException {
 
         //Removemos espacios innecesarios
@@ -55,6 +78,7 @@ public class ClienteService {
 
         //Persistimos el Cliente en la base de datos
         clienteRepositorio.save(cliente);
+        indiceClientes.indexar(cliente);
     }
 
     /**
@@ -67,7 +91,10 @@ public class ClienteService {
      * @param telefono Atributo actualizado del Objeto Cliente
      * @throws ClienteServiceException Si algún atributo no cumple con las verificaciones o no se encuentra el Cliente a modificar
      */
+    @ReintentoOptimista
     @Transactional
+    @CacheEvict(cacheNames = ConfiguracionCache.CLIENTES, key = "#id")
+    @CambiaTablas(Tabla.CLIENTES)
     public void modificarCliente(String id, Long dni, String nombre, String apellido, String telefono) throws ClienteServiceException {
 
         //Removemos espacios innecesarios
@@ -86,6 +113,9 @@ public class ClienteService {
             //Verificamos si se ha realizado al menos un cambio
             verificarCambios(cliente, dni, nombre, apellido, telefono);
 
+            //El Cliente queda guardado en la cache por su DNI anterior
+            olvidarDni(cliente.getDni());
+
             //Seteamos los nuevos atributos
             cliente.setDni(dni);
             cliente.setNombre(nombre);
@@ -95,6 +125,7 @@ public class ClienteService {
 
             //Persistimos el cliente modificado
             clienteRepositorio.save(cliente);
+            indiceClientes.indexar(cliente);
 
         } else {
             throw new ClienteServiceException("No se ha encontrado el cliente solicitado.");
@@ -107,7 +138,10 @@ public class ClienteService {
      * @param idCliente De la instancia de Cliente a dar de baja
      * @throws ClienteServiceException Si la instancia no pudo ser encontrada
      */
+    @ReintentoOptimista
     @Transactional
+    @CacheEvict(cacheNames = ConfiguracionCache.CLIENTES, key = "#idCliente")
+    @CambiaTablas(Tabla.CLIENTES)
     public void darBaja(String idCliente) throws ClienteServiceException {
 
         //Buscamos la instancia en la base de datos
@@ -118,6 +152,8 @@ public class ClienteService {
             Cliente cliente = respuesta.get();
             cliente.setAlta(false);
             clienteRepositorio.save(cliente);
+            olvidarDni(cliente.getDni());
+            indiceClientes.quitar(cliente.getId());
         } else {
             throw new ClienteServiceException("No se ha encontrado el cliente solicitado.");
         }
@@ -129,7 +165,10 @@ public class ClienteService {
      * @param idCliente De la instancia de Cliente a dar de alta
      * @throws ClienteServiceException Si la instancia no pudo ser encontrada
      */
+    @ReintentoOptimista
     @Transactional
+    @CacheEvict(cacheNames = ConfiguracionCache.CLIENTES, key = "#idCliente")
+    @CambiaTablas(Tabla.CLIENTES)
     public void darAlta(String idCliente) throws ClienteServiceException {
 
         //Buscamos la instancia en la base de datos
@@ -140,6 +179,8 @@ public class ClienteService {
             Cliente cliente = respuesta.get();
             cliente.setAlta(true);
             clienteRepositorio.save(cliente);
+            olvidarDni(cliente.getDni());
+            indiceClientes.indexar(cliente);
         } else {
             throw new ClienteServiceException("No se ha encontrado el cliente solicitado.");
         }
@@ -153,6 +194,7 @@ public class ClienteService {
      * @throws ClienteServiceException Si no se encuentra ningún cliente
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = ConfiguracionCache.CLIENTES, key = "#id")
     public Cliente buscarPorId(String id) throws ClienteServiceException {
 
         //Se busca utilizando un método de la Clase Repository y se lo devuelve. Sino, se lanza la excepción
@@ -172,6 +214,7 @@ public class ClienteService {
      * @throws ClienteServiceException Si no se encuentra ningún cliente
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = ConfiguracionCache.CLIENTES_POR_DNI, key = "#dni")
     public Cliente buscarPorDni(Long dni) throws ClienteServiceException {
 
         //Se busca utilizando un método de la Clase Repository y se lo devuelve. Sino, se lanza la excepción
@@ -200,25 +243,62 @@ public class ClienteService {
         }
     }
 
+    /**
+     * Devuelve una sola página de Clientes, con el tamaño y orden solicitados, en lugar de traer la tabla completa
+     *
+     * @param paginacion Número de página, tamaño y orden solicitados
+     * @return La página de Clientes pedida
+     * @throws ClienteServiceException Si hubo algún problema con la base de datos o el orden solicitado no es válido
+     */
+    @Transactional(readOnly = true)
+    public Page<Cliente> listarPagina(Pageable paginacion) throws ClienteServiceException {
+        try {
+            return clienteRepositorio.findAll(paginacion);
+        } catch (Exception e) {
+            throw new ClienteServiceException("Hubo un problema para traer a los clientes. Por favor, reintente nuevamente.");
+        }
+    }
+
     /**
      * Método que lista a todos los Clientes activos en la base de datos
      *
      * @return Un List con todos los Clientes activos
      * @throws ClienteServiceException Si hubo algún problema conectando a la base de datos
      */
+    @Transactional(readOnly = true)
     public List<Cliente> listarActivos() throws ClienteServiceException {
 
-        //Se traen a todos los Clientes y se guardan en un 2do List todos aquellos que estén activos y se lo devuelve
+        //Se traen directamente de la base de datos solo los Clientes activos
         try {
-            List<Cliente> todos = listarTodos();
-            List<Cliente> activos = new ArrayList();
-            for (Cliente cliente : todos) {
-                if (cliente.getAlta()) {
-                    activos.add(cliente);
-                }
-            }
-            return activos;
-        } catch (ClienteServiceException e) {
+            return clienteRepositorio.buscarActivos();
+        } catch (Exception e) {
+            throw new ClienteServiceException("Hubo un problema para traer a los clientes. Por favor, reintente nuevamente.");
+        }
+    }
+
+    /**
+     * Sugerencias para el autocompletado de los formularios: si el texto son solo dígitos se buscan los Clientes activos cuyo DNI empiece
+     * con ellos, y si no, los que tengan un nombre y apellido parecido al texto (sin importar mayúsculas, acentos, orden de las palabras
+     * ni pequeños errores de tipeo), ordenados del más al menos parecido. No abre una transacción: los nombres se buscan en el índice
+     * en memoria y cada consulta por DNI usa la de solo lectura del repositorio
+     *
+     * @param texto Ingresado por el usuario
+     * @param limite Cantidad máxima de sugerencias (entre 1 y 50)
+     * @return Id y texto a mostrar de cada Cliente encontrado
+     * @throws ClienteServiceException Si hubo algún problema con la base de datos
+     */
+    public List<Opcion> buscarOpciones(String texto, int limite) throws ClienteServiceException {
+        texto = texto == null ? "" : texto.trim();
+        if (texto.isEmpty()) {
+            return new ArrayList<>();
+        }
+        limite = BusquedaPrefijo.acotar(limite);
+        if (!BusquedaPrefijo.esNumerico(texto)) {
+            return new ArrayList<>(indiceClientes.buscar(texto, limite));
+        }
+        try {
+            return BusquedaPrefijo.buscarPorPrefijoNumerico(texto, MAXIMO_DIGITOS_DNI, limite, clienteRepositorio::buscarOpcionesPorDni);
+        } catch (Exception e) {
             throw new ClienteServiceException("Hubo un problema para traer a los clientes. Por favor, reintente nuevamente.");
         }
     }
@@ -301,4 +381,14 @@ public class ClienteService {
             throw new ClienteServiceException("El DNI ingresado pertenece a otro usuario.");
         }
     }
+
+    /**
+     * Quita de la cache de búsquedas por DNI al Cliente con ese DNI. La cache por id se desaloja con @CacheEvict, pero la clave por
+     * DNI solo se conoce después de traer la entidad. Dentro de una transacción el desalojo se aplica al confirmarse.
+     *
+     * @param dni Del Cliente modificado
+     */
+    private void olvidarDni(Long dni) {
+        cacheManager.getCache(ConfiguracionCache.CLIENTES_POR_DNI).evict(dni);
+    }
 }
@@ -1,12 +1,22 @@
 package libreria.spring.LibreriaSpring.servicios;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import libreria.spring.LibreriaSpring.aspectos.CambiaTablas;
+import libreria.spring.LibreriaSpring.busqueda.CatalogoLucene;
+import libreria.spring.LibreriaSpring.busqueda.IndiceCatalogo;
+import libreria.spring.LibreriaSpring.configuraciones.ConfiguracionCache;
 import libreria.spring.LibreriaSpring.entidades.Editorial;
 import libreria.spring.LibreriaSpring.excepciones.EditorialServiceException;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
 import libreria.spring.LibreriaSpring.repositorios.EditorialRepositorio;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,6 +32,12 @@ public class EditorialService {
     @Autowired
     private EditorialRepositorio editorialRepositorio;
 
+    //ATRIBUTOS - INDICES DE BUSQUEDA
+    @Autowired
+    private IndiceCatalogo indiceCatalogo;
+    @Autowired
+    private CatalogoLucene catalogoLucene;
+
     /**
      * Método para crear un Nuevo Objeto Editorial y persistirlo en la base de datos
      *
@@ -29,6 +45,7 @@ public class EditorialService {
      * @throws EditorialServiceException Si el nombre está vacío, null o pertenece a otra instancia ya persistida
      */
     @Transactional
+    @CambiaTablas(Tabla.EDITORIALES)
     public void crearNuevaEditorial(String nombre) throws EditorialServiceException {
 
         //Eliminación de espacios innecesarios
@@ -44,6 +61,7 @@ public class EditorialService {
             editorial.setNombre(nombre);
             editorial.setAlta(true);
             editorialRepositorio.save(editorial);
+            indiceCatalogo.indexarEditorial(editorial.getId(), editorial.getNombre());
         } else {
             throw new EditorialServiceException("La editorial que intenta crear ya existe.");
         }
@@ -57,6 +75,10 @@ public class EditorialService {
      * @throws EditorialServiceException En caso de que el idEditorial no traiga ningún resultado o el atributo 'nombre' no sea válido
      */
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = ConfiguracionCache.EDITORIALES, key = "#idEditorial"),
+            @CacheEvict(cacheNames = ConfiguracionCache.LIBROS, allEntries = true)})
+    @CambiaTablas(Tabla.EDITORIALES)
     public void modificarEditorial(String idEditorial, String nombre) throws EditorialServiceException {
 
         //Eliminación de espacios innecesarios
@@ -77,6 +99,10 @@ public class EditorialService {
             editorial.setNombre(nombre);
             editorial.setAlta(true);
             editorialRepositorio.save(editorial);
+            indiceCatalogo.indexarEditorial(editorial.getId(), editorial.getNombre());
+
+            //Los documentos del texto completo incluyen el nombre, así que sus Libros se vuelven a indexar
+            catalogoLucene.indexarLibrosDeLaEditorial(editorial.getId());
         } else {
             throw new EditorialServiceException("No se ha encontrado la editorial solicitada.");
         }
@@ -89,6 +115,8 @@ public class EditorialService {
      * @throws EditorialServiceException Si no se encuentra la instancia solicitada
      */
     @Transactional
+    @CacheEvict(cacheNames = ConfiguracionCache.EDITORIALES, key = "#idEditorial")
+    @CambiaTablas(Tabla.EDITORIALES)
     public void darBaja(String idEditorial) throws EditorialServiceException {
 
         //Buscamos a la instancia y si la encuentra, seteamos la baja y persistimos
@@ -97,6 +125,7 @@ public class EditorialService {
             Editorial editorial = respuesta.get();
             editorial.setAlta(false);
             editorialRepositorio.save(editorial);
+            indiceCatalogo.quitarEditorial(editorial.getId());
         } else {
             throw new EditorialServiceException("No se ha encontrado la editorial solicitada.");
         }
@@ -109,6 +138,8 @@ public class EditorialService {
      * @throws EditorialServiceException Si no se encuentra la instancia solicitada
      */
     @Transactional
+    @CacheEvict(cacheNames = ConfiguracionCache.EDITORIALES, key = "#idEditorial")
+    @CambiaTablas(Tabla.EDITORIALES)
     public void darAlta(String idEditorial) throws EditorialServiceException {
 
         //Buscamos a la instancia y si la encuentra, seteamos el alta y persistimos
@@ -117,6 +148,7 @@ public class EditorialService {
             Editorial editorial = respuesta.get();
             editorial.setAlta(true);
             editorialRepositorio.save(editorial);
+            indiceCatalogo.indexarEditorial(editorial.getId(), editorial.getNombre());
         } else {
             throw new EditorialServiceException("No se ha encontrado la editorial solicitada.");
         }
@@ -130,6 +162,7 @@ public class EditorialService {
      * @throws EditorialServiceException Si no se encuentra la instancia solicitada
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = ConfiguracionCache.EDITORIALES, key = "#id")
     public Editorial buscarPorId(String id) throws EditorialServiceException {
         Optional<Editorial> respuesta = editorialRepositorio.findById(id);
         if (respuesta.isPresent()) {
@@ -154,29 +187,54 @@ public class EditorialService {
         }
     }
 
+    /**
+     * Devuelve una sola página de Editoriales, con el tamaño y orden solicitados, en lugar de traer la tabla completa
+     *
+     * @param paginacion Número de página, tamaño y orden solicitados
+     * @return La página de Editoriales pedida
+     * @throws EditorialServiceException Si hubo algún problema con la base de datos o el orden solicitado no es válido
+     */
+    @Transactional(readOnly = true)
+    public Page<Editorial> listarPagina(Pageable paginacion) throws EditorialServiceException {
+        try {
+            return editorialRepositorio.findAll(paginacion);
+        } catch (Exception e) {
+            throw new EditorialServiceException("Hubo un problema para traer a las editoriales. Por favor, reintente nuevamente.");
+        }
+    }
+
     /**
      * Devuelve una List con todas las instancias activas de la tabla Editorial en la base de datos
      *
      * @return Una Lista con todas las Editoriales activas
      * @throws EditorialServiceException Si no se pudo traer la lista de la base de datos
      */
+    @Transactional(readOnly = true)
     public List<Editorial> listarActivos() throws EditorialServiceException {
 
-        //Traigo la lista con todas las editoriales y guardo en una 2da lista solo las Editoriales que tengan el Alta = true
+        //Se traen directamente de la base de datos solo las Editoriales activas
         try {
-            List<Editorial> todos = listarTodos();
-            List<Editorial> activos = new ArrayList();
-            for (Editorial editorial : todos) {
-                if (editorial.getAlta()) {
-                    activos.add(editorial);
-                }
-            }
-            return activos;
-        } catch (EditorialServiceException e) {
+            return editorialRepositorio.buscarActivos();
+        } catch (Exception e) {
             throw new EditorialServiceException("Hubo un problema para traer a todos los autores. Reintente nuevamente.");
         }
     }
 
+    /**
+     * Devuelve el id y el texto a mostrar de las Editoriales activas, para listarlos en un tag &lt;select&gt; sin cargar entidades completas
+     *
+     * @return Un List de Opciones con las Editoriales activas
+     * @throws EditorialServiceException Si hubo algún problema con la base de datos
+     */
+    @Transactional(readOnly = true)
+    public List<Opcion> listarOpcionesActivas() throws EditorialServiceException {
+        try {
+            return editorialRepositorio.listarOpcionesActivas();
+        } catch (Exception e) {
+            throw new EditorialServiceException("Hubo un problema para traer a las editoriales. Por favor, reintente nuevamente.");
+        }
+    }
+
     /**
      * Verifica que el atributo 'nombre' sea válido para la entidad a settear
      *
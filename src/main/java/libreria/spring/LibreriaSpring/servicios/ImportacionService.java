@@ -0,0 +1,434 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import libreria.spring.LibreriaSpring.aspectos.CambiaTablas;
+import libreria.spring.LibreriaSpring.busqueda.CatalogoLucene;
+import libreria.spring.LibreriaSpring.busqueda.IndiceCatalogo;
+import libreria.spring.LibreriaSpring.entidades.Autor;
+import libreria.spring.LibreriaSpring.entidades.Editorial;
+import libreria.spring.LibreriaSpring.entidades.Libro;
+import libreria.spring.LibreriaSpring.excepciones.LibroServiceException;
+import libreria.spring.LibreriaSpring.repositorios.AutorRepositorio;
+import libreria.spring.LibreriaSpring.repositorios.EditorialRepositorio;
+import libreria.spring.LibreriaSpring.repositorios.LibroRepositorio;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service para la carga masiva del catálogo: recibe un archivo CSV o NDJSON con Libros y los persiste por lotes, creando en el
+ * camino los Autores y Editoriales que todavía no existan. Las filas que no pasan las validaciones no detienen la importación,
+ * sino que se informan en el resultado
+ *
+ * @author Matias Luca Soto
+ */
+@Service
+public class ImportacionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportacionService.class);
+
+    //CANTIDAD DE LIBROS PERSISTIDOS POR TRANSACCION (MULTIPLO DEL hibernate.jdbc.batch_size)
+    private static final int LOTE = 500;
+
+    //ATRIBUTOS REPOSITORIOS
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+    @Autowired
+    private AutorRepositorio autorRepositorio;
+    @Autowired
+    private EditorialRepositorio editorialRepositorio;
+
+    //ATRIBUTOS - INDICES DE BUSQUEDA
+    @Autowired
+    private IndiceCatalogo indiceCatalogo;
+    @Autowired
+    private CatalogoLucene catalogoLucene;
+
+    //ATRIBUTOS DE PERSISTENCIA
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Importa todos los Libros del archivo recibido. Cada línea es un Libro con los campos isbn, titulo, anio, ejemplares, autor y
+     * editorial (el nombre del Autor y de la Editorial, no su id). En CSV la primera línea es el encabezado; en NDJSON cada línea es
+     * un objeto JSON con esas mismas claves.
+     *
+     * Los ISBN y títulos ya existentes se traen una sola vez al comienzo, al igual que los Autores y Editoriales, así que las
+     * validaciones de cada fila se hacen en memoria. Cada lote de Libros válidos se guarda en su propia transacción, de modo que un
+     * error en un lote no deshace los anteriores.
+     *
+     * @param archivo Contenido del archivo a importar, en UTF-8
+     * @param formato "csv" o "ndjson"
+     * @return Cantidad de Libros importados y detalle de cada fila rechazada
+     * @throws LibroServiceException Si el formato no es válido o el archivo no se pudo leer
+     */
+    @CambiaTablas({Tabla.LIBROS, Tabla.AUTORES, Tabla.EDITORIALES})
+    public ResultadoImportacion importarLibros(InputStream archivo, String formato) throws LibroServiceException {
+
+        //Verificamos el formato antes de consultar la base de datos
+        if (!"csv".equals(formato) && !"ndjson".equals(formato)) {
+            throw new LibroServiceException("El formato de importación debe ser csv o ndjson.");
+        }
+
+        //Precargamos todo lo necesario para validar sin volver a la base de datos por cada fila. Títulos y nombres se comparan por
+        //su clave, porque los índices únicos de la base de datos no distinguen mayúsculas
+        Set<Long> isbns = new HashSet<>(libroRepositorio.listarIsbns());
+        Set<String> titulos = new HashSet<>();
+        for (String titulo : libroRepositorio.listarTitulos()) {
+            titulos.add(clave(titulo));
+        }
+        Map<String, Autor> autores = new HashMap<>();
+        for (Autor autor : autorRepositorio.findAll()) {
+            autores.put(clave(autor.getNombre()), autor);
+        }
+        Map<String, Editorial> editoriales = new HashMap<>();
+        for (Editorial editorial : editorialRepositorio.findAll()) {
+            editoriales.put(clave(editorial.getNombre()), editorial);
+        }
+
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        List<FilaLibro> lote = new ArrayList<>(LOTE);
+        int anioActual = Calendar.getInstance().get(Calendar.YEAR);
+
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(archivo, StandardCharsets.UTF_8))) {
+            String linea;
+            int numeroLinea = 0;
+            if ("csv".equals(formato)) {
+                //Salteamos el encabezado
+                lector.readLine();
+                numeroLinea++;
+            }
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                if (linea.trim().isEmpty()) {
+                    continue;
+                }
+
+                FilaLibro fila;
+                try {
+                    fila = "csv".equals(formato) ? leerCsv(linea, numeroLinea) : leerJson(linea, numeroLinea);
+                    validar(fila, isbns, titulos, anioActual);
+                } catch (LibroServiceException e) {
+                    resultado.rechazar(numeroLinea, e.getMessage());
+                    continue;
+                }
+
+                //Reservamos ISBN y título para que tampoco se repitan dentro del mismo archivo
+                isbns.add(fila.isbn);
+                titulos.add(clave(fila.titulo));
+                lote.add(fila);
+                if (lote.size() == LOTE) {
+                    guardarLote(lote, autores, editoriales, resultado);
+                    lote.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new LibroServiceException("No se pudo leer el archivo. Se importaron " + resultado.getImportados() + " libros antes del error.");
+        }
+        if (!lote.isEmpty()) {
+            guardarLote(lote, autores, editoriales, resultado);
+        }
+        return resultado;
+    }
+
+    /**
+     * Persiste un lote de filas válidas en una única transacción. Si el lote falla (por ejemplo, porque otro usuario creó un Libro
+     * con el mismo ISBN mientras corría la importación), se vuelve a intentar fila por fila, de modo que solo se rechacen las filas
+     * que realmente no se pueden guardar
+     *
+     * @param lote Filas ya validadas
+     * @param autores Autores existentes por clave del nombre, donde se agregan los que se creen
+     * @param editoriales Editoriales existentes por clave del nombre, donde se agregan las que se creen
+     * @param resultado Donde se registran los importados y las filas rechazadas
+     */
+    private void guardarLote(List<FilaLibro> lote, Map<String, Autor> autores, Map<String, Editorial> editoriales, ResultadoImportacion resultado) {
+        try {
+            persistir(lote, autores, editoriales);
+            resultado.sumarImportados(lote.size());
+        } catch (RuntimeException e) {
+            LOG.warn("No se pudo guardar el lote de las líneas {} a {}, se reintenta fila por fila", lote.get(0).linea,
+                    lote.get(lote.size() - 1).linea, e);
+            for (FilaLibro fila : lote) {
+                try {
+                    persistir(Collections.singletonList(fila), autores, editoriales);
+                    resultado.sumarImportados(1);
+                } catch (RuntimeException errorFila) {
+                    LOG.warn("No se pudo guardar la línea {} de la importación", fila.linea, errorFila);
+                    resultado.rechazar(fila.linea, "No se pudo guardar esta fila en la base de datos.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Guarda las filas en una única transacción. Los inserts se envían agrupados gracias al batching de JDBC (los id se generan en
+     * Java, así que Hibernate no necesita ir a la base de datos por cada fila) y al terminar se vacía el contexto de persistencia
+     * para que no crezca con cada lote
+     *
+     * @param filas Filas ya validadas
+     * @param autores Autores existentes por clave del nombre, donde se agregan los que se creen
+     * @param editoriales Editoriales existentes por clave del nombre, donde se agregan las que se creen
+     * @throws RuntimeException Si la transacción falló y se deshizo
+     */
+    private void persistir(List<FilaLibro> filas, Map<String, Autor> autores, Map<String, Editorial> editoriales) {
+        List<String> autoresNuevos = new ArrayList<>();
+        List<String> editorialesNuevas = new ArrayList<>();
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        try {
+            transaccion.executeWithoutResult(estado -> {
+                List<Libro> libros = new ArrayList<>(filas.size());
+                for (FilaLibro fila : filas) {
+
+                    //Resolvemos el Autor y la Editorial en memoria, creándolos solo si todavía no existen
+                    Autor autor = autores.get(clave(fila.autor));
+                    if (autor == null) {
+                        autor = new Autor();
+                        autor.setNombre(fila.autor);
+                        autor.setAlta(true);
+                        autorRepositorio.save(autor);
+                        indiceCatalogo.indexarAutor(autor.getId(), autor.getNombre());
+                        autores.put(clave(fila.autor), autor);
+                        autoresNuevos.add(clave(fila.autor));
+                    }
+                    Editorial editorial = editoriales.get(clave(fila.editorial));
+                    if (editorial == null) {
+                        editorial = new Editorial();
+                        editorial.setNombre(fila.editorial);
+                        editorial.setAlta(true);
+                        editorialRepositorio.save(editorial);
+                        indiceCatalogo.indexarEditorial(editorial.getId(), editorial.getNombre());
+                        editoriales.put(clave(fila.editorial), editorial);
+                        editorialesNuevas.add(clave(fila.editorial));
+                    }
+
+                    Libro libro = new Libro();
+                    libro.setIsbn(fila.isbn);
+                    libro.setTitulo(fila.titulo);
+                    libro.setAnio(fila.anio);
+                    libro.setEjemplares(fila.ejemplares);
+                    libro.setEjemplaresPrestados(0);
+                    libro.setEjemplaresRestantes(fila.ejemplares);
+                    libro.setAlta(true);
+                    libro.setAutor(autor);
+                    libro.setEditorial(editorial);
+                    libros.add(libro);
+                }
+                libroRepositorio.saveAll(libros);
+                for (Libro libro : libros) {
+                    indiceCatalogo.indexarLibro(libro.getId(), libro.getTitulo());
+                    catalogoLucene.indexar(libro);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        } catch (RuntimeException e) {
+            //Los Autores y Editoriales creados en esta transacción se deshicieron junto con ella
+            autoresNuevos.forEach(autores::remove);
+            editorialesNuevas.forEach(editoriales::remove);
+            throw e;
+        }
+    }
+
+    /**
+     * Verifica una fila con los mismos criterios que LibroService usa para un Libro nuevo, pero contra los ISBN y títulos precargados
+     *
+     * @param fila A validar
+     * @param isbns ISBN ya existentes o reservados por filas anteriores del archivo
+     * @param titulos Claves de los títulos ya existentes o reservados por filas anteriores del archivo
+     * @param anioActual Año máximo de publicación admitido
+     * @throws LibroServiceException Con el motivo del rechazo
+     */
+    private void validar(FilaLibro fila, Set<Long> isbns, Set<String> titulos, int anioActual) throws LibroServiceException {
+        if (fila.isbn == null) {
+            throw new LibroServiceException("El ISBN no puede estar vacío.");
+        } else if (isbns.contains(fila.isbn)) {
+            throw new LibroServiceException("El ISBN ingresado ya pertenece a otro libro.");
+        }
+        if (fila.titulo == null || fila.titulo.isEmpty()) {
+            throw new LibroServiceException("El titulo del libro no puede estar vacío.");
+        } else if (titulos.contains(clave(fila.titulo))) {
+            throw new LibroServiceException("El libro con el titulo ingresado ya existe.");
+        }
+        if (fila.anio == null) {
+            throw new LibroServiceException("El año no puede estar vacío.");
+        } else if (fila.anio > anioActual) {
+            throw new LibroServiceException("El año ingresado es inválido.");
+        }
+        if (fila.ejemplares == null || fila.ejemplares < 1) {
+            throw new LibroServiceException("Debe indicar una cantidad mínima y válida de ejemplares.");
+        }
+        if (fila.autor == null || fila.autor.isEmpty()) {
+            throw new LibroServiceException("El Autor no puede estar vacio.");
+        }
+        if (fila.editorial == null || fila.editorial.isEmpty()) {
+            throw new LibroServiceException("La Editorial no puede estar vacia.");
+        }
+    }
+
+    /**
+     * Convierte una línea CSV (isbn,titulo,anio,ejemplares,autor,editorial) en una fila a importar. Los campos pueden ir entre
+     * comillas dobles si contienen comas, con las comillas internas duplicadas
+     *
+     * @param linea Texto de la línea
+     * @param numeroLinea Para el reporte de rechazos
+     * @return La fila leída
+     * @throws LibroServiceException Si la línea no tiene la cantidad de campos esperada o algún número es inválido
+     */
+    private FilaLibro leerCsv(String linea, int numeroLinea) throws LibroServiceException {
+        List<String> campos = new ArrayList<>(6);
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString());
+        if (campos.size() != 6) {
+            throw new LibroServiceException("La línea debe tener 6 campos: isbn, titulo, anio, ejemplares, autor y editorial.");
+        }
+        return new FilaLibro(numeroLinea, numero(campos.get(0)), texto(campos.get(1)), entero(campos.get(2)), entero(campos.get(3)), texto(campos.get(4)), texto(campos.get(5)));
+    }
+
+    /**
+     * Convierte una línea NDJSON en una fila a importar
+     *
+     * @param linea Objeto JSON con las claves isbn, titulo, anio, ejemplares, autor y editorial
+     * @param numeroLinea Para el reporte de rechazos
+     * @return La fila leída
+     * @throws LibroServiceException Si la línea no es un objeto JSON válido o algún número es inválido
+     */
+    private FilaLibro leerJson(String linea, int numeroLinea) throws LibroServiceException {
+        JsonNode objeto;
+        try {
+            objeto = objectMapper.readTree(linea);
+        } catch (IOException e) {
+            throw new LibroServiceException("La línea no es un objeto JSON válido.");
+        }
+        if (!objeto.isObject()) {
+            throw new LibroServiceException("La línea no es un objeto JSON válido.");
+        }
+        return new FilaLibro(numeroLinea, numero(objeto.path("isbn").asText(null)), texto(objeto.path("titulo").asText(null)), entero(objeto.path("anio").asText(null)), entero(objeto.path("ejemplares").asText(null)), texto(objeto.path("autor").asText(null)), texto(objeto.path("editorial").asText(null)));
+    }
+
+    /**
+     * @return El texto sin espacios en los extremos y en minúsculas, para comparar títulos y nombres igual que los índices únicos
+     * de la base de datos (y que equalsIgnoreCase en AutorService y EditorialService)
+     */
+    private static String clave(String valor) {
+        return valor.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private String texto(String valor) {
+        return valor == null ? null : valor.trim();
+    }
+
+    private Long numero(String valor) throws LibroServiceException {
+        try {
+            return valor == null || valor.trim().isEmpty() ? null : Long.valueOf(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new LibroServiceException("El valor '" + valor + "' no es un número válido.");
+        }
+    }
+
+    private Integer entero(String valor) throws LibroServiceException {
+        try {
+            return valor == null || valor.trim().isEmpty() ? null : Integer.valueOf(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new LibroServiceException("El valor '" + valor + "' no es un número válido.");
+        }
+    }
+
+    /**
+     * Una línea del archivo ya convertida, antes de transformarse en Libro
+     */
+    private static class FilaLibro {
+
+        private final int linea;
+        private final Long isbn;
+        private final String titulo;
+        private final Integer anio;
+        private final Integer ejemplares;
+        private final String autor;
+        private final String editorial;
+
+        private FilaLibro(int linea, Long isbn, String titulo, Integer anio, Integer ejemplares, String autor, String editorial) {
+            this.linea = linea;
+            this.isbn = isbn;
+            this.titulo = titulo;
+            this.anio = anio;
+            this.ejemplares = ejemplares;
+            this.autor = autor;
+            this.editorial = editorial;
+        }
+    }
+
+    /**
+     * Resultado de una importación: cuántos Libros se guardaron y, por cada línea rechazada, el motivo
+     */
+    public static class ResultadoImportacion {
+
+        private int importados;
+        private final Map<Integer, String> rechazos = new TreeMap<>();
+
+        private void sumarImportados(int cantidad) {
+            importados += cantidad;
+        }
+
+        private void rechazar(int linea, String motivo) {
+            rechazos.put(linea, motivo);
+        }
+
+        public int getImportados() {
+            return importados;
+        }
+
+        /**
+         * @return Motivo del rechazo por número de línea, ordenados por línea
+         */
+        public Map<Integer, String> getRechazos() {
+            return rechazos;
+        }
+    }
+}
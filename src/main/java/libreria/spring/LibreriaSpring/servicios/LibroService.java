@@ -1,15 +1,30 @@
 package libreria.spring.LibreriaSpring.servicios;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Optional;
+import libreria.spring.LibreriaSpring.aspectos.CambiaTablas;
+import libreria.spring.LibreriaSpring.aspectos.ReintentoOptimista;
+import libreria.spring.LibreriaSpring.busqueda.CatalogoLucene;
+import libreria.spring.LibreriaSpring.busqueda.IndiceCatalogo;
+import libreria.spring.LibreriaSpring.configuraciones.ConfiguracionCache;
 import libreria.spring.LibreriaSpring.entidades.Libro;
+import libreria.spring.LibreriaSpring.eventos.CambiosInventario;
 import libreria.spring.LibreriaSpring.excepciones.AutorServiceException;
 import libreria.spring.LibreriaSpring.excepciones.EditorialServiceException;
 import libreria.spring.LibreriaSpring.excepciones.LibroServiceException;
+import libreria.spring.LibreriaSpring.proyecciones.FilaCatalogo;
+import libreria.spring.LibreriaSpring.proyecciones.Opcion;
 import libreria.spring.LibreriaSpring.repositorios.LibroRepositorio;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,10 +35,23 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class LibroService {
 
+    //CANTIDAD MAXIMA DE DIGITOS DE UN ISBN
+    private static final int MAXIMO_DIGITOS_ISBN = 13;
+
     //ATRIBUTOS REPOSITORIOS
     @Autowired
     private LibroRepositorio libroRepositorio;
 
+    //ATRIBUTOS - INDICES DE BUSQUEDA
+    @Autowired
+    private IndiceCatalogo indiceCatalogo;
+    @Autowired
+    private CatalogoLucene catalogoLucene;
+
+    //ATRIBUTOS - EVENTOS
+    @Autowired
+    private CambiosInventario cambiosInventario;
+
     //ATRIBUTOS SERVICES
     @Autowired
     private AutorService autorService;
@@ -44,6 +72,7 @@ public class LibroService {
      * @throws EditorialServiceException Si no se encuentra la Editorial con el idEditorial recibido como argumento
      */
     @Transactional
+    @CambiaTablas(Tabla.LIBROS)
     public void crearLibro(Long isbn, String titulo, Integer anio, Integer ejemplares, String idAutor, String idEditorial) throws LibroServiceException, AutorServiceException, EditorialServiceException {
 
         //Removemos espacios innecesarios
@@ -70,6 +99,8 @@ public class LibroService {
 
         //Persistimos el libro en la base de datos
         libroRepositorio.save(libro);
+        indiceCatalogo.indexarLibro(libro.getId(), libro.getTitulo());
+        catalogoLucene.indexar(libro);
     }
 
     /**
@@ -86,7 +117,10 @@ public class LibroService {
      * @throws AutorServiceException Si no se encuentra la entidad
      * @throws EditorialServiceException Si no se encuentra la entidad
      */
+    @ReintentoOptimista
     @Transactional
+    @CacheEvict(cacheNames = ConfiguracionCache.LIBROS, key = "#idLibro")
+    @CambiaTablas(Tabla.LIBROS)
     public void modificarLibro(String idLibro, Long isbn, String titulo, Integer anio, Integer ejemplares, String idAutor, String idEditorial) throws LibroServiceException, AutorServiceException, EditorialServiceException {
 
         //Removemos espacios innecesarios
@@ -119,6 +153,9 @@ public class LibroService {
 
             //Persistimos el libro en la base de datos
             libroRepositorio.save(libro);
+            indiceCatalogo.indexarLibro(libro.getId(), libro.getTitulo());
+            catalogoLucene.indexar(libro);
+            cambiosInventario.libroModificado(libro.getId());
         } else {
             throw new LibroServiceException("No se ha encontrado el libro solicitado.");
         }
@@ -130,7 +167,10 @@ public class LibroService {
      * @param idLibro De la entidad a dar de baja
      * @throws LibroServiceException Si no se encuentra la entidad solicitada
      */
+    @ReintentoOptimista
     @Transactional
+    @CacheEvict(cacheNames = ConfiguracionCache.LIBROS, key = "#idLibro")
+    @CambiaTablas(Tabla.LIBROS)
     public void darBaja(String idLibro) throws LibroServiceException {
 
         //Se busca a la instancia que tenga el id pasado como parámetro
@@ -141,6 +181,8 @@ public class LibroService {
             Libro libro = respuesta.get();
             libro.setAlta(false);
             libroRepositorio.save(libro);
+            indiceCatalogo.quitarLibro(libro.getId());
+            catalogoLucene.quitar(libro.getId());
         } else {
             throw new LibroServiceException("No se ha encontrado el libro solicitado.");
         }
@@ -152,7 +194,10 @@ public class LibroService {
      * @param idLibro
      * @throws LibroServiceException
      */
+    @ReintentoOptimista
     @Transactional
+    @CacheEvict(cacheNames = ConfiguracionCache.LIBROS, key = "#idLibro")
+    @CambiaTablas(Tabla.LIBROS)
     public void darAlta(String idLibro) throws LibroServiceException {
 
         //Se busca la instancia en la base de datos según el id
@@ -163,21 +208,42 @@ public class LibroService {
             Libro libro = respuesta.get();
             libro.setAlta(true);
             libroRepositorio.save(libro);
+            indiceCatalogo.indexarLibro(libro.getId(), libro.getTitulo());
+            catalogoLucene.indexar(libro);
         } else {
             throw new LibroServiceException("No se ha encontrado el libro solicitado.");
         }
     }
 
     /**
-     * Busca y devuelve la instancia de Libro en la base de datos que corresponda al id pasado como argumento
+     * Búsqueda de texto completo en el catálogo: encuentra Libros activos por palabras de su título, Autor o Editorial (sin importar
+     * acentos ni mayúsculas), o por ISBN o año exactos, ordenados por relevancia
+     *
+     * @param consulta Texto libre
+     * @param limite Cantidad máxima de resultados
+     * @return Los Libros encontrados, del más al menos relevante
+     * @throws LibroServiceException Si no se pudo leer el índice
+     */
+    public List<CatalogoLucene.LibroEncontrado> buscarEnCatalogo(String consulta, int limite) throws LibroServiceException {
+        try {
+            return catalogoLucene.buscar(consulta, limite);
+        } catch (IOException e) {
+            throw new LibroServiceException("Hubo un problema con la búsqueda. Por favor, reintente nuevamente.");
+        }
+    }
+
+    /**
+     * Busca y devuelve la instancia de Libro en la base de datos que corresponda al id pasado como argumento. El Autor y la Editorial
+     * se traen en la misma consulta, porque la instancia queda en la cache y se usa fuera de la transacción
      *
      * @param id De la instancia a buscar
-     * @return La instancia de Libro con el id correspondiente
+     * @return La instancia de Libro con el id correspondiente, con su Autor y Editorial ya cargados
      * @throws LibroServiceException Si no se encuentra ninguna entidad
      */
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = ConfiguracionCache.LIBROS, key = "#id")
     public Libro buscarPorId(String id) throws LibroServiceException {
-        Optional<Libro> respuesta = libroRepositorio.findById(id);
+        Optional<Libro> respuesta = libroRepositorio.buscarConAutorYEditorial(id);
         if (respuesta.isPresent()) {
             return respuesta.get();
         } else {
@@ -200,22 +266,60 @@ public class LibroService {
         }
     }
 
+    /**
+     * Devuelve una página del listado de Libros con los nombres de su Autor y Editorial, leída con una única sentencia SQL
+     *
+     * @param paginacion Número de página, tamaño y orden solicitados
+     * @return Las filas de la página pedida, indicando si hay más páginas
+     * @throws LibroServiceException Si hubo algún problema con la base de datos o el orden solicitado no es válido
+     */
+    @Transactional(readOnly = true)
+    public Slice<FilaCatalogo> listarCatalogo(Pageable paginacion) throws LibroServiceException {
+        try {
+            return libroRepositorio.listarCatalogo(paginacion);
+        } catch (Exception e) {
+            throw new LibroServiceException("Hubo un problema para traer los libros. Por favor, reintente nuevamente.");
+        }
+    }
+
     /**
      * Busca y devuelve una Lista con todos los Libros activos en la base de datos
      * @return Una List de Libros con su atributo Alta en true
      * @throws LibroServiceException Si hubo algún problema para traer a la lista de la base de datos
      */
+    @Transactional(readOnly = true)
     public List<Libro> listarActivos() throws LibroServiceException {
+
+        //Se traen directamente de la base de datos solo los Libros activos
+        try {
+            return libroRepositorio.buscarActivos();
+        } catch (Exception e) {
+            throw new LibroServiceException("Hubo un problema para traer todos los libros. Por favor, reintente nuevamente.");
+        }
+    }
+
+    /**
+     * Sugerencias para el autocompletado de los formularios: si el texto son solo dígitos se buscan los Libros activos cuyo ISBN empiece
+     * con ellos, y si no, los que tengan un título que empiece con el texto
+     *
+     * @param texto Ingresado por el usuario
+     * @param limite Cantidad máxima de sugerencias (entre 1 y 50)
+     * @return Id y texto a mostrar de cada Libro encontrado
+     * @throws LibroServiceException Si hubo algún problema con la base de datos
+     */
+    @Transactional(readOnly = true)
+    public List<Opcion> buscarOpciones(String texto, int limite) throws LibroServiceException {
+        texto = texto == null ? "" : texto.trim();
+        if (texto.isEmpty()) {
+            return new ArrayList<>();
+        }
+        limite = BusquedaPrefijo.acotar(limite);
         try {
-            List<Libro> todos = listarTodos();
-            List<Libro> activos = new ArrayList();
-            for (Libro libro : todos) {
-                if (libro.getAlta()) {
-                    activos.add(libro);
-                }
+            if (BusquedaPrefijo.esNumerico(texto)) {
+                return BusquedaPrefijo.buscarPorPrefijoNumerico(texto, MAXIMO_DIGITOS_ISBN, limite, libroRepositorio::buscarOpcionesPorIsbn);
             }
-            return activos;
-        } catch (LibroServiceException e) {
+            return libroRepositorio.buscarOpcionesPorTitulo(BusquedaPrefijo.escaparLike(texto), PageRequest.of(0, limite));
+        } catch (Exception e) {
             throw new LibroServiceException("Hubo un problema para traer todos los libros. Por favor, reintente nuevamente.");
         }
     }
@@ -1,18 +1,50 @@
 package libreria.spring.LibreriaSpring.servicios;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import libreria.spring.LibreriaSpring.aspectos.CambiaTablas;
+import libreria.spring.LibreriaSpring.aspectos.ReintentoOptimista;
+import libreria.spring.LibreriaSpring.configuraciones.ConfiguracionCache;
 import libreria.spring.LibreriaSpring.entidades.Cliente;
 import libreria.spring.LibreriaSpring.entidades.Libro;
 import libreria.spring.LibreriaSpring.entidades.Prestamo;
+import libreria.spring.LibreriaSpring.eventos.CambiosInventario;
 import libreria.spring.LibreriaSpring.excepciones.ClienteServiceException;
 import libreria.spring.LibreriaSpring.excepciones.LibroServiceException;
 import libreria.spring.LibreriaSpring.excepciones.PrestamoServiceException;
 import libreria.spring.LibreriaSpring.repositorios.ClienteRepositorio;
 import libreria.spring.LibreriaSpring.repositorios.LibroRepositorio;
 import libreria.spring.LibreriaSpring.repositorios.PrestamoRepositorio;
+import libreria.spring.LibreriaSpring.versiones.Tabla;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +55,12 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class PrestamoService {
 
+    //TAMAÑO MAXIMO DE PAGINA DEL LISTADO
+    public static final int TAMANIO_MAXIMO = 100;
+
+    //CANTIDAD DE PRESTAMOS EXPORTADOS ENTRE CADA LIMPIEZA DEL CONTEXTO DE PERSISTENCIA
+    private static final int LOTE_EXPORTACION = 1000;
+
     //ATRIBUTOS REPOSITORIOS
     @Autowired
     private PrestamoRepositorio prestamoRepositorio;
@@ -31,14 +69,24 @@ public class PrestamoService {
     @Autowired
     private ClienteRepositorio clienteRepositorio;
 
-    //ATRIBUTOS SERVICES
+    //ATRIBUTOS DE EXPORTACION
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    //ATRIBUTOS - EVENTOS
     @Autowired
-    private LibroService libroService;
+    private CambiosInventario cambiosInventario;
+
+    //ATRIBUTOS - CACHE DE LIBROS Y CLIENTES
     @Autowired
-    private ClienteService clienteService;
+    private CacheManager cacheManager;
 
     /**
-     * Método para crear una nueva instancia de la entidad Prestamo, con los id del Libro y Cliente que conformarán los atributos de esta instancia
+     * Método para crear una nueva instancia de la entidad Prestamo, con los id del Libro y Cliente que conformarán los atributos de esta instancia.
+     * Los contadores del Libro y del Cliente se actualizan con sentencias UPDATE condicionales, de modo que dos préstamos simultáneos
+     * nunca pueden prestar el mismo ejemplar.
      *
      * @param idLibro Atributo de la nueva instancia
      * @param idCliente Atributo de la nueva instancia
@@ -46,12 +94,12 @@ public class PrestamoService {
      * @throws ClienteServiceException Si no se encuentra el Cliente solicitado
      * @throws PrestamoServiceException Si el préstamo no puede efectuarse por falta de ejemplares o algún otro error
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
+    @CambiaTablas({Tabla.PRESTAMOS, Tabla.LIBROS, Tabla.CLIENTES})
     public void crearPrestamo(String idLibro, String idCliente) throws LibroServiceException, ClienteServiceException, PrestamoServiceException {
 
-        //Traemos al Libro que se va a prestar y el Cliente que lo solicita
-        Libro libro = libroService.buscarPorId(idLibro);
-        Cliente cliente = clienteService.buscarPorId(idCliente);
+        //Reservamos un ejemplar del Libro y sumamos el préstamo al Cliente directamente en la base de datos
+        reservarEjemplar(idLibro, idCliente);
 
         //Si ambos son valores válidos, se crea el Prestamo y se setean los atributos para persistirlo
         Prestamo prestamo = new Prestamo();
@@ -59,11 +107,76 @@ public class PrestamoService {
         prestamo.setFechaDevolucion(null);
         prestamo.setAlta(true);
 
-        //Verificamos que el Libro y el Cliente sean válidos, actualizamos los datos de ambos objetos y lo seteamos en el prestamo
-        prestamo = verificarSettear(prestamo, libro, cliente);
+        //Seteamos referencias al Libro y al Cliente sin necesidad de traer ambas entidades completas
+        prestamo.setLibro(libroRepositorio.getById(idLibro));
+        prestamo.setCliente(clienteRepositorio.getById(idCliente));
 
         //Persistimos el nuevo prestamo
         prestamoRepositorio.save(prestamo);
+        olvidarLibros(Collections.singletonList(idLibro));
+        olvidarClientes(Collections.singletonList(idCliente));
+        cambiosInventario.libroModificado(idLibro);
+    }
+
+    /**
+     * Método para prestar varios Libros a un mismo Cliente en una única transacción. Si alguno de los Libros no tiene ejemplares
+     * suficientes, no se efectúa ninguno de los préstamos. Los contadores se actualizan con una sentencia por Libro distinto (en orden
+     * de id, para que dos préstamos múltiples simultáneos no se bloqueen mutuamente) y una sola para el Cliente, y los nuevos
+     * Préstamos se insertan en lotes JDBC.
+     *
+     * @param idCliente Del Cliente que solicita los préstamos
+     * @param idsLibros De los Libros a prestar (un mismo id repetido equivale a varios ejemplares de ese Libro)
+     * @throws LibroServiceException Si no se encuentra alguno de los Libros solicitados
+     * @throws ClienteServiceException Si no se encuentra el Cliente solicitado
+     * @throws PrestamoServiceException Si no se seleccionó ningún Libro o alguno no cuenta con ejemplares suficientes
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @CambiaTablas({Tabla.PRESTAMOS, Tabla.LIBROS, Tabla.CLIENTES})
+    public void crearPrestamos(String idCliente, List<String> idsLibros) throws LibroServiceException, ClienteServiceException, PrestamoServiceException {
+
+        //Tiene que haberse seleccionado al menos un Libro
+        if (idsLibros == null || idsLibros.isEmpty()) {
+            throw new PrestamoServiceException("Debe seleccionar al menos un libro.");
+        }
+
+        //Agrupamos los Libros pedidos para reservar todos los ejemplares de cada uno en una sola sentencia
+        Map<String, Integer> cantidades = new TreeMap<>();
+        for (String idLibro : idsLibros) {
+            cantidades.merge(idLibro, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> pedido : cantidades.entrySet()) {
+            if (libroRepositorio.prestarEjemplares(pedido.getKey(), pedido.getValue()) == 0) {
+                Optional<Libro> libro = libroRepositorio.findById(pedido.getKey());
+                if (libro.isPresent()) {
+                    throw new PrestamoServiceException("No quedan suficientes ejemplares disponibles de '" + libro.get().getTitulo() + "'.");
+                } else {
+                    throw new LibroServiceException("No se ha encontrado uno de los libros solicitados.");
+                }
+            }
+        }
+
+        //Sumamos todos los préstamos al Cliente de una sola vez
+        if (clienteRepositorio.sumarPrestamos(idCliente, idsLibros.size()) == 0) {
+            throw new ClienteServiceException("No se ha encontrado el cliente solicitado.");
+        }
+
+        //Creamos un Prestamo por cada Libro y los persistimos todos juntos
+        Cliente cliente = clienteRepositorio.getById(idCliente);
+        Date fecha = new Date();
+        List<Prestamo> prestamos = new ArrayList<>();
+        for (String idLibro : idsLibros) {
+            Prestamo prestamo = new Prestamo();
+            prestamo.setFechaPrestamo(fecha);
+            prestamo.setFechaDevolucion(null);
+            prestamo.setAlta(true);
+            prestamo.setLibro(libroRepositorio.getById(idLibro));
+            prestamo.setCliente(cliente);
+            prestamos.add(prestamo);
+        }
+        prestamoRepositorio.saveAll(prestamos);
+        olvidarLibros(cantidades.keySet());
+        olvidarClientes(Collections.singletonList(idCliente));
+        cambiosInventario.librosModificados(cantidades.keySet());
     }
 
     /**
@@ -76,15 +189,18 @@ public class PrestamoService {
      * @throws ClienteServiceException Si no se encuentra el Cliente solicitado
      * @throws PrestamoServiceException Si no quedan más ejemplares o no hay cambios con respecto a los valores previos
      */
+    @ReintentoOptimista
     @Transactional
+    @CambiaTablas({Tabla.PRESTAMOS, Tabla.LIBROS, Tabla.CLIENTES})
     public void modificarPrestamo(String idPrestamo, String idLibro, String idCliente) throws LibroServiceException, ClienteServiceException, PrestamoServiceException {
 
-        //Traemos al nuevo Libro que se va a prestar y al nuevo Cliente que lo solicita
-        Libro libroNuevo = libroService.buscarPorId(idLibro);
-        Cliente clienteNuevo = clienteService.buscarPorId(idCliente);
+        //Traemos al nuevo Libro que se va a prestar y al nuevo Cliente que lo solicita. Se leen de los repositorios y no de los
+        //Services porque estos devuelven instancias compartidas desde la cache, y acá las entidades se modifican y se persisten
+        Libro libroNuevo = libroRepositorio.findById(idLibro).orElseThrow(() -> new LibroServiceException("No se ha encontrado el libro solicitado."));
+        Cliente clienteNuevo = clienteRepositorio.findById(idCliente).orElseThrow(() -> new ClienteServiceException("No se ha encontrado el cliente solicitado."));
 
-        //Traemos al prestamo en cuestión a modificar
-        Optional<Prestamo> respuesta = prestamoRepositorio.findById(idPrestamo);
+        //Traemos al prestamo en cuestión a modificar, junto con su Libro y Cliente actuales
+        Optional<Prestamo> respuesta = prestamoRepositorio.buscarConLibroYCliente(idPrestamo);
         if (respuesta.isPresent()) {
 
             //Prestamo a modificar
@@ -99,6 +215,10 @@ public class PrestamoService {
 
             //Persistimos el prestamo actualizado
             prestamoRepositorio.save(prestamo);
+            olvidarLibros(Arrays.asList(libroViejo.getId(), libroNuevo.getId()));
+            olvidarCliente(clienteViejo);
+            olvidarCliente(clienteNuevo);
+            cambiosInventario.librosModificados(Arrays.asList(libroViejo.getId(), libroNuevo.getId()));
 
         } else {
             throw new PrestamoServiceException("No se ha encontrado el prestamo especificado.");
@@ -111,38 +231,109 @@ public class PrestamoService {
      * @param id Del Préstamo a dar de baja
      * @throws PrestamoServiceException Si no se encuentra el prestamo en cuestión
      */
+    @ReintentoOptimista
     @Transactional
+    @CambiaTablas({Tabla.PRESTAMOS, Tabla.LIBROS, Tabla.CLIENTES})
     public void darBaja(String id) throws PrestamoServiceException {
 
         //Buscamos el prestamo por id y nos aseguramos de que exista
-        Optional<Prestamo> respuesta = prestamoRepositorio.findById(id);
+        Optional<Prestamo> respuesta = prestamoRepositorio.buscarConLibroYCliente(id);
         if (respuesta.isPresent()) {
 
             //Devolvemos el prestamo usando otro método y persistimos los cambios
             Prestamo prestamo = devolverPrestamo(respuesta.get());
             prestamoRepositorio.save(prestamo);
+            olvidarLibros(Collections.singletonList(prestamo.getLibro().getId()));
+            olvidarCliente(prestamo.getCliente());
+            cambiosInventario.libroModificado(prestamo.getLibro().getId());
 
         } else {
             throw new PrestamoServiceException("No se ha encontrado el prestamo solicitado.");
         }
     }
 
+    /**
+     * Método para devolver muchos Préstamos de una sola vez (por ejemplo, los libros acumulados en el buzón de devoluciones). Los
+     * Préstamos se dan de baja con una única sentencia y los contadores se restauran con una sentencia por Libro y otra por Cliente,
+     * sin traer ninguna entidad a memoria.
+     *
+     * @param ids De los Préstamos a devolver
+     * @return Un resumen con el resultado de cada id recibido, en el mismo orden
+     * @throws PrestamoServiceException Si no se recibió ningún id o algún Préstamo fue modificado por otro usuario durante la devolución
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @CambiaTablas({Tabla.PRESTAMOS, Tabla.LIBROS, Tabla.CLIENTES})
+    public Map<String, String> devolverPrestamos(List<String> ids) throws PrestamoServiceException {
+
+        //Tiene que haberse seleccionado al menos un Préstamo
+        if (ids == null || ids.isEmpty()) {
+            throw new PrestamoServiceException("Debe seleccionar al menos un prestamo.");
+        }
+
+        //En principio ningún id fue encontrado. Los que existan se irán reemplazando con su resultado
+        Map<String, String> resultados = new LinkedHashMap<>();
+        for (String id : ids) {
+            resultados.put(id, "No se ha encontrado el prestamo.");
+        }
+
+        //Traemos el estado de cada Préstamo y agrupamos los activos por Libro y por Cliente
+        List<String> activos = new ArrayList<>();
+        Map<String, Integer> porLibro = new TreeMap<>();
+        Map<String, Integer> porCliente = new TreeMap<>();
+        for (Object[] fila : prestamoRepositorio.buscarEstadoPorIds(resultados.keySet())) {
+            String id = (String) fila[0];
+            if ((Boolean) fila[3]) {
+                activos.add(id);
+                porLibro.merge((String) fila[1], 1, Integer::sum);
+                porCliente.merge((String) fila[2], 1, Integer::sum);
+                resultados.put(id, "Devuelto.");
+            } else {
+                resultados.put(id, "Ya había sido devuelto.");
+            }
+        }
+
+        if (!activos.isEmpty()) {
+
+            //Damos de baja todos los Préstamos activos. Si alguno dejó de estarlo mientras tanto, se deshace toda la devolución
+            if (prestamoRepositorio.devolverPrestamos(activos, new Date()) != activos.size()) {
+                throw new PrestamoServiceException("Algunos prestamos fueron modificados por otro usuario durante la devolución. Por favor, reintente nuevamente.");
+            }
+
+            //Devolvemos los ejemplares a cada Libro y actualizamos los préstamos activos de cada Cliente
+            for (Map.Entry<String, Integer> libro : porLibro.entrySet()) {
+                libroRepositorio.devolverEjemplares(libro.getKey(), libro.getValue());
+            }
+            for (Map.Entry<String, Integer> cliente : porCliente.entrySet()) {
+                clienteRepositorio.restarPrestamos(cliente.getKey(), cliente.getValue());
+            }
+            olvidarLibros(porLibro.keySet());
+            olvidarClientes(porCliente.keySet());
+            cambiosInventario.librosModificados(porLibro.keySet());
+        }
+        return resultados;
+    }
+
     /**
      * Método para dar de alta una instancia de Prestamo en la base de datos. De esta forma, se deshace la fecha de devolución del préstamo y se reactiva como pendiente de devolver.
      *
      * @param id Del préstamo a dar de alta
      * @throws PrestamoServiceException Si no se encuentra el prestamo en cuestión
      */
+    @ReintentoOptimista
     @Transactional
+    @CambiaTablas({Tabla.PRESTAMOS, Tabla.LIBROS, Tabla.CLIENTES})
     public void darAlta(String id) throws PrestamoServiceException {
 
         //Buscamos el prestamo por id y nos aseguramos de que exista
-        Optional<Prestamo> respuesta = prestamoRepositorio.findById(id);
+        Optional<Prestamo> respuesta = prestamoRepositorio.buscarConLibroYCliente(id);
         if (respuesta.isPresent()) {
 
             //Reactivamos el prestamo usando otro método y persistimos los cambios
             Prestamo prestamo = reactivarPrestamo(respuesta.get());
             prestamoRepositorio.save(prestamo);
+            olvidarLibros(Collections.singletonList(prestamo.getLibro().getId()));
+            olvidarCliente(prestamo.getCliente());
+            cambiosInventario.libroModificado(prestamo.getLibro().getId());
 
         } else {
             throw new PrestamoServiceException("No se ha encontrado el prestamo solicitado.");
@@ -153,12 +344,12 @@ public class PrestamoService {
      * Busca y devuelve una instancia de Prestamo correspondiente al id pasado como parámetro
      *
      * @param id De la instancia a buscar y devolver
-     * @return La instancia de Prestamo correspondiente al id
+     * @return La instancia de Prestamo correspondiente al id, con su Libro y Cliente ya cargados
      * @throws PrestamoServiceException Si no se encuentra ninguna instancia
      */
     @Transactional(readOnly = true)
     public Prestamo buscarPorId(String id) throws PrestamoServiceException {
-        Optional<Prestamo> respuesta = prestamoRepositorio.findById(id);
+        Optional<Prestamo> respuesta = prestamoRepositorio.buscarConLibroYCliente(id);
         if (respuesta.isPresent()) {
             return respuesta.get();
         } else {
@@ -182,44 +373,154 @@ public class PrestamoService {
     }
 
     /**
-     * Método que verifica que el Libro y Cliente existan, resta 1 libro restante y suma 1 de los prestados en los atributos del Libro, setea un nuevo prestamo y cantidad de prestamos en el Cliente, guarda ambos datos actualizados en la base de datos y lo setean en el prestamo para ser finalmente devuelto por el método.
+     * Devuelve los Prestamos que siguen al último mostrado, del más reciente al más antiguo, usando paginación por keyset
      *
-     * @param prestamo Donde setear los detalles del nuevo prestamo
-     * @param libro Libro que se va a prestar (debe tener al menos 1 ejemplar restante)
-     * @param cliente Que recibe el prestamo
-     * @return Prestamo con el Libro y el Cliente setados
-     * @throws PrestamoServiceException Si el Libro y/o Cliente son null o si Libro no cuenta con ejemplares disponibles
+     * @param fecha Fecha del último Prestamo mostrado, o null para traer la primera página
+     * @param id Id del último Prestamo mostrado, o null para traer la primera página
+     * @param tamanio Cantidad de Prestamos por página (como máximo {@value #TAMANIO_MAXIMO})
+     * @return Los Prestamos pedidos, indicando si quedan más por mostrar
+     * @throws PrestamoServiceException Si hubo algún problema con la base de datos
      */
-    @Transactional
-    private Prestamo verificarSettear(Prestamo prestamo, Libro libro, Cliente cliente) throws PrestamoServiceException {
+    @Transactional(readOnly = true)
+    public Slice<Prestamo> listarDesde(Date fecha, String id, int tamanio) throws PrestamoServiceException {
 
-        //Verificamos primero que el Libro y el Cliente tengan valores válidos y no estén vacíos
-        if (libro == null) {
-            throw new PrestamoServiceException("No se ha encontrado el libro especificado.");
+        //Pedimos un Prestamo de más para saber si existe una página siguiente
+        int limite = Math.max(1, Math.min(tamanio, TAMANIO_MAXIMO));
+        Pageable pedido = PageRequest.of(0, limite + 1);
+        try {
+            List<Prestamo> prestamos = (fecha == null || id == null)
+                    ? prestamoRepositorio.listarPrimeros(pedido)
+                    : prestamoRepositorio.listarSiguientes(fecha, id, pedido);
+            boolean hayMas = prestamos.size() > limite;
+            if (hayMas) {
+                prestamos = prestamos.subList(0, limite);
+            }
+            return new SliceImpl<>(prestamos, PageRequest.of(0, limite), hayMas);
+        } catch (Exception e) {
+            throw new PrestamoServiceException("Hubo un problema para traer los prestamos.");
         }
-        if (cliente == null) {
-            throw new PrestamoServiceException("No se ha encontrado el cliente especificado.");
+    }
+
+    /**
+     * Escribe el historial completo de Prestamos en el flujo de salida recibido, en formato CSV o NDJSON (un objeto JSON por línea).
+     * Los Prestamos se leen de a uno desde la base de datos y se quitan del contexto de persistencia apenas se escriben, así que el
+     * consumo de memoria no depende de la cantidad de Prestamos.
+     *
+     * @param formato "csv" o "ndjson"
+     * @param salida Flujo donde escribir el historial (por ejemplo, el de la respuesta HTTP)
+     * @throws PrestamoServiceException Si el formato solicitado no es válido
+     * @throws IOException Si hubo algún problema escribiendo en el flujo de salida
+     */
+    @Transactional(readOnly = true)
+    public void exportarHistorial(String formato, OutputStream salida) throws PrestamoServiceException, IOException {
+
+        //Verificamos el formato antes de escribir nada en la salida
+        if (!"csv".equals(formato) && !"ndjson".equals(formato)) {
+            throw new PrestamoServiceException("El formato de exportación debe ser csv o ndjson.");
         }
 
-        //Verificamos que existan ejemplares disponibles para realizar el prestamo
-        if (libro.getEjemplaresRestantes() > 0) {
-            libro.setEjemplaresPrestados(libro.getEjemplaresPrestados() + 1);
-            libro.setEjemplaresRestantes(libro.getEjemplaresRestantes() - 1);
-            prestamo.setLibro(libro);
-            libroRepositorio.save(libro);
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        JsonGenerator json = null;
+        if ("csv".equals(formato)) {
+            escritor.write("id,fechaPrestamo,fechaDevolucion,activo,dniCliente,nombreCliente,apellidoCliente,isbn,tituloLibro\n");
         } else {
-            throw new PrestamoServiceException("No quedan más ejemplares disponibles de este libro.");
+            json = objectMapper.getFactory().createGenerator(escritor);
+            json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
         }
 
-        //Seteamos el nuevo Cliente al prestamo y actualizamos la cantidad de prestamos activos de ese cliente
-        cliente.setCantidadPrestamos(cliente.getCantidadPrestamos() + 1);
+        SimpleDateFormat formatoFecha = new SimpleDateFormat("yyyy-MM-dd");
+        int escritos = 0;
+        try (Stream<Prestamo> prestamos = prestamoRepositorio.exportarHistorial()) {
+            Iterator<Prestamo> iterador = prestamos.iterator();
+            while (iterador.hasNext()) {
+                Prestamo prestamo = iterador.next();
+                if (json == null) {
+                    escribirCsv(escritor, prestamo, formatoFecha);
+                } else {
+                    escribirJson(json, prestamo, formatoFecha);
+                }
 
-        //Seteamos en el Prestamo el Cliente anexado y persistimos el nuevo atributo del mismo
-        prestamo.setCliente(cliente);
-        clienteRepositorio.save(cliente);
+                //Soltamos el Prestamo ya escrito y, cada tanto, también los Libros y Clientes acumulados
+                entityManager.detach(prestamo);
+                if (++escritos % LOTE_EXPORTACION == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        if (json == null) {
+            escritor.flush();
+        } else {
+            json.writeRaw('\n');
+            json.flush();
+        }
+    }
 
-        //Devolvemos el prestamo ya seteado
-        return prestamo;
+    /**
+     * Quita de la cache a los Libros recibidos, cuyos contadores y versión acaban de cambiar. El proxy transaccional de la cache
+     * demora el borrado hasta el commit, así que ninguna lectura concurrente vuelve a guardar el estado anterior.
+     *
+     * @param ids De los Libros modificados
+     */
+    private void olvidarLibros(Collection<String> ids) {
+        Cache libros = cacheManager.getCache(ConfiguracionCache.LIBROS);
+        for (String id : ids) {
+            libros.evict(id);
+        }
+    }
+
+    /**
+     * Quita de la cache (por id y por DNI) a los Clientes modificados con sentencias UPDATE. Como esas sentencias no traen las
+     * entidades, los DNI se leen en una sola consulta.
+     *
+     * @param ids De los Clientes modificados
+     */
+    private void olvidarClientes(Collection<String> ids) {
+        Cache clientes = cacheManager.getCache(ConfiguracionCache.CLIENTES);
+        for (String id : ids) {
+            clientes.evict(id);
+        }
+        Cache clientesPorDni = cacheManager.getCache(ConfiguracionCache.CLIENTES_POR_DNI);
+        for (Long dni : clienteRepositorio.buscarDnis(ids)) {
+            clientesPorDni.evict(dni);
+        }
+    }
+
+    /**
+     * Quita de la cache (por id y por DNI) a un Cliente ya cargado y modificado en esta transacción
+     *
+     * @param cliente Modificado
+     */
+    private void olvidarCliente(Cliente cliente) {
+        cacheManager.getCache(ConfiguracionCache.CLIENTES).evict(cliente.getId());
+        cacheManager.getCache(ConfiguracionCache.CLIENTES_POR_DNI).evict(cliente.getDni());
+    }
+
+    /**
+     * Método que resta 1 ejemplar restante y suma 1 de los prestados en el Libro, y suma 1 préstamo activo al Cliente, usando una
+     * única sentencia UPDATE condicional para cada uno. Si el Libro no tiene ejemplares disponibles, la sentencia no afecta ninguna fila
+     * y el préstamo se rechaza sin haber leído ni modificado la entidad en memoria.
+     *
+     * @param idLibro Del Libro que se va a prestar (debe tener al menos 1 ejemplar restante)
+     * @param idCliente Del Cliente que recibe el prestamo
+     * @throws LibroServiceException Si no se encuentra el Libro solicitado
+     * @throws ClienteServiceException Si no se encuentra el Cliente solicitado
+     * @throws PrestamoServiceException Si el Libro no cuenta con ejemplares disponibles
+     */
+    private void reservarEjemplar(String idLibro, String idCliente) throws LibroServiceException, ClienteServiceException, PrestamoServiceException {
+
+        //Intentamos prestar el ejemplar. Si no se actualizó ninguna fila, el Libro no existe o no le quedan ejemplares
+        if (libroRepositorio.prestarEjemplar(idLibro) == 0) {
+            if (libroRepositorio.existsById(idLibro)) {
+                throw new PrestamoServiceException("No quedan más ejemplares disponibles de este libro.");
+            } else {
+                throw new LibroServiceException("No se ha encontrado el libro solicitado.");
+            }
+        }
+
+        //Actualizamos la cantidad de prestamos activos del cliente
+        if (clienteRepositorio.sumarPrestamo(idCliente) == 0) {
+            throw new ClienteServiceException("No se ha encontrado el cliente solicitado.");
+        }
     }
 
     /**
@@ -378,4 +679,73 @@ public class PrestamoService {
         //Devolvemos el prestamo con la fecha de devolución en null y dado de alta
         return prestamo;
     }
+
+    /**
+     * Escribe un Prestamo como una línea CSV
+     *
+     * @param escritor Donde escribir la línea
+     * @param prestamo A escribir
+     * @param formatoFecha Formato de las fechas
+     */
+    private void escribirCsv(Writer escritor, Prestamo prestamo, SimpleDateFormat formatoFecha) throws IOException {
+        escritor.write(prestamo.getId());
+        escritor.write(',');
+        escritor.write(formatoFecha.format(prestamo.getFechaPrestamo()));
+        escritor.write(',');
+        escritor.write(prestamo.getFechaDevolucion() == null ? "" : formatoFecha.format(prestamo.getFechaDevolucion()));
+        escritor.write(',');
+        escritor.write(String.valueOf(prestamo.getAlta()));
+        escritor.write(',');
+        escritor.write(String.valueOf(prestamo.getCliente().getDni()));
+        escritor.write(',');
+        escritor.write(campoCsv(prestamo.getCliente().getNombre()));
+        escritor.write(',');
+        escritor.write(campoCsv(prestamo.getCliente().getApellido()));
+        escritor.write(',');
+        escritor.write(String.valueOf(prestamo.getLibro().getIsbn()));
+        escritor.write(',');
+        escritor.write(campoCsv(prestamo.getLibro().getTitulo()));
+        escritor.write('\n');
+    }
+
+    /**
+     * Escribe un Prestamo como un objeto JSON en su propia línea
+     *
+     * @param json Generador donde escribir el objeto
+     * @param prestamo A escribir
+     * @param formatoFecha Formato de las fechas
+     */
+    private void escribirJson(JsonGenerator json, Prestamo prestamo, SimpleDateFormat formatoFecha) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", prestamo.getId());
+        json.writeStringField("fechaPrestamo", formatoFecha.format(prestamo.getFechaPrestamo()));
+        json.writeStringField("fechaDevolucion", prestamo.getFechaDevolucion() == null ? null : formatoFecha.format(prestamo.getFechaDevolucion()));
+        json.writeBooleanField("activo", prestamo.getAlta());
+        json.writeObjectFieldStart("cliente");
+        json.writeNumberField("dni", prestamo.getCliente().getDni());
+        json.writeStringField("nombre", prestamo.getCliente().getNombre());
+        json.writeStringField("apellido", prestamo.getCliente().getApellido());
+        json.writeEndObject();
+        json.writeObjectFieldStart("libro");
+        json.writeNumberField("isbn", prestamo.getLibro().getIsbn());
+        json.writeStringField("titulo", prestamo.getLibro().getTitulo());
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    /**
+     * Encierra entre comillas un campo de texto CSV si contiene comas, comillas o saltos de línea
+     *
+     * @param valor Campo a escribir
+     * @return El campo listo para escribir en la línea CSV
+     */
+    private String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
 }
@@ -0,0 +1,10 @@
+package libreria.spring.LibreriaSpring.versiones;
+
+/**
+ * Tablas de la base de datos cuyas modificaciones se siguen en {@link VersionesTablas}
+ *
+ * @author Matias Luca Soto
+ */
+public enum Tabla {
+    AUTORES, EDITORIALES, LIBROS, CLIENTES, PRESTAMOS
+}
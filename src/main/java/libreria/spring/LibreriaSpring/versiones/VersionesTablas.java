@@ -0,0 +1,88 @@
+package libreria.spring.LibreriaSpring.versiones;
+
+import java.security.Principal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Número de versión en memoria de cada tabla, que los Services incrementan con cada escritura (ver
+ * {@link libreria.spring.LibreriaSpring.aspectos.CambiaTablas}). Los listados lo usan como ETag: si ninguna de las tablas que
+ * muestran cambió desde la última visita del navegador, responden 304 Not Modified sin consultar la base de datos ni armar la vista.
+ *
+ * Las versiones arrancan de nuevo con cada inicio de la aplicación, por eso el ETag lleva además el momento de inicio: así nunca
+ * coincide con uno entregado antes de un reinicio.
+ *
+ * Las vistas cambian según haya o no un usuario logueado (la barra de navegación, las acciones disponibles), así que el ETag de
+ * los listados lleva también un hash del nombre del usuario: después de entrar o salir el navegador no puede recibir un 304 por
+ * la página que tenía guardada para el otro estado.
+ *
+ * @author Matias Luca Soto
+ */
+@Component
+public class VersionesTablas {
+
+    //ATRIBUTOS
+    private final String inicio = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Tabla, AtomicLong> versiones = new EnumMap<>(Tabla.class);
+
+    public VersionesTablas() {
+        for (Tabla tabla : Tabla.values()) {
+            versiones.put(tabla, new AtomicLong());
+        }
+    }
+
+    /**
+     * Registra que las tablas recibidas cambiaron. Debe llamarse una vez confirmada la transacción, nunca antes: si no, un listado
+     * podría guardar los datos viejos con la versión nueva
+     *
+     * @param tablas Modificadas
+     */
+    public void incrementar(Tabla... tablas) {
+        for (Tabla tabla : tablas) {
+            versiones.get(tabla).incrementAndGet();
+        }
+    }
+
+    /**
+     * @param tablas Que muestra una vista
+     * @return ETag fuerte (sin comillas) que cambia cada vez que cambia alguna de las tablas
+     */
+    public String etag(Tabla... tablas) {
+        StringBuilder etag = new StringBuilder(inicio);
+        for (Tabla tabla : tablas) {
+            etag.append('-').append(versiones.get(tabla).get());
+        }
+        return etag.toString();
+    }
+
+    /**
+     * Compara el If-None-Match de la petición con la versión actual de las tablas. Si coinciden deja armada la respuesta 304 y el
+     * Controller no debe hacer nada más; si no, agrega el ETag a la respuesta para la próxima visita. En ambos casos pide al navegador
+     * que revalide siempre antes de usar su copia. La versión se lee antes de consultar la base de datos, así que un cambio que
+     * llegue mientras se arma la vista solo provoca una recarga de más, nunca un 304 con datos viejos. El ETag suma el hash del
+     * usuario logueado, porque la vista también depende de él.
+     *
+     * @param solicitud Petición GET del listado
+     * @param tablas Que muestra el listado
+     * @return true si el navegador ya tiene la versión actual
+     */
+    public boolean sinCambios(ServletWebRequest solicitud, Tabla... tablas) {
+        solicitud.getResponse().setHeader("Cache-Control", "private, no-cache");
+        Principal usuario = solicitud.getUserPrincipal();
+        String quien = usuario == null ? "anonimo" : Integer.toString(usuario.getName().hashCode(), 36);
+        return solicitud.checkNotModified(etag(tablas) + "-" + quien);
+    }
+
+    /**
+     * Pide al navegador que no guarde la respuesta (por ejemplo, un listado que no se pudo cargar), para que no vuelva a mostrarla
+     * con un 304 mientras las tablas sigan sin cambios
+     *
+     * @param solicitud Petición GET del listado
+     */
+    public void noGuardar(ServletWebRequest solicitud) {
+        solicitud.getResponse().setHeader("Cache-Control", "no-store");
+    }
+}
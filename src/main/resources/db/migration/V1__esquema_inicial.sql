@@ -0,0 +1,82 @@
+-- Esquema inicial de la base de datos de la librería. A partir de esta versión el esquema lo administra Flyway: cada cambio se
+-- agrega como un nuevo archivo V<n>__descripcion.sql en esta carpeta y nunca se modifica uno ya aplicado. Hibernate solo valida
+-- al iniciar que las entidades coincidan con las tablas (spring.jpa.hibernate.ddl-auto: validate).
+--
+-- Los ids son UUID versión 7 guardados en 16 bytes (BINARY(16), ver GeneradorUuidV7 y TipoIdBinario). Los índices únicos
+-- respaldan las validaciones de los Services (ISBN, título, DNI y nombres de Autores y Editoriales que no pueden repetirse) y los
+-- secundarios siguen el orden de los listados y las búsquedas de los repositorios.
+--
+-- Las mismas migraciones crean la base H2 del perfil 'embebido'. Lo propio de cada motor va en los placeholders ${tipo_id} (tipo
+-- de las columnas de ids) y ${opciones_tabla}, definidos en spring.flyway.placeholders de cada archivo de configuración.
+
+CREATE TABLE autor (
+    id ${tipo_id} NOT NULL,
+    nombre VARCHAR(255),
+    alta BIT,
+    PRIMARY KEY (id)
+) ${opciones_tabla};
+
+CREATE TABLE editorial (
+    id ${tipo_id} NOT NULL,
+    nombre VARCHAR(255),
+    alta BIT,
+    PRIMARY KEY (id)
+) ${opciones_tabla};
+
+CREATE TABLE cliente (
+    id ${tipo_id} NOT NULL,
+    dni BIGINT,
+    nombre VARCHAR(255),
+    apellido VARCHAR(255),
+    telefono VARCHAR(255),
+    alta BIT,
+    cantidad_prestamos INTEGER,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (id)
+) ${opciones_tabla};
+
+CREATE TABLE libro (
+    id ${tipo_id} NOT NULL,
+    isbn BIGINT,
+    titulo VARCHAR(255),
+    anio INTEGER,
+    ejemplares INTEGER,
+    ejemplares_prestados INTEGER,
+    ejemplares_restantes INTEGER,
+    alta BIT,
+    version BIGINT NOT NULL,
+    autor_id ${tipo_id},
+    editorial_id ${tipo_id},
+    PRIMARY KEY (id),
+    CONSTRAINT fk_libro_autor FOREIGN KEY (autor_id) REFERENCES autor (id),
+    CONSTRAINT fk_libro_editorial FOREIGN KEY (editorial_id) REFERENCES editorial (id)
+) ${opciones_tabla};
+
+CREATE TABLE prestamo (
+    id ${tipo_id} NOT NULL,
+    fecha_prestamo DATE,
+    fecha_devolucion DATE,
+    alta BIT,
+    version BIGINT NOT NULL,
+    libro_id ${tipo_id},
+    cliente_id ${tipo_id},
+    PRIMARY KEY (id),
+    CONSTRAINT fk_prestamo_libro FOREIGN KEY (libro_id) REFERENCES libro (id),
+    CONSTRAINT fk_prestamo_cliente FOREIGN KEY (cliente_id) REFERENCES cliente (id)
+) ${opciones_tabla};
+
+CREATE UNIQUE INDEX uk_autor_nombre ON autor (nombre);
+CREATE INDEX idx_autor_alta ON autor (alta, nombre);
+CREATE UNIQUE INDEX uk_editorial_nombre ON editorial (nombre);
+CREATE INDEX idx_editorial_alta ON editorial (alta, nombre);
+CREATE UNIQUE INDEX uk_cliente_dni ON cliente (dni);
+CREATE INDEX idx_cliente_alta ON cliente (alta, apellido);
+CREATE INDEX idx_cliente_nombre ON cliente (alta, nombre);
+CREATE UNIQUE INDEX uk_libro_isbn ON libro (isbn);
+CREATE UNIQUE INDEX uk_libro_titulo ON libro (titulo);
+CREATE INDEX idx_libro_alta ON libro (alta, titulo);
+CREATE INDEX idx_libro_autor ON libro (autor_id);
+CREATE INDEX idx_libro_editorial ON libro (editorial_id);
+CREATE INDEX idx_prestamo_fecha_id ON prestamo (fecha_prestamo, id);
+CREATE INDEX idx_prestamo_cliente ON prestamo (cliente_id, alta);
+CREATE INDEX idx_prestamo_libro ON prestamo (libro_id, alta);
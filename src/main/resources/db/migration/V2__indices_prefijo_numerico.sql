@@ -0,0 +1,7 @@
+-- Índices para las búsquedas de autocompletado por prefijo de DNI y de ISBN (ver BusquedaPrefijo), que filtran por alta = true
+-- y un rango del número. Con solo el índice único sobre el número, H2 elegía el que empieza por 'alta' y recorría y ordenaba
+-- todos los registros activos en cada consulta. Las consultas ordenan por (alta, número) para que el índice ya entregue las filas
+-- en orden y se pueda cortar en el límite.
+
+CREATE INDEX idx_cliente_alta_dni ON cliente (alta, dni);
+CREATE INDEX idx_libro_alta_isbn ON libro (alta, isbn);
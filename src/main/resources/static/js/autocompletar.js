@@ -0,0 +1,106 @@
+//
+// Autocompletado de Clientes y Libros para los formularios de préstamos. Cada campo de texto con el atributo
+// data-autocompletar consulta esa URL (?q=...) mientras se escribe y muestra las sugerencias devueltas ({id, nombre}).
+// Al elegir una, su id se guarda en el input oculto indicado por data-destino, o, si el campo tiene data-multiple,
+// se agrega como un input oculto más con ese nombre para poder elegir varias.
+//
+
+window.addEventListener('DOMContentLoaded', () => {
+
+    const ESPERA_MS = 250;
+    const MINIMO_CARACTERES = 2;
+
+    document.querySelectorAll('input[data-autocompletar]').forEach(campo => {
+        const contenedor = campo.closest('.autocompletar');
+        const sugerencias = contenedor.querySelector('.sugerencias');
+        const destino = campo.dataset.destino ? document.getElementById(campo.dataset.destino) : null;
+        const seleccionados = contenedor.querySelector('.seleccionados');
+        let temporizador = null;
+        let consulta = null;
+
+        const limpiar = () => {
+            sugerencias.innerHTML = '';
+        };
+
+        const elegir = opcion => {
+            if (campo.dataset.multiple) {
+                if (seleccionados.querySelector('input[value="' + CSS.escape(opcion.id) + '"]')) {
+                    campo.value = '';
+                    limpiar();
+                    return;
+                }
+                const elegido = document.createElement('span');
+                elegido.className = 'badge bg-light text-dark me-2 mb-2';
+                elegido.textContent = opcion.nombre + ' ';
+                const oculto = document.createElement('input');
+                oculto.type = 'hidden';
+                oculto.name = campo.dataset.multiple;
+                oculto.value = opcion.id;
+                const quitar = document.createElement('button');
+                quitar.type = 'button';
+                quitar.className = 'btn-close btn-sm';
+                quitar.addEventListener('click', () => elegido.remove());
+                elegido.append(oculto, quitar);
+                seleccionados.appendChild(elegido);
+                campo.value = '';
+            } else {
+                destino.value = opcion.id;
+                campo.value = opcion.nombre;
+            }
+            campo.setCustomValidity('');
+            limpiar();
+        };
+
+        const buscar = () => {
+            const texto = campo.value.trim();
+            if (texto.length < MINIMO_CARACTERES) {
+                limpiar();
+                return;
+            }
+            // Si llega una respuesta vieja después de una más nueva, se descarta
+            if (consulta) {
+                consulta.abort();
+            }
+            consulta = new AbortController();
+            fetch(campo.dataset.autocompletar + '?q=' + encodeURIComponent(texto), {signal: consulta.signal})
+                .then(respuesta => respuesta.json())
+                .then(opciones => {
+                    limpiar();
+                    opciones.forEach(opcion => {
+                        const item = document.createElement('button');
+                        item.type = 'button';
+                        item.className = 'list-group-item list-group-item-action';
+                        item.textContent = opcion.nombre;
+                        item.addEventListener('click', () => elegir(opcion));
+                        sugerencias.appendChild(item);
+                    });
+                })
+                .catch(error => {
+                    if (error.name !== 'AbortError') {
+                        limpiar();
+                    }
+                });
+        };
+
+        campo.addEventListener('input', () => {
+            // Escribir de nuevo invalida la elección anterior hasta que se elija otra sugerencia
+            if (destino) {
+                destino.value = '';
+            }
+            clearTimeout(temporizador);
+            temporizador = setTimeout(buscar, ESPERA_MS);
+        });
+
+        // El formulario no se envía si no se eligió ninguna sugerencia
+        campo.form.addEventListener('submit', evento => {
+            const vacio = campo.dataset.multiple
+                ? !seleccionados.querySelector('input[type="hidden"]')
+                : !destino.value;
+            if (vacio) {
+                campo.setCustomValidity('Elija una opción de la lista de sugerencias.');
+                campo.reportValidity();
+                evento.preventDefault();
+            }
+        });
+    });
+});
@@ -0,0 +1,29 @@
+//
+// Actualización en vivo del listado de Libros. La tabla con el atributo data-existencias se suscribe a esa URL (Server-Sent
+// Events) y cada evento 'existencias' trae un arreglo con el estado actual de los Libros que cambiaron ({id, ejemplares,
+// prestados, restantes}). Las filas de esos Libros que estén en la página se corrigen en el lugar, sin recargarla. Si la
+// conexión se corta, el navegador la vuelve a abrir solo.
+//
+
+window.addEventListener('DOMContentLoaded', () => {
+
+    const tabla = document.querySelector('table[data-existencias]');
+    if (!tabla || !window.EventSource) {
+        return;
+    }
+
+    const fuente = new EventSource(tabla.dataset.existencias);
+    fuente.addEventListener('existencias', evento => {
+        JSON.parse(evento.data).forEach(cambio => {
+            const fila = tabla.querySelector('tr[data-libro="' + CSS.escape(cambio.id) + '"]');
+            if (!fila) {
+                return;
+            }
+            fila.querySelector('.ejemplares').textContent = cambio.ejemplares;
+            fila.querySelector('.prestados').textContent = cambio.prestados;
+            fila.querySelector('.restantes').textContent = cambio.restantes;
+        });
+    });
+
+    window.addEventListener('beforeunload', () => fuente.close());
+});
@@ -2,8 +2,10 @@ package libreria.spring.LibreriaSpring;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest
+@ActiveProfiles("embebido")
 class LibreriaSpringApplicationTests {
 
 	@Test
@@ -0,0 +1,108 @@
+package libreria.spring.LibreriaSpring.aspectos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import libreria.spring.LibreriaSpring.entidades.Libro;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests de la Clase ReintentoOptimistaAspecto, aplicado sobre una operación que falla por bloqueo optimista una cantidad fija de
+ * veces antes de terminar bien
+ *
+ * @author Matias Luca Soto
+ */
+class ReintentoOptimistaAspectoTests {
+
+	private static final int MAXIMO_REINTENTOS = 3;
+	private static final String METODO = "Operacion.ejecutar";
+
+	private MeterRegistry registro;
+	private Operacion operacion;
+	private Operacion proxy;
+
+	@BeforeEach
+	void crearProxy() {
+		registro = new SimpleMeterRegistry();
+		ReintentoOptimistaAspecto aspecto = new ReintentoOptimistaAspecto();
+		ReflectionTestUtils.setField(aspecto, "registro", registro);
+		ReflectionTestUtils.setField(aspecto, "maximoReintentos", MAXIMO_REINTENTOS);
+		ReflectionTestUtils.setField(aspecto, "esperaInicial", 1L);
+
+		operacion = new Operacion();
+		AspectJProxyFactory fabrica = new AspectJProxyFactory(operacion);
+		fabrica.setProxyTargetClass(true);
+		fabrica.addAspect(aspecto);
+		proxy = fabrica.getProxy();
+	}
+
+	@Test
+	void reintentaHastaQueTermineBien() {
+		operacion.fallas = 2;
+
+		assertEquals("ok", proxy.ejecutar());
+		assertEquals(3, operacion.llamadas);
+		assertEquals(2.0, registro.counter("libreria.bloqueo.optimista.reintentos", "metodo", METODO).count());
+		assertEquals(0.0, registro.counter("libreria.bloqueo.optimista.conflictos", "metodo", METODO).count());
+	}
+
+	@Test
+	void abandonaAlAgotarLosReintentos() {
+		operacion.fallas = Integer.MAX_VALUE;
+
+		assertThrows(ObjectOptimisticLockingFailureException.class, proxy::ejecutar);
+		assertEquals(MAXIMO_REINTENTOS + 1, operacion.llamadas);
+		assertEquals(MAXIMO_REINTENTOS, registro.counter("libreria.bloqueo.optimista.reintentos", "metodo", METODO).count());
+		assertEquals(1.0, registro.counter("libreria.bloqueo.optimista.conflictos", "metodo", METODO).count());
+	}
+
+	@Test
+	void noReintentaDentroDeOtraTransaccion() {
+		operacion.fallas = 1;
+
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		try {
+			assertThrows(ObjectOptimisticLockingFailureException.class, proxy::ejecutar);
+		} finally {
+			TransactionSynchronizationManager.setActualTransactionActive(false);
+		}
+		assertEquals(1, operacion.llamadas);
+		assertEquals(0.0, registro.counter("libreria.bloqueo.optimista.reintentos", "metodo", METODO).count());
+	}
+
+	@Test
+	void otrasExcepcionesNoSeReintentan() {
+		operacion.fallas = 0;
+		operacion.error = new IllegalStateException();
+
+		assertThrows(IllegalStateException.class, proxy::ejecutar);
+		assertEquals(1, operacion.llamadas);
+	}
+
+	static class Operacion {
+
+		private int fallas;
+		private int llamadas;
+		private RuntimeException error;
+
+		@ReintentoOptimista
+		public String ejecutar() {
+			llamadas++;
+			if (llamadas <= fallas) {
+				throw new ObjectOptimisticLockingFailureException(Libro.class, "id");
+			}
+			if (error != null) {
+				throw error;
+			}
+			return "ok";
+		}
+	}
+
+}
@@ -0,0 +1,198 @@
+package libreria.spring.LibreriaSpring.busqueda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import libreria.spring.LibreriaSpring.busqueda.IndiceNgramas.Resultado;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests de la Clase IndiceNgramas
+ *
+ * @author Matias Luca Soto
+ */
+class IndiceNgramasTests {
+
+	private IndiceNgramas indice;
+
+	@BeforeEach
+	void crearIndice() {
+		indice = new IndiceNgramas();
+		indice.indexar("1", "Gabriel García Márquez");
+		indice.indexar("2", "Jorge Luis Borges");
+		indice.indexar("3", "Julio Cortázar");
+		indice.indexar("4", "Adolfo Bioy Casares");
+		indice.indexar("5", "Marguerite Yourcenar");
+	}
+
+	@Test
+	void buscaSinImportarMayusculasNiAcentos() {
+		assertEquals(ids("1"), ids(indice.buscar("GARCIA", 10)));
+		assertEquals(ids("3"), ids(indice.buscar("cortazar", 10)));
+		assertEquals("Gabriel García Márquez", indice.buscar("garcía", 10).get(0).getNombre());
+	}
+
+	@Test
+	void primeroLosComienzosDePalabraYDespuesElResto() {
+
+		//'mar' empieza una palabra de 'Gabriel García Márquez' y de 'Marguerite Yourcenar', y está en el medio de 'Amargo'
+		indice.indexar("6", "Ramón Gómez de la Serna Amargo");
+		List<Resultado> resultados = indice.buscar("mar", 10);
+		assertEquals(ids("1", "5", "6"), ids(resultados));
+		assertEquals("6", resultados.get(2).getId());
+		assertEquals(2, indice.buscar("mar", 2).size());
+	}
+
+	@Test
+	void consultasDeUnaODosLetrasBuscanComienzosDePalabra() {
+		assertEquals(ids("2", "3"), ids(indice.buscar("j", 10)));
+		assertEquals(ids("1", "5"), ids(indice.buscar("ma", 10)));
+		assertEquals(ids("4"), ids(indice.buscar("bi", 10)));
+
+		//'ar' solo aparece dentro de palabras
+		assertTrue(indice.buscar("ar", 10).isEmpty());
+	}
+
+	@Test
+	void reemplazaYQuita() {
+		indice.indexar("2", "Ernesto Sabato");
+		assertTrue(indice.buscar("borges", 10).isEmpty());
+		assertEquals(ids("2"), ids(indice.buscar("sabato", 10)));
+		assertEquals(5, indice.tamanio());
+
+		indice.quitar("2");
+		indice.quitar("no existe");
+		assertTrue(indice.buscar("sabato", 10).isEmpty());
+		assertTrue(indice.buscar("e", 10).isEmpty());
+		assertTrue(indice.buscarParecidos("ernesto sabato", 10, 0.1).isEmpty());
+		assertEquals(4, indice.tamanio());
+	}
+
+	@Test
+	void compactaCuandoLosBorradosSuperanALosVigentes() {
+		indice.quitar("1");
+		indice.quitar("2");
+		assertEquals(5, ReflectionTestUtils.getField(indice, "cantidad"));
+
+		//El tercer borrado supera a los vigentes: las posiciones se vuelven a asignar solo para los textos que quedan
+		indice.quitar("3");
+		assertEquals(2, ReflectionTestUtils.getField(indice, "cantidad"));
+		assertEquals(0, ReflectionTestUtils.getField(indice, "borrados"));
+		assertEquals(2, indice.tamanio());
+
+		assertEquals(ids("4"), ids(indice.buscar("bioy", 10)));
+		assertEquals(ids("5"), ids(indice.buscarParecidos("margerite yourcenar", 10, 0.3)));
+		assertTrue(indice.buscar("garcia", 10).isEmpty());
+
+		indice.indexar("7", "Alfonsina Storni");
+		assertEquals(ids("4", "7"), ids(indice.buscar("a", 10)));
+	}
+
+	@Test
+	void parecidosOrdenadosDelMasAlMenosParecido() {
+		indice.indexar("6", "Gabriel Garcia");
+		indice.indexar("7", "Gabriela Mistral");
+
+		//Con errores de tipeo y las palabras en otro orden
+		List<Resultado> resultados = indice.buscarParecidos("marques gabriel garsia", 10, 0.3);
+		assertEquals("1", resultados.get(0).getId());
+		assertEquals("6", resultados.get(1).getId());
+		assertEquals(1, indice.buscarParecidos("marques gabriel garsia", 1, 0.3).size());
+		assertTrue(indice.buscarParecidos("zzzz", 10, 0.1).isEmpty());
+	}
+
+	@Test
+	void laPodaDeCandidatosNoPierdeResultados() {
+
+		//Compara contra el cálculo directo del coeficiente de Dice sobre todos los textos, con palabras de un alfabeto chico para
+		//que muchos textos compartan trigramas comunes
+		Random azar = new Random(42);
+		IndiceNgramas grande = new IndiceNgramas();
+		Map<String, String> textos = new HashMap<>();
+		for (int i = 0; i < 2000; i++) {
+			String texto = palabra(azar) + " " + palabra(azar);
+			textos.put(String.valueOf(i), texto);
+			grande.indexar(String.valueOf(i), texto);
+		}
+		for (int i = 0; i < 2000; i += 3) {
+			grande.quitar(String.valueOf(i));
+			textos.remove(String.valueOf(i));
+		}
+
+		for (int consulta = 0; consulta < 50; consulta++) {
+			String buscado = palabra(azar) + " " + palabra(azar);
+			for (double minimo : new double[]{0.2, 0.4, 0.6}) {
+				Set<String> esperados = new HashSet<>();
+				for (Map.Entry<String, String> texto : textos.entrySet()) {
+					if (dice(buscado, texto.getValue()) >= minimo) {
+						esperados.add(texto.getKey());
+					}
+				}
+				List<Resultado> resultados = grande.buscarParecidos(buscado, textos.size(), minimo);
+				assertEquals(esperados, ids(resultados), buscado + " " + minimo);
+
+				List<Double> puntajes = resultados.stream().map(r -> dice(buscado, r.getNombre())).collect(Collectors.toList());
+				for (int i = 1; i < puntajes.size(); i++) {
+					assertTrue(puntajes.get(i - 1) >= puntajes.get(i));
+				}
+
+				//Con un límite chico el umbral sube con los mejores ya encontrados: los puntajes tienen que ser los 5 mayores
+				List<Double> mayores = esperados.stream().map(id -> dice(buscado, textos.get(id)))
+						.sorted(Comparator.reverseOrder()).limit(5).collect(Collectors.toList());
+				List<Double> primeros = grande.buscarParecidos(buscado, 5, minimo).stream().map(r -> dice(buscado, r.getNombre()))
+						.collect(Collectors.toList());
+				assertEquals(mayores, primeros, buscado + " " + minimo);
+			}
+		}
+	}
+
+	private static String palabra(Random azar) {
+		StringBuilder palabra = new StringBuilder();
+		int largo = 3 + azar.nextInt(5);
+		for (int i = 0; i < largo; i++) {
+			palabra.append("aeiolmnrs".charAt(azar.nextInt(9)));
+		}
+		return palabra.toString();
+	}
+
+	private static double dice(String a, String b) {
+		Set<String> trigramasA = trigramas(a);
+		Set<String> trigramasB = trigramas(b);
+		int total = trigramasA.size() + trigramasB.size();
+		trigramasA.retainAll(trigramasB);
+		return 2.0 * trigramasA.size() / total;
+	}
+
+	private static Set<String> trigramas(String texto) {
+		String conBordes = " " + IndiceNgramas.normalizar(texto) + " ";
+		Set<String> trigramas = new HashSet<>();
+		for (int i = 0; i + 3 <= conBordes.length(); i++) {
+			trigramas.add(conBordes.substring(i, i + 3));
+		}
+		return trigramas;
+	}
+
+	private static Set<String> ids(String... ids) {
+		Set<String> conjunto = new HashSet<>();
+		for (String id : ids) {
+			conjunto.add(id);
+		}
+		return conjunto;
+	}
+
+	private static Set<String> ids(List<Resultado> resultados) {
+		return resultados.stream().map(Resultado::getId).collect(Collectors.toSet());
+	}
+
+}
@@ -0,0 +1,165 @@
+package libreria.spring.LibreriaSpring.busqueda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import libreria.spring.LibreriaSpring.entidades.Autor;
+import libreria.spring.LibreriaSpring.entidades.Editorial;
+import libreria.spring.LibreriaSpring.entidades.GeneradorUuidV7;
+import libreria.spring.LibreriaSpring.entidades.Libro;
+import libreria.spring.LibreriaSpring.rendimiento.Cronometro;
+import libreria.spring.LibreriaSpring.servicios.LibroService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Prueba de rendimiento de la búsqueda de texto completo con 1.000.000 de Libros. Los Libros se indexan directamente en el
+ * CatalogoLucene del perfil 'embebido' (en lotes de una transacción, como una importación), sin guardarlos en la base, y se mide
+ * LibroService.buscarEnCatalogo con el límite de resultados de la vista de búsqueda para distintos tipos de consulta: palabras
+ * comunes y únicas del título, sin acentos, Autor, dos palabras a la vez, ISBN y año.
+ *
+ * Al terminar el índice se reconstruye desde la base, para no dejar el millón de documentos en memoria.
+ *
+ * @author Matias Luca Soto
+ */
+@SpringBootTest
+@ActiveProfiles("embebido")
+@Tag("rendimiento")
+class RendimientoCatalogoLuceneTests {
+
+	private static final int LIBROS = 1_000_000;
+	private static final int LOTE = 50_000;
+	private static final int RESULTADOS = 50;
+
+	private static final String[] PALABRAS = {"historia", "crónica", "canción", "noche", "mañana", "árbol", "corazón", "ciudad",
+		"viaje", "memorias", "última", "sombra", "jardín", "tiempo", "guerra", "amor", "mar", "río", "montaña", "invierno", "verano",
+		"señor", "niña", "casa", "camino", "cuentos", "poemas", "vida", "muerte", "luz", "fuego", "agua", "tierra", "cielo", "sueño",
+		"secreto", "isla", "pájaro", "lágrimas", "silencio"};
+	private static final String[] NOMBRES = {"Gabriel", "Julio", "Isabel", "Mario", "Laura", "Jorge", "Silvina", "Adolfo",
+		"Alfonsina", "Ernesto", "María", "José", "Ana", "Pablo", "Elena", "Ricardo", "Clara", "Roberto", "Olga", "Tomás"};
+	private static final String[] APELLIDOS = {"García", "Márquez", "Cortázar", "Allende", "Vargas", "Llosa", "Borges", "Ocampo",
+		"Bioy", "Casares", "Storni", "Sábato", "Neruda", "Mistral", "Rulfo", "Fuentes", "Paz", "Benedetti", "Onetti", "Quiroga",
+		"Arlt", "Puig", "Walsh", "Piglia", "Saer", "Pizarnik", "Gelman", "Hernández", "Echeverría", "Lugones"};
+
+	@Autowired
+	private CatalogoLucene catalogoLucene;
+	@Autowired
+	private LibroService libroService;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	void reconstruirDesdeLaBase() throws Exception {
+		catalogoLucene.reconstruir();
+	}
+
+	@Test
+	void latenciaDeConsultas() throws Exception {
+		Random azar = new Random(13);
+		List<Autor> autores = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			autores.add(autor(NOMBRES[azar.nextInt(NOMBRES.length)] + " " + APELLIDOS[azar.nextInt(APELLIDOS.length)] + " "
+					+ APELLIDOS[azar.nextInt(APELLIDOS.length)]));
+		}
+		List<Editorial> editoriales = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			editoriales.add(editorial("Ediciones " + palabraRara(azar) + " " + i));
+		}
+
+		//Los títulos mezclan palabras comunes con otras inventadas, que se repiten menos; uno solo tiene además una palabra larga
+		//inventada, que no aparece en ningún otro
+		TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+		String palabraRara = null;
+		long inicio = System.nanoTime();
+		for (int desde = 0; desde < LIBROS; desde += LOTE) {
+			List<Libro> lote = new ArrayList<>(LOTE);
+			for (int i = desde; i < desde + LOTE; i++) {
+				StringBuilder titulo = new StringBuilder();
+				int palabras = 2 + azar.nextInt(4);
+				for (int p = 0; p < palabras; p++) {
+					String palabra = azar.nextBoolean() ? PALABRAS[azar.nextInt(PALABRAS.length)] : palabraRara(azar);
+					titulo.append(p == 0 ? "" : " ").append(palabra);
+				}
+				if (i == LIBROS / 2) {
+					palabraRara = palabraRara(azar) + palabraRara(azar);
+					titulo.append(" ").append(palabraRara);
+				}
+				lote.add(libro(i, titulo.toString(), autores.get(azar.nextInt(autores.size())),
+						editoriales.get(azar.nextInt(editoriales.size())), 1900 + azar.nextInt(125)));
+			}
+			transaccion.executeWithoutResult(estado -> lote.forEach(catalogoLucene::indexar));
+		}
+		double segundos = (System.nanoTime() - inicio) / 1e9;
+		Cronometro.reportar("%,d libros indexados en %.1f s = %,.0f libros/s", LIBROS, segundos, LIBROS / segundos);
+
+		assertEquals(1, libroService.buscarEnCatalogo(String.valueOf(isbn(LIBROS / 2)), 1).size());
+		assertFalse(libroService.buscarEnCatalogo("cronica", RESULTADOS).isEmpty());
+
+		medir("palabra comun del titulo: 'historia'", "historia");
+		medir("sin acento (encuentra Cronica): 'cronica'", "cronica");
+		medir("dos palabras comunes: 'cronica manana'", "cronica mañana");
+		medir("palabra de un solo Libro: '" + palabraRara + "'", palabraRara);
+		medir("apellido del Autor: 'garcia'", "garcia");
+		medir("Autor y titulo: 'cortazar noche'", "cortazar noche");
+		medir("ISBN exacto", String.valueOf(isbn(LIBROS / 3)));
+		medir("anio: '1987'", "1987");
+	}
+
+	private void medir(String nombre, String consulta) throws Exception {
+		Cronometro.medir(nombre, 200, 2000, () -> libroService.buscarEnCatalogo(consulta, RESULTADOS)).imprimir();
+	}
+
+	/**
+	 * Una palabra inventada de dos a cuatro sílabas, de unas 70.000 posibles
+	 */
+	private static String palabraRara(Random azar) {
+		String[] silabas = {"ca", "lo", "mi", "ter", "pa", "su", "ren", "do", "bra", "ti", "nel", "fo", "ja", "que", "vi", "lle"};
+		StringBuilder palabra = new StringBuilder();
+		int cantidad = 2 + azar.nextInt(3);
+		for (int i = 0; i < cantidad; i++) {
+			palabra.append(silabas[azar.nextInt(silabas.length)]);
+		}
+		return palabra.toString();
+	}
+
+	private static long isbn(int i) {
+		return 9_780_000_000_000L + i;
+	}
+
+	private static Autor autor(String nombre) {
+		Autor autor = new Autor();
+		autor.setId(GeneradorUuidV7.generar());
+		autor.setNombre(nombre);
+		autor.setAlta(true);
+		return autor;
+	}
+
+	private static Editorial editorial(String nombre) {
+		Editorial editorial = new Editorial();
+		editorial.setId(GeneradorUuidV7.generar());
+		editorial.setNombre(nombre);
+		editorial.setAlta(true);
+		return editorial;
+	}
+
+	private static Libro libro(int i, String titulo, Autor autor, Editorial editorial, int anio) {
+		Libro libro = new Libro();
+		libro.setId(GeneradorUuidV7.generar());
+		libro.setIsbn(isbn(i));
+		libro.setTitulo(titulo);
+		libro.setAutor(autor);
+		libro.setEditorial(editorial);
+		libro.setAnio(anio);
+		libro.setAlta(true);
+		return libro;
+	}
+}
@@ -0,0 +1,40 @@
+package libreria.spring.LibreriaSpring.configuraciones;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CompleteConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests de las regiones de la cache de segundo nivel de Hibernate: todas tienen que estar nombradas en application.conf, porque
+ * las que Hibernate crea por su cuenta copian cada entrada serializándola
+ *
+ * @author Matias Luca Soto
+ */
+@SpringBootTest
+@ActiveProfiles("embebido")
+class ConfiguracionCacheTests {
+
+	@Autowired
+	private CacheManager cacheHibernate;
+
+	@Test
+	void regionesGuardanReferencias() {
+		Set<String> regiones = new HashSet<>();
+		cacheHibernate.getCacheNames().forEach(regiones::add);
+		assertTrue(regiones.contains("autor"), regiones.toString());
+		assertTrue(regiones.contains("editorial"), regiones.toString());
+
+		for (String region : regiones) {
+			CompleteConfiguration<?, ?> configuracion = cacheHibernate.getCache(region).getConfiguration(CompleteConfiguration.class);
+			assertFalse(configuracion.isStoreByValue(), region);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package libreria.spring.LibreriaSpring.entidades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests del generador de ids UUID versión 7
+ *
+ * @author Matias Luca Soto
+ */
+class GeneradorUuidV7Tests {
+
+	private static final int HILOS = 8;
+	private static final int POR_HILO = 20_000;
+
+	@Test
+	void versionVarianteYMomento() {
+		long antes = System.currentTimeMillis();
+		UUID id = UUID.fromString(GeneradorUuidV7.generar());
+		long despues = System.currentTimeMillis();
+
+		assertEquals(7, id.version());
+		assertEquals(2, id.variant());
+
+		//Los primeros 48 bits son el milisegundo de creación. Puede adelantarse un poco al reloj si otro test agotó los
+		//contadores de los milisegundos siguientes, pero nunca atrasarse
+		long milisegundos = id.getMostSignificantBits() >>> 16;
+		assertTrue(milisegundos >= antes);
+		assertTrue(milisegundos <= despues + 1000);
+	}
+
+	@Test
+	void crecenDentroDelMismoMilisegundo() {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < POR_HILO; i++) {
+			ids.add(GeneradorUuidV7.generar());
+		}
+
+		//Miles de ids seguidos comparten milisegundo; aun así cada uno tiene que ser mayor que el anterior
+		int mismoMilisegundo = 0;
+		for (int i = 1; i < ids.size(); i++) {
+			assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, ids.get(i - 1) + " >= " + ids.get(i));
+			if (milisegundos(ids.get(i - 1)) == milisegundos(ids.get(i))) {
+				mismoMilisegundo++;
+			}
+		}
+		assertTrue(mismoMilisegundo > 0);
+	}
+
+	@Test
+	void hilosConcurrentesNoRepitenNiDesordenan() throws Exception {
+
+		//Todos los hilos arrancan juntos, para que compitan por los mismos milisegundos
+		ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Future<List<String>>> resultados = new ArrayList<>();
+		for (int h = 0; h < HILOS; h++) {
+			Callable<List<String>> generador = () -> {
+				largada.await();
+				List<String> ids = new ArrayList<>(POR_HILO);
+				for (int i = 0; i < POR_HILO; i++) {
+					ids.add(GeneradorUuidV7.generar());
+				}
+				return ids;
+			};
+			resultados.add(ejecutor.submit(generador));
+		}
+		largada.countDown();
+
+		Set<String> todos = new HashSet<>();
+		for (Future<List<String>> resultado : resultados) {
+			List<String> ids = resultado.get();
+			for (int i = 0; i < ids.size(); i++) {
+				UUID id = UUID.fromString(ids.get(i));
+				assertEquals(7, id.version());
+				assertEquals(2, id.variant());
+				if (i > 0) {
+					assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, ids.get(i - 1) + " >= " + ids.get(i));
+				}
+			}
+			todos.addAll(ids);
+		}
+		ejecutor.shutdown();
+
+		//Ningún id se entregó dos veces, ni siquiera a hilos distintos dentro del mismo milisegundo
+		assertEquals(HILOS * POR_HILO, todos.size());
+	}
+
+	private static long milisegundos(String id) {
+		return UUID.fromString(id).getMostSignificantBits() >>> 16;
+	}
+}
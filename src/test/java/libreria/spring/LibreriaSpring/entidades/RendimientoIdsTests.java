@@ -0,0 +1,201 @@
+package libreria.spring.LibreriaSpring.entidades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import libreria.spring.LibreriaSpring.rendimiento.Cronometro;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Prueba de rendimiento del almacenamiento de los ids: crea el esquema con las migraciones de Flyway en una base H2 en disco (en
+ * modo MySQL, como el perfil 'embebido'), carga Clientes y Libros y mide cuántos Préstamos por segundo se insertan y cuánto ocupan
+ * la tabla con sus índices y el archivo completo. Compara los ids de antes (UUID versión 4 en VARCHAR(36)) con los actuales (UUID
+ * versión 7 en BINARY(16)), y el paso intermedio (versión 7 en VARCHAR(36)) para separar el efecto del orden del efecto del tamaño.
+ *
+ * H2 no es InnoDB, así que los números sirven para comparar las variantes entre sí y no como estimación de producción.
+ *
+ * @author Matias Luca Soto
+ */
+@Tag("rendimiento")
+class RendimientoIdsTests {
+
+	private static final int CLIENTES = 20_000;
+	private static final int LIBROS = 20_000;
+	private static final int PRESTAMOS = 300_000;
+	private static final int LOTE = 1000;
+
+	@Test
+	void insercionYTamanio() throws Exception {
+
+		//Una pasada corta descartada, para que las tres variantes corran con el código ya compilado
+		cargar("calentamiento", "VARCHAR(36)", GeneradorUuidV7::generar, 20_000);
+
+		cargar("antes: UUID v4 en VARCHAR(36)", "VARCHAR(36)", () -> UUID.randomUUID().toString(), PRESTAMOS);
+		cargar("UUID v7 en VARCHAR(36)", "VARCHAR(36)", GeneradorUuidV7::generar, PRESTAMOS);
+		cargar("despues: UUID v7 en BINARY(16)", "BINARY(16)", GeneradorUuidV7::generar, PRESTAMOS);
+	}
+
+	private void cargar(String variante, String tipoId, Supplier<String> ids, int prestamos) throws Exception {
+		Path directorio = Files.createTempDirectory("rendimiento-ids");
+		String url = "jdbc:h2:file:" + directorio.resolve("libreria") + ";MODE=MySQL";
+		try {
+			Map<String, String> placeholders = new HashMap<>();
+			placeholders.put("tipo_id", tipoId);
+			placeholders.put("opciones_tabla", "");
+			Flyway.configure().dataSource(url, "sa", "").placeholders(placeholders).load().migrate();
+
+			boolean binario = tipoId.startsWith("BINARY");
+			try (Connection conexion = DriverManager.getConnection(url, "sa", "")) {
+				conexion.setAutoCommit(false);
+				String[] clientes = new String[CLIENTES];
+				String[] libros = new String[LIBROS];
+				insertarClientes(conexion, ids, binario, clientes);
+				insertarLibros(conexion, ids, binario, libros);
+
+				long inicio = System.nanoTime();
+				insertarPrestamos(conexion, ids, binario, clientes, libros, prestamos);
+				double segundos = (System.nanoTime() - inicio) / 1e9;
+
+				long tablaPrestamo = espacioUsado(conexion, "PRESTAMO");
+				long tablaLibro = espacioUsado(conexion, "LIBRO");
+				try (Statement sentencia = conexion.createStatement()) {
+					sentencia.execute("SHUTDOWN COMPACT");
+				}
+				long archivo = Files.size(directorio.resolve("libreria.mv.db"));
+
+				Cronometro.reportar("%-32s %,d prestamos en %.1f s = %,.0f filas/s | prestamo+indices %,d KB | libro+indices %,d KB "
+						+ "| archivo compactado %,d KB", variante, prestamos, segundos, prestamos / segundos, tablaPrestamo / 1024,
+						tablaLibro / 1024, archivo / 1024);
+			}
+		} finally {
+			borrar(directorio);
+		}
+	}
+
+	private void insertarClientes(Connection conexion, Supplier<String> ids, boolean binario, String[] clientes) throws SQLException {
+		try (PreparedStatement insercion = conexion.prepareStatement("INSERT INTO cliente (id, dni, nombre, apellido, telefono, alta, "
+				+ "cantidad_prestamos, version) VALUES (?, ?, ?, ?, ?, TRUE, 0, 0)")) {
+			for (int i = 0; i < clientes.length; i++) {
+				clientes[i] = ids.get();
+				asignarId(insercion, 1, clientes[i], binario);
+				insercion.setLong(2, 20_000_000L + i);
+				insercion.setString(3, "Nombre " + i);
+				insercion.setString(4, "Apellido " + i);
+				insercion.setString(5, "11" + (40_000_000 + i));
+				agregarAlLote(conexion, insercion, i);
+			}
+			insercion.executeBatch();
+			conexion.commit();
+		}
+	}
+
+	private void insertarLibros(Connection conexion, Supplier<String> ids, boolean binario, String[] libros) throws SQLException {
+		String autor = ids.get();
+		String editorial = ids.get();
+		try (PreparedStatement insercion = conexion.prepareStatement("INSERT INTO autor (id, nombre, alta) VALUES (?, 'Autor', TRUE)")) {
+			asignarId(insercion, 1, autor, binario);
+			insercion.executeUpdate();
+		}
+		try (PreparedStatement insercion = conexion.prepareStatement("INSERT INTO editorial (id, nombre, alta) VALUES (?, 'Editorial', TRUE)")) {
+			asignarId(insercion, 1, editorial, binario);
+			insercion.executeUpdate();
+		}
+		try (PreparedStatement insercion = conexion.prepareStatement("INSERT INTO libro (id, isbn, titulo, anio, ejemplares, "
+				+ "ejemplares_prestados, ejemplares_restantes, alta, version, autor_id, editorial_id) "
+				+ "VALUES (?, ?, ?, 2000, 100, 0, 100, TRUE, 0, ?, ?)")) {
+			for (int i = 0; i < libros.length; i++) {
+				libros[i] = ids.get();
+				asignarId(insercion, 1, libros[i], binario);
+				insercion.setLong(2, 9_780_000_000_000L + i);
+				insercion.setString(3, "Titulo " + i);
+				asignarId(insercion, 4, autor, binario);
+				asignarId(insercion, 5, editorial, binario);
+				agregarAlLote(conexion, insercion, i);
+			}
+			insercion.executeBatch();
+			conexion.commit();
+		}
+	}
+
+	/**
+	 * Inserta los Préstamos en lotes confirmados de a uno, como llegan en producción: con la fecha del día (que avanza) y un Libro
+	 * y un Cliente al azar
+	 */
+	private void insertarPrestamos(Connection conexion, Supplier<String> ids, boolean binario, String[] clientes, String[] libros,
+			int prestamos) throws SQLException {
+		Random azar = new Random(7);
+		LocalDate desde = LocalDate.of(2020, 1, 1);
+		try (PreparedStatement insercion = conexion.prepareStatement("INSERT INTO prestamo (id, fecha_prestamo, fecha_devolucion, alta, "
+				+ "version, libro_id, cliente_id) VALUES (?, ?, ?, TRUE, 0, ?, ?)")) {
+			for (int i = 0; i < prestamos; i++) {
+				LocalDate fecha = desde.plusDays(i / 500);
+				asignarId(insercion, 1, ids.get(), binario);
+				insercion.setObject(2, fecha);
+				insercion.setObject(3, fecha.plusDays(14));
+				asignarId(insercion, 4, libros[azar.nextInt(libros.length)], binario);
+				asignarId(insercion, 5, clientes[azar.nextInt(clientes.length)], binario);
+				agregarAlLote(conexion, insercion, i);
+			}
+			insercion.executeBatch();
+			conexion.commit();
+		}
+
+		try (Statement sentencia = conexion.createStatement(); ResultSet cantidad = sentencia.executeQuery("SELECT COUNT(*) FROM prestamo")) {
+			cantidad.next();
+			assertEquals(prestamos, cantidad.getInt(1));
+		}
+	}
+
+	private void asignarId(PreparedStatement insercion, int indice, String id, boolean binario) throws SQLException {
+		if (binario) {
+			insercion.setBytes(indice, TipoIdBinario.aBytes(id));
+		} else {
+			insercion.setString(indice, id);
+		}
+	}
+
+	private void agregarAlLote(Connection conexion, PreparedStatement insercion, int fila) throws SQLException {
+		insercion.addBatch();
+		if ((fila + 1) % LOTE == 0) {
+			insercion.executeBatch();
+			conexion.commit();
+		}
+	}
+
+	/**
+	 * @return Bytes que ocupan la tabla y sus índices en el archivo de la base
+	 */
+	private long espacioUsado(Connection conexion, String tabla) throws SQLException {
+		try (PreparedStatement consulta = conexion.prepareStatement("SELECT DISK_SPACE_USED(?)")) {
+			consulta.setString(1, tabla);
+			try (ResultSet resultado = consulta.executeQuery()) {
+				resultado.next();
+				return resultado.getLong(1);
+			}
+		}
+	}
+
+	private void borrar(Path directorio) throws IOException {
+		try (Stream<Path> archivos = Files.walk(directorio)) {
+			archivos.sorted(Comparator.reverseOrder()).forEach(archivo -> archivo.toFile().delete());
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package libreria.spring.LibreriaSpring.entidades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests de la conversión de los ids entre texto y BINARY(16)
+ *
+ * @author Matias Luca Soto
+ */
+class TipoIdBinarioTests {
+
+	@Test
+	void idaYVuelta() {
+		String id = GeneradorUuidV7.generar();
+		byte[] bytes = TipoIdBinario.aBytes(id);
+		assertEquals(16, bytes.length);
+		assertEquals(id, TipoIdBinario.aTexto(bytes));
+
+		//Un id escrito en mayúsculas vuelve en el formato canónico
+		assertEquals(id, TipoIdBinario.aTexto(TipoIdBinario.aBytes(id.toUpperCase())));
+	}
+
+	@Test
+	void elOrdenDeLosBytesEsElDelTexto() {
+		String anterior = GeneradorUuidV7.generar();
+		for (int i = 0; i < 10_000; i++) {
+			String siguiente = i % 2 == 0 ? GeneradorUuidV7.generar() : UUID.randomUUID().toString();
+			int texto = Integer.signum(anterior.compareTo(siguiente));
+			int bytes = Integer.signum(comparar(TipoIdBinario.aBytes(anterior), TipoIdBinario.aBytes(siguiente)));
+			assertEquals(texto, bytes, anterior + " / " + siguiente);
+			anterior = siguiente;
+		}
+	}
+
+	@Test
+	void unTextoQueNoEsUuidNoCoincideConNingunId() {
+		assertEquals(0, TipoIdBinario.aBytes("no-es-un-id").length);
+		assertEquals(0, TipoIdBinario.aBytes("").length);
+	}
+
+	/**
+	 * Compara como lo hacen las bases de datos con las columnas binarias: byte a byte y sin signo
+	 */
+	private static int comparar(byte[] a, byte[] b) {
+		for (int i = 0; i < Math.min(a.length, b.length); i++) {
+			int diferencia = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (diferencia != 0) {
+				return diferencia;
+			}
+		}
+		return a.length - b.length;
+	}
+}
@@ -0,0 +1,79 @@
+package libreria.spring.LibreriaSpring.inspeccion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verificaciones sobre las sentencias SQL que ejecuta el hilo del test, para los tests de integración. Cuenta lo mismo que se
+ * registra por solicitud HTTP en producción, así que un test puede fijar cuántas sentencias cuesta un caso de uso:
+ *
+ * <pre>
+ * ContadorConsultas consultas = ContadorConsultas.iniciar();
+ * libroService.listarCatalogo(paginacion);
+ * consultas.assertSentencias(1).assertSinRepeticiones();
+ * </pre>
+ *
+ * Solo se cuentan las sentencias del hilo que lo inició, así que no lo afecta lo que hagan otros tests o hilos en segundo plano.
+ *
+ * @author Matias Luca Soto
+ */
+public final class ContadorConsultas {
+
+	//CANTIDAD DE EJECUCIONES DE UN MISMO SELECT A PARTIR DE LA CUAL SE CONSIDERA UN N+1
+	private static final int REPETICIONES = 2;
+
+	private final RegistroConsultas registro;
+
+	private ContadorConsultas(RegistroConsultas registro) {
+		this.registro = registro;
+	}
+
+	/**
+	 * Empieza a contar las sentencias del hilo actual desde cero
+	 */
+	public static ContadorConsultas iniciar() {
+		return new ContadorConsultas(RegistroConsultas.iniciar());
+	}
+
+	/**
+	 * Deja de contar las sentencias del hilo actual
+	 */
+	public static void terminar() {
+		RegistroConsultas.terminar();
+	}
+
+	/**
+	 * Vuelve los contadores a cero, para medir otro tramo del mismo test
+	 */
+	public ContadorConsultas reiniciar() {
+		registro.reiniciar();
+		return this;
+	}
+
+	public int getSentencias() {
+		return registro.getSentencias();
+	}
+
+	public long getFilas() {
+		return registro.getFilas();
+	}
+
+	public ContadorConsultas assertSentencias(int esperadas) {
+		assertEquals(esperadas, registro.getSentencias(), () -> "Sentencias ejecutadas (" + registro + ")");
+		return this;
+	}
+
+	public ContadorConsultas assertFilas(long esperadas) {
+		assertEquals(esperadas, registro.getFilas(), () -> "Filas leídas (" + registro + ")");
+		return this;
+	}
+
+	/**
+	 * Falla si algún SELECT se ejecutó más de una vez con el mismo texto, lo que suele indicar una relación cargada fila por fila
+	 */
+	public ContadorConsultas assertSinRepeticiones() {
+		assertTrue(registro.getRepetidas(REPETICIONES).isEmpty(),
+				() -> "Consultas repetidas (posible N+1): " + registro.getRepetidas(REPETICIONES));
+		return this;
+	}
+}
@@ -0,0 +1,110 @@
+package libreria.spring.LibreriaSpring.rendimiento;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Mide la duración de una operación para las pruebas de rendimiento (@Tag("rendimiento"), que solo corren con
+ * 'mvn test -P rendimiento'). Primero la ejecuta unas cuantas veces sin medir, para que la JVM la compile y se llenen las caches,
+ * y después toma una muestra por repetición; el resultado se imprime como percentiles:
+ *
+ * <pre>
+ * Cronometro.Mediciones mediciones = Cronometro.medir("busqueda 'garcia'", 200, 2000, () -> indice.buscar("garcia", 10));
+ * mediciones.imprimir();
+ * assertTrue(mediciones.percentil(0.99) &lt; 10_000_000);
+ * </pre>
+ *
+ * Para operaciones de pocos nanosegundos (como el costo de un aspecto) conviene que la operación sea un ciclo de muchas llamadas
+ * y dividir por la cantidad con Mediciones.porLlamada.
+ *
+ * @author Matias Luca Soto
+ */
+public final class Cronometro {
+
+	private Cronometro() {
+	}
+
+	/**
+	 * Una operación a medir
+	 */
+	public interface Operacion {
+
+		void ejecutar() throws Exception;
+	}
+
+	/**
+	 * @param nombre Para el reporte
+	 * @param calentamiento Ejecuciones previas que no se miden
+	 * @param repeticiones Ejecuciones medidas
+	 * @param operacion A medir
+	 * @return Las duraciones medidas
+	 * @throws Exception La excepción de la operación
+	 */
+	public static Mediciones medir(String nombre, int calentamiento, int repeticiones, Operacion operacion) throws Exception {
+		for (int i = 0; i < calentamiento; i++) {
+			operacion.ejecutar();
+		}
+		long[] duraciones = new long[repeticiones];
+		for (int i = 0; i < repeticiones; i++) {
+			long inicio = System.nanoTime();
+			operacion.ejecutar();
+			duraciones[i] = System.nanoTime() - inicio;
+		}
+		Arrays.sort(duraciones);
+		return new Mediciones(nombre, duraciones);
+	}
+
+	/**
+	 * Imprime una línea del reporte de rendimiento
+	 *
+	 * @param formato De String.format
+	 * @param argumentos Del formato
+	 */
+	public static void reportar(String formato, Object... argumentos) {
+		System.out.println("[rendimiento] " + String.format(Locale.ROOT, formato, argumentos));
+	}
+
+	/**
+	 * Las duraciones de las repeticiones medidas, ordenadas de menor a mayor
+	 */
+	public static final class Mediciones {
+
+		private final String nombre;
+		private final long[] duraciones;
+
+		private Mediciones(String nombre, long[] duraciones) {
+			this.nombre = nombre;
+			this.duraciones = duraciones;
+		}
+
+		/**
+		 * @param percentil Entre 0 y 1 (0.5 es la mediana)
+		 * @return La duración en nanosegundos que no supera esa fracción de las repeticiones
+		 */
+		public long percentil(double percentil) {
+			int posicion = (int) Math.ceil(percentil * duraciones.length) - 1;
+			return duraciones[Math.max(0, Math.min(posicion, duraciones.length - 1))];
+		}
+
+		/**
+		 * @param llamadas Cantidad de llamadas que hace cada repetición de la operación
+		 * @return La mediana por llamada, en nanosegundos
+		 */
+		public double porLlamada(int llamadas) {
+			return (double) percentil(0.5) / llamadas;
+		}
+
+		/**
+		 * Imprime la cantidad de repeticiones y los percentiles 50, 95 y 99 y el máximo, en milisegundos
+		 */
+		public void imprimir() {
+			reportar("%-55s n=%d p50=%.3f ms p95=%.3f ms p99=%.3f ms max=%.3f ms", nombre, duraciones.length,
+					milisegundos(percentil(0.5)), milisegundos(percentil(0.95)), milisegundos(percentil(0.99)),
+					milisegundos(duraciones[duraciones.length - 1]));
+		}
+
+		private static double milisegundos(long nanos) {
+			return nanos / 1_000_000.0;
+		}
+	}
+}
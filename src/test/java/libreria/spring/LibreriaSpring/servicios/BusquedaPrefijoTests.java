@@ -0,0 +1,40 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests de los rangos que consulta la búsqueda por prefijo numérico
+ *
+ * @author Matias Luca Soto
+ */
+class BusquedaPrefijoTests {
+
+	@Test
+	void unRangoPorCadaLargo() {
+		List<String> rangos = new ArrayList<>();
+		BusquedaPrefijo.buscarPorPrefijoNumerico("12", 4, 10, (desde, hasta, limite) -> {
+			rangos.add(desde + "-" + hasta);
+			return new ArrayList<>();
+		});
+		assertEquals(List.of("12-12", "120-129", "1200-1299"), rangos);
+	}
+
+	@Test
+	void prefijoConCeroAdelanteNoConsulta() {
+		List<String> rangos = new ArrayList<>();
+		assertTrue(BusquedaPrefijo.buscarPorPrefijoNumerico("007", 8, 10, (desde, hasta, limite) -> {
+			rangos.add(desde + "-" + hasta);
+			return new ArrayList<>();
+		}).isEmpty());
+		assertTrue(BusquedaPrefijo.buscarPorPrefijoNumerico("0", 8, 10, (desde, hasta, limite) -> {
+			rangos.add(desde + "-" + hasta);
+			return new ArrayList<>();
+		}).isEmpty());
+		assertTrue(rangos.isEmpty(), rangos.toString());
+	}
+}
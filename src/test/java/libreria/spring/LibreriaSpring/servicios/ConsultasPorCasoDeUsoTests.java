@@ -0,0 +1,178 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import libreria.spring.LibreriaSpring.configuraciones.ConfiguracionCache;
+import libreria.spring.LibreriaSpring.entidades.Libro;
+import libreria.spring.LibreriaSpring.entidades.Prestamo;
+import libreria.spring.LibreriaSpring.inspeccion.ContadorConsultas;
+import libreria.spring.LibreriaSpring.proyecciones.FilaCatalogo;
+import libreria.spring.LibreriaSpring.repositorios.LibroRepositorio;
+import libreria.spring.LibreriaSpring.repositorios.PrestamoRepositorio;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Cantidad de sentencias SQL de cada caso de uso. Las relaciones de Libro y Prestamo son perezosas, así que cada caso tiene que
+ * pedir con un grafo exactamente lo que usa: si le falta algo, la vista lo cargaría con una consulta más por fila (o fallaría,
+ * porque las entidades se usan fuera de la transacción), y si pide de más, se nota en las relaciones que no deberían estar cargadas.
+ * Las sentencias se cuentan con ContadorConsultas, solo las del hilo del test.
+ *
+ * @author Matias Luca Soto
+ */
+@SpringBootTest
+@ActiveProfiles("embebido")
+class ConsultasPorCasoDeUsoTests {
+
+	@Autowired
+	private PrestamoService prestamoService;
+	@Autowired
+	private LibroService libroService;
+
+	@Autowired
+	private LibroRepositorio libroRepositorio;
+	@Autowired
+	private PrestamoRepositorio prestamoRepositorio;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private CacheManager cacheManager;
+	@Autowired
+	private DatosDePrueba datos;
+
+	private Statistics estadisticas;
+	private String idLibro;
+	private String idCliente;
+
+	@BeforeEach
+	void crearDatos() throws Exception {
+		estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		idLibro = datos.crearLibro(5);
+		idCliente = datos.crearCliente();
+
+		prestamoService.crearPrestamo(idLibro, idCliente);
+	}
+
+	@AfterEach
+	void terminarConteo() {
+		ContadorConsultas.terminar();
+	}
+
+	@Test
+	void listadoDelCatalogoEnUnaSolaSentencia() throws Exception {
+
+		//Libros de distintos Autores y Editoriales: si se resolvieran fila por fila, cada uno agregaría dos consultas
+		datos.crearLibro(5);
+		datos.crearLibro(5);
+		long cantidad = libroRepositorio.count();
+
+		ContadorConsultas consultas = ContadorConsultas.iniciar();
+		Slice<FilaCatalogo> todos = libroService.listarCatalogo(PageRequest.of(0, 1000, Sort.by("titulo")));
+		for (FilaCatalogo fila : todos) {
+			assertNotNull(fila.getAutor());
+			assertNotNull(fila.getEditorial());
+		}
+		assertEquals(cantidad, todos.getNumberOfElements());
+		consultas.assertSentencias(1).assertFilas(cantidad);
+
+		//Una página intermedia tampoco necesita un COUNT
+		consultas.reiniciar();
+		estadisticas.clear();
+		Slice<FilaCatalogo> primera = libroService.listarCatalogo(PageRequest.of(0, 2, Sort.by("titulo")));
+		assertTrue(primera.hasNext());
+		libroService.listarCatalogo(primera.nextPageable());
+		consultas.assertSentencias(2);
+		assertEquals(0, estadisticas.getEntityLoadCount());
+	}
+
+	@Test
+	void formularioDeLibroEnUnaConsulta() throws Exception {
+		cacheManager.getCache(ConfiguracionCache.LIBROS).evict(idLibro);
+
+		ContadorConsultas consultas = ContadorConsultas.iniciar();
+		Libro libro = libroService.buscarPorId(idLibro);
+		assertNotNull(libro.getAutor().getNombre());
+		assertNotNull(libro.getEditorial().getNombre());
+		consultas.assertSentencias(1);
+
+		//La segunda vez sale de la cache, sin consultar la base de datos
+		consultas.reiniciar();
+		libroService.buscarPorId(idLibro);
+		consultas.assertSentencias(0);
+	}
+
+	@Test
+	void listadoDePrestamosEnUnaConsulta() throws Exception {
+		ContadorConsultas consultas = ContadorConsultas.iniciar();
+		List<Prestamo> prestamos = prestamoService.listarDesde(null, null, 100).getContent();
+		for (Prestamo prestamo : prestamos) {
+			assertNotNull(prestamo.getCliente().getNombre());
+			assertNotNull(prestamo.getLibro().getTitulo());
+
+			//El listado no muestra el Autor ni la Editorial del Libro, así que no se traen
+			assertFalse(Hibernate.isInitialized(prestamo.getLibro().getAutor()));
+		}
+		assertFalse(prestamos.isEmpty());
+		consultas.assertSentencias(1).assertSinRepeticiones();
+	}
+
+	@Test
+	void formularioDePrestamoEnUnaConsulta() throws Exception {
+		String idPrestamo = prestamoDelLibro();
+
+		ContadorConsultas consultas = ContadorConsultas.iniciar();
+		Prestamo prestamo = prestamoService.buscarPorId(idPrestamo);
+		assertNotNull(prestamo.getCliente().getApellido());
+		assertNotNull(prestamo.getLibro().getTitulo());
+		consultas.assertSentencias(1);
+	}
+
+	@Test
+	void prestamoSinLeerLibroNiCliente() throws Exception {
+
+		//Dos UPDATE condicionales (ejemplares del Libro y préstamos del Cliente), el INSERT del Préstamo y la lectura del DNI
+		//del Cliente para quitarlo de la cache
+		estadisticas.clear();
+		ContadorConsultas consultas = ContadorConsultas.iniciar();
+		prestamoService.crearPrestamo(idLibro, idCliente);
+		consultas.assertSentencias(4);
+		assertEquals(0, estadisticas.getEntityLoadCount());
+	}
+
+	@Test
+	void devolucionConUnaSolaLectura() throws Exception {
+		String idPrestamo = prestamoDelLibro();
+
+		//El Préstamo se lee junto con su Libro y su Cliente, y después se actualizan los tres
+		estadisticas.clear();
+		ContadorConsultas consultas = ContadorConsultas.iniciar();
+		prestamoService.darBaja(idPrestamo);
+		consultas.assertSentencias(4);
+		assertEquals(3, estadisticas.getEntityUpdateCount());
+	}
+
+	private String prestamoDelLibro() {
+		return prestamoRepositorio.findAll().stream()
+				.filter(prestamo -> prestamo.getLibro().getId().equals(idLibro))
+				.findFirst().get().getId();
+	}
+
+}
@@ -0,0 +1,68 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import libreria.spring.LibreriaSpring.repositorios.AutorRepositorio;
+import libreria.spring.LibreriaSpring.repositorios.ClienteRepositorio;
+import libreria.spring.LibreriaSpring.repositorios.EditorialRepositorio;
+import libreria.spring.LibreriaSpring.repositorios.LibroRepositorio;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Crea los Libros y Clientes que usan los tests de los Services. Los nombres, ISBN y DNI llevan valores al azar para que los
+ * datos de un test no choquen con los de otro sobre la misma base embebida. Es un componente común (no @TestComponent) para que lo
+ * encuentre el escaneo de la aplicación y todos los tests compartan un único ApplicationContext.
+ *
+ * @author Matias Luca Soto
+ */
+@Component
+class DatosDePrueba {
+
+	@Autowired
+	private LibroService libroService;
+	@Autowired
+	private AutorService autorService;
+	@Autowired
+	private EditorialService editorialService;
+	@Autowired
+	private ClienteService clienteService;
+
+	@Autowired
+	private LibroRepositorio libroRepositorio;
+	@Autowired
+	private AutorRepositorio autorRepositorio;
+	@Autowired
+	private EditorialRepositorio editorialRepositorio;
+	@Autowired
+	private ClienteRepositorio clienteRepositorio;
+
+	/**
+	 * Crea un Libro nuevo, con su propio Autor y su propia Editorial
+	 *
+	 * @param ejemplares Cantidad de ejemplares del Libro
+	 * @return El id del Libro creado
+	 */
+	String crearLibro(int ejemplares) throws Exception {
+		String sufijo = UUID.randomUUID().toString();
+		autorService.crearNuevoAutor("Autor " + sufijo);
+		editorialService.crearNuevaEditorial("Editorial " + sufijo);
+		String idAutor = autorRepositorio.buscarPorNombre("Autor " + sufijo).getId();
+		String idEditorial = editorialRepositorio.buscarPorNombre("Editorial " + sufijo).getId();
+
+		Long isbn = ThreadLocalRandom.current().nextLong(1_000_000_000L, Long.MAX_VALUE);
+		libroService.crearLibro(isbn, "Libro " + sufijo, 2000, ejemplares, idAutor, idEditorial);
+		return libroRepositorio.buscarPorIsbn(isbn).getId();
+	}
+
+	/**
+	 * Crea un Cliente nuevo
+	 *
+	 * @return El id del Cliente creado
+	 */
+	String crearCliente() throws Exception {
+		Long dni = ThreadLocalRandom.current().nextLong(1_000_000_000L, Long.MAX_VALUE);
+		clienteService.crearCliente(dni, "Nombre", "Apellido " + UUID.randomUUID(), "1234");
+		return clienteRepositorio.buscarPorDni(dni).getId();
+	}
+}
@@ -0,0 +1,141 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import libreria.spring.LibreriaSpring.entidades.Libro;
+import libreria.spring.LibreriaSpring.repositorios.LibroRepositorio;
+import libreria.spring.LibreriaSpring.servicios.ImportacionService.ResultadoImportacion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests de la importación masiva de Libros: lectura de CSV y NDJSON, rechazo de filas inválidas o repetidas y reintento fila por
+ * fila de un lote que no se pudo guardar
+ *
+ * @author Matias Luca Soto
+ */
+@SpringBootTest
+@ActiveProfiles("embebido")
+class ImportacionServiceTests {
+
+	private static final String ENCABEZADO = "isbn,titulo,anio,ejemplares,autor,editorial";
+
+	@Autowired
+	private ImportacionService importacionService;
+	@Autowired
+	private LibroRepositorio libroRepositorio;
+
+	private String sufijo;
+
+	@BeforeEach
+	void crearSufijo() {
+		sufijo = UUID.randomUUID().toString();
+	}
+
+	@Test
+	void csvConComasYComillasEntreComillas() throws Exception {
+		Long isbn = isbn();
+		ResultadoImportacion resultado = importar("csv", ENCABEZADO,
+				isbn + ",\"Cuentos, tomo 1 " + sufijo + "\",1999,3,\"Autor \"\"el Viejo\"\" " + sufijo + "\",Editorial " + sufijo);
+
+		assertEquals(Collections.emptyMap(), resultado.getRechazos());
+		assertEquals(1, resultado.getImportados());
+		Libro libro = libroRepositorio.buscarConAutorYEditorial(libroRepositorio.buscarPorIsbn(isbn).getId()).get();
+		assertEquals("Cuentos, tomo 1 " + sufijo, libro.getTitulo());
+		assertEquals("Autor \"el Viejo\" " + sufijo, libro.getAutor().getNombre());
+		assertEquals("Editorial " + sufijo, libro.getEditorial().getNombre());
+		assertEquals(3, libro.getEjemplaresRestantes());
+	}
+
+	@Test
+	void csvConCantidadDeCamposIncorrecta() throws Exception {
+		ResultadoImportacion resultado = importar("csv", ENCABEZADO,
+				isbn() + ",Libro " + sufijo + ",2000,1,Autor " + sufijo,
+				isbn() + ",Libro " + sufijo + ",2000,1,Autor " + sufijo + ",Editorial " + sufijo + ",de mas",
+				isbn() + ",\"Libro, " + sufijo + "\",2000,1,Autor " + sufijo + ",Editorial " + sufijo);
+
+		assertEquals(1, resultado.getImportados());
+		assertEquals(2, resultado.getRechazos().size());
+		assertTrue(resultado.getRechazos().get(2).contains("6 campos"));
+		assertTrue(resultado.getRechazos().get(3).contains("6 campos"));
+	}
+
+	@Test
+	void ndjson() throws Exception {
+		Long isbn = isbn();
+		ResultadoImportacion resultado = importar("ndjson",
+				"{\"isbn\":" + isbn + ",\"titulo\":\"Libro " + sufijo + "\",\"anio\":2010,\"ejemplares\":2,"
+				+ "\"autor\":\"Autor " + sufijo + "\",\"editorial\":\"Editorial " + sufijo + "\"}",
+				"no es json",
+				"{\"isbn\":\"abc\",\"titulo\":\"Otro " + sufijo + "\",\"anio\":2010,\"ejemplares\":2,"
+				+ "\"autor\":\"Autor " + sufijo + "\",\"editorial\":\"Editorial " + sufijo + "\"}");
+
+		assertEquals(1, resultado.getImportados());
+		assertEquals("La línea no es un objeto JSON válido.", resultado.getRechazos().get(2));
+		assertTrue(resultado.getRechazos().get(3).contains("no es un número válido"));
+		assertEquals("Libro " + sufijo, libroRepositorio.buscarPorIsbn(isbn).getTitulo());
+	}
+
+	@Test
+	void repetidosDentroDelArchivo() throws Exception {
+		Long isbn = isbn();
+		ResultadoImportacion resultado = importar("csv", ENCABEZADO,
+				isbn + ",Libro " + sufijo + ",2000,1,Autor " + sufijo + ",Editorial " + sufijo,
+				isbn + ",Otro " + sufijo + ",2000,1,Autor " + sufijo + ",Editorial " + sufijo,
+				isbn() + ",LIBRO " + sufijo.toUpperCase() + ",2000,1,Autor " + sufijo + ",Editorial " + sufijo,
+				isbn() + ",Tercero " + sufijo + ",2000,1,AUTOR " + sufijo.toUpperCase() + ",Editorial " + sufijo);
+
+		assertEquals(2, resultado.getImportados());
+		assertEquals("El ISBN ingresado ya pertenece a otro libro.", resultado.getRechazos().get(3));
+		assertEquals("El libro con el titulo ingresado ya existe.", resultado.getRechazos().get(4));
+
+		//El mismo Autor escrito con otras mayúsculas no crea un Autor nuevo
+		Libro primero = libroRepositorio.buscarConAutorYEditorial(libroRepositorio.buscarPorIsbn(isbn).getId()).get();
+		Libro tercero = libroRepositorio.buscarConAutorYEditorial(libroRepositorio.buscarPorTitulo("Tercero " + sufijo).getId()).get();
+		assertEquals(primero.getAutor().getId(), tercero.getAutor().getId());
+	}
+
+	@Test
+	void loteQueFallaSeReintentaFilaPorFila() throws Exception {
+
+		//Un título más largo que la columna pasa las validaciones pero hace fallar el INSERT de todo el lote
+		StringBuilder largo = new StringBuilder(sufijo);
+		while (largo.length() <= 255) {
+			largo.append(" muy largo");
+		}
+		Long valido = isbn();
+		Long invalido = isbn();
+		Long otroValido = isbn();
+		ResultadoImportacion resultado = importar("csv", ENCABEZADO,
+				valido + ",Libro " + sufijo + ",2000,1,Autor " + sufijo + ",Editorial " + sufijo,
+				invalido + "," + largo + ",2000,1,Autor " + sufijo + ",Editorial " + sufijo,
+				otroValido + ",Otro " + sufijo + ",2000,1,Autor " + sufijo + ",Editorial " + sufijo);
+
+		assertEquals(2, resultado.getImportados());
+		assertEquals(Collections.singleton(3), resultado.getRechazos().keySet());
+		assertEquals("Libro " + sufijo, libroRepositorio.buscarPorIsbn(valido).getTitulo());
+		assertEquals("Otro " + sufijo, libroRepositorio.buscarPorIsbn(otroValido).getTitulo());
+		assertNull(libroRepositorio.buscarPorIsbn(invalido));
+	}
+
+	private ResultadoImportacion importar(String formato, String... lineas) throws Exception {
+		InputStream archivo = new ByteArrayInputStream(String.join("\n", lineas).getBytes(StandardCharsets.UTF_8));
+		return importacionService.importarLibros(archivo, formato);
+	}
+
+	private static Long isbn() {
+		return ThreadLocalRandom.current().nextLong(1_000_000_000L, Long.MAX_VALUE);
+	}
+
+}
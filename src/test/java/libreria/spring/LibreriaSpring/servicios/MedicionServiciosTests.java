@@ -0,0 +1,56 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.UUID;
+import libreria.spring.LibreriaSpring.aspectos.MedicionServiciosAspecto;
+import libreria.spring.LibreriaSpring.excepciones.AutorServiceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests de las métricas de duración de los Services: cada llamada se cuenta como éxito o como error del tipo de su excepción
+ *
+ * @author Matias Luca Soto
+ */
+@SpringBootTest
+@ActiveProfiles("embebido")
+class MedicionServiciosTests {
+
+	@Autowired
+	private AutorService autorService;
+	@Autowired
+	private MeterRegistry registro;
+
+	@Test
+	void exitoYErrorPorTipoDeExcepcion() throws Exception {
+		long exitos = cantidad("listarTodos", "exito", "ninguna");
+		long errores = cantidad("buscarPorId", "error", "AutorServiceException");
+
+		autorService.listarTodos();
+		assertThrows(AutorServiceException.class, () -> autorService.buscarPorId(UUID.randomUUID().toString()));
+
+		assertEquals(exitos + 1, cantidad("listarTodos", "exito", "ninguna"));
+		assertEquals(errores + 1, cantidad("buscarPorId", "error", "AutorServiceException"));
+	}
+
+	@Test
+	void percentilesConfigurados() throws Exception {
+		autorService.listarTodos();
+		Timer timer = registro.get(MedicionServiciosAspecto.METRICA).tag("metodo", "listarTodos").tag("resultado", "exito").timer();
+		assertEquals(3, timer.takeSnapshot().percentileValues().length);
+	}
+
+	private long cantidad(String metodo, String resultado, String excepcion) {
+		Timer timer = registro.find(MedicionServiciosAspecto.METRICA)
+				.tags("clase", "AutorService", "metodo", metodo, "resultado", resultado, "excepcion", excepcion)
+				.timer();
+		return timer == null ? 0 : timer.count();
+	}
+
+}
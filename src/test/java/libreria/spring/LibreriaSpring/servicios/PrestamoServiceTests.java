@@ -0,0 +1,131 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import libreria.spring.LibreriaSpring.entidades.Cliente;
+import libreria.spring.LibreriaSpring.entidades.Libro;
+import libreria.spring.LibreriaSpring.excepciones.PrestamoServiceException;
+import libreria.spring.LibreriaSpring.repositorios.ClienteRepositorio;
+import libreria.spring.LibreriaSpring.repositorios.LibroRepositorio;
+import libreria.spring.LibreriaSpring.repositorios.PrestamoRepositorio;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests de concurrencia de la Clase PrestamoService
+ *
+ * @author Matias Luca Soto
+ */
+@SpringBootTest
+@ActiveProfiles("embebido")
+class PrestamoServiceTests {
+
+	private static final int EJEMPLARES = 10;
+	private static final int INTENTOS = 60;
+	private static final int HILOS = 16;
+	private static final int CLIENTES = 5;
+
+	@Autowired
+	private PrestamoService prestamoService;
+	@Autowired
+	private LibroService libroService;
+	@Autowired
+	private ClienteService clienteService;
+
+	@Autowired
+	private LibroRepositorio libroRepositorio;
+	@Autowired
+	private ClienteRepositorio clienteRepositorio;
+	@Autowired
+	private PrestamoRepositorio prestamoRepositorio;
+
+	@Autowired
+	private DatosDePrueba datos;
+
+	@Test
+	void prestamosSimultaneosNoSuperanLosEjemplares() throws Exception {
+
+		//Creamos un Libro con pocos ejemplares y varios Clientes que lo van a pedir al mismo tiempo
+		String idLibro = datos.crearLibro(EJEMPLARES);
+		List<String> idsClientes = new ArrayList<>();
+		for (int i = 0; i < CLIENTES; i++) {
+			idsClientes.add(datos.crearCliente());
+		}
+
+		//Todos los hilos esperan la misma señal de largada para maximizar la contención sobre la fila del Libro
+		ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Future<Boolean>> resultados = new ArrayList<>();
+		for (int i = 0; i < INTENTOS; i++) {
+			String idCliente = idsClientes.get(i % CLIENTES);
+			Callable<Boolean> intento = () -> {
+				largada.await();
+				try {
+					prestamoService.crearPrestamo(idLibro, idCliente);
+					return true;
+				} catch (PrestamoServiceException e) {
+					return false;
+				}
+			};
+			resultados.add(ejecutor.submit(intento));
+		}
+		largada.countDown();
+
+		int exitos = 0;
+		for (Future<Boolean> resultado : resultados) {
+			if (resultado.get()) {
+				exitos++;
+			}
+		}
+		ejecutor.shutdown();
+
+		//Solo pueden haberse concretado tantos préstamos como ejemplares tenía el Libro
+		Libro libro = libroRepositorio.findById(idLibro).get();
+		assertEquals(EJEMPLARES, exitos);
+		assertEquals(0, libro.getEjemplaresRestantes());
+		assertEquals(EJEMPLARES, libro.getEjemplaresPrestados());
+		assertEquals(EJEMPLARES, prestamoRepositorio.findAll().stream()
+				.filter(prestamo -> prestamo.getLibro().getId().equals(idLibro))
+				.count());
+
+		int prestamosClientes = 0;
+		for (String idCliente : idsClientes) {
+			Cliente cliente = clienteRepositorio.findById(idCliente).get();
+			prestamosClientes += cliente.getCantidadPrestamos();
+		}
+		assertEquals(EJEMPLARES, prestamosClientes);
+	}
+
+	@Test
+	void prestamoNoDejaEnCacheLosContadoresViejos() throws Exception {
+		String idLibro = datos.crearLibro(EJEMPLARES);
+		String idCliente = datos.crearCliente();
+		Long dni = clienteRepositorio.findById(idCliente).get().getDni();
+
+		//Dejamos el Libro y el Cliente en la cache antes de prestar
+		assertEquals(0, libroService.buscarPorId(idLibro).getEjemplaresPrestados());
+		assertEquals(0, clienteService.buscarPorId(idCliente).getCantidadPrestamos());
+		assertEquals(0, clienteService.buscarPorDni(dni).getCantidadPrestamos());
+
+		prestamoService.crearPrestamo(idLibro, idCliente);
+		assertEquals(1, libroService.buscarPorId(idLibro).getEjemplaresPrestados());
+		assertEquals(1, clienteService.buscarPorId(idCliente).getCantidadPrestamos());
+		assertEquals(1, clienteService.buscarPorDni(dni).getCantidadPrestamos());
+
+		String idPrestamo = prestamoRepositorio.buscarPorDniCliente(dni).get(0).getId();
+		prestamoService.darBaja(idPrestamo);
+		assertEquals(0, libroService.buscarPorId(idLibro).getEjemplaresPrestados());
+		assertEquals(0, clienteService.buscarPorId(idCliente).getCantidadPrestamos());
+		assertEquals(0, clienteService.buscarPorDni(dni).getCantidadPrestamos());
+	}
+
+}
@@ -0,0 +1,120 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import libreria.spring.LibreriaSpring.busqueda.IndiceClientes;
+import libreria.spring.LibreriaSpring.entidades.GeneradorUuidV7;
+import libreria.spring.LibreriaSpring.rendimiento.Cronometro;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Prueba de rendimiento de la búsqueda de Clientes con 500.000 Clientes activos: la aproximada por nombre y apellido (el índice
+ * de trigramas en memoria) y la de prefijo de DNI (rangos sobre el índice único de la base). Los nombres se arman combinando
+ * nombres y apellidos frecuentes, así que hay miles de homónimos parciales, que es el caso caro del índice. El objetivo es que el
+ * percentil 99 de cada consulta quede por debajo de 10 ms.
+ *
+ * @author Matias Luca Soto
+ */
+@SpringBootTest
+@ActiveProfiles("embebido")
+@Tag("rendimiento")
+class RendimientoBusquedaClientesTests {
+
+	private static final int CLIENTES = 500_000;
+	private static final long PRIMER_DNI = 20_000_000L;
+	private static final long OBJETIVO_NANOS = 10_000_000L;
+	private static final int CALENTAMIENTO = 3000;
+
+	private static final String[] NOMBRES = {"Matías", "Sofía", "Martín", "Valentina", "Joaquín", "Camila", "Lucía", "Nicolás",
+		"Agustín", "Florencia", "Tomás", "Julián", "María", "José", "Juan", "Ana", "Lucas", "Micaela", "Santiago", "Belén", "Ramón",
+		"Inés", "Germán", "Verónica", "Andrés", "Mónica", "Sebastián", "Rocío", "Hernán", "Paula", "Ezequiel", "Carolina", "Gastón",
+		"Natalia", "Ignacio", "Daniela", "Facundo", "Romina", "Esteban", "Cecilia"};
+	private static final String[] APELLIDOS = {"González", "Rodríguez", "Gómez", "Fernández", "López", "Díaz", "Martínez", "Pérez",
+		"García", "Sánchez", "Romero", "Sosa", "Álvarez", "Torres", "Ruiz", "Ramírez", "Flores", "Benítez", "Acosta", "Medina",
+		"Herrera", "Suárez", "Aguirre", "Giménez", "Gutiérrez", "Pereyra", "Rojas", "Molina", "Castro", "Ortiz", "Silva", "Núñez",
+		"Luna", "Juárez", "Cabrera", "Ríos", "Ferreyra", "Godoy", "Morales", "Domínguez", "Moreno", "Peralta", "Vega", "Carrizo",
+		"Quiroga", "Castillo", "Ledesma", "Muñoz", "Ojeda", "Ponce", "Vera", "Vázquez", "Villalba", "Cardozo", "Navarro", "Ramos",
+		"Arias", "Coronel", "Córdoba", "Figueroa", "Correa", "Cáceres", "Vargas", "Maldonado", "Mansilla", "Farías", "Rivero",
+		"Paz", "Miranda", "Roldán", "Méndez", "Lucero", "Cruz", "Hernández", "Agüero", "Páez", "Blanco", "Mendoza", "Barrios",
+		"Escobar", "Ávila", "Soria", "Leiva", "Acuña", "Martín", "Maidana", "Moyano", "Campos", "Olivera", "Duarte", "Soto",
+		"Bravo", "Valdez", "Toledo", "Velázquez", "Montenegro", "Leguizamón", "Chávez", "Arce"};
+
+	@Autowired
+	private ClienteService clienteService;
+	@Autowired
+	private IndiceClientes indiceClientes;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void cargarClientes() {
+		Random azar = new Random(21);
+		List<Object[]> filas = new ArrayList<>(CLIENTES);
+		for (int i = 0; i < CLIENTES; i++) {
+			String nombre = NOMBRES[azar.nextInt(NOMBRES.length)];
+			String apellido = APELLIDOS[azar.nextInt(APELLIDOS.length)];
+			if (azar.nextInt(4) == 0) {
+				apellido += " " + APELLIDOS[azar.nextInt(APELLIDOS.length)];
+			}
+			filas.add(new Object[]{bytes(GeneradorUuidV7.generar()), PRIMER_DNI + i * 7L, nombre, apellido});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO cliente (id, dni, nombre, apellido, telefono, alta, cantidad_prestamos, version) "
+				+ "VALUES (?, ?, ?, ?, '1140000000', TRUE, 0, 0)", filas);
+
+		long inicio = System.nanoTime();
+		indiceClientes.construir();
+		Cronometro.reportar("indice de %,d clientes construido en %.1f s", CLIENTES, (System.nanoTime() - inicio) / 1e9);
+	}
+
+	@AfterEach
+	void borrarClientes() {
+		jdbcTemplate.update("DELETE FROM cliente WHERE dni >= ?", PRIMER_DNI);
+		indiceClientes.construir();
+	}
+
+	@Test
+	void latenciaDeBusquedas() throws Exception {
+		assertFalse(clienteService.buscarOpciones("matias soto", BusquedaPrefijo.LIMITE_SUGERENCIAS).isEmpty());
+
+		medir("nombre y apellido: 'matias soto'", "matias soto");
+		medir("apellido y nombre: 'Soto Matias'", "Soto Matias");
+		medir("con errores de tipeo: 'Mathias Sotto'", "Mathias Sotto");
+		medir("apellido frecuente solo: 'gonzalez'", "gonzalez");
+		medir("nombre frecuente solo: 'maria'", "maria");
+		medir("apellido compuesto: 'gomez fernandez'", "gomez fernandez");
+		medir("nombre completo: 'Valentina Leguizamon Montenegro'", "Valentina Leguizamon Montenegro");
+		medir("sin coincidencias: 'xyzwq'", "xyzwq");
+		medir("prefijo de DNI corto: '2'", "2");
+		medir("prefijo de DNI: '2123'", "2123");
+		medir("DNI completo", String.valueOf(PRIMER_DNI + 7L * (CLIENTES / 2)));
+	}
+
+	/**
+	 * El calentamiento es largo porque las consultas por DNI pasan por Spring Data, Hibernate y H2: con pocas ejecuciones previas
+	 * la JVM sigue compilando ese código durante la medición y las demoras son del compilador, no de la búsqueda
+	 */
+	private void medir(String nombre, String consulta) throws Exception {
+		Cronometro.Mediciones mediciones = Cronometro.medir(nombre, CALENTAMIENTO, 2000,
+				() -> clienteService.buscarOpciones(consulta, BusquedaPrefijo.LIMITE_SUGERENCIAS));
+		mediciones.imprimir();
+		assertTrue(mediciones.percentil(0.99) < OBJETIVO_NANOS, nombre);
+	}
+
+	private static byte[] bytes(String id) {
+		UUID uuid = UUID.fromString(id);
+		return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+	}
+}
@@ -0,0 +1,105 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.EntityManagerFactory;
+import libreria.spring.LibreriaSpring.entidades.Autor;
+import libreria.spring.LibreriaSpring.entidades.GeneradorUuidV7;
+import libreria.spring.LibreriaSpring.rendimiento.Cronometro;
+import libreria.spring.LibreriaSpring.repositorios.AutorRepositorio;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Prueba de rendimiento de listarActivos con 100.000 Autores, el 10% dados de baja: compara traer todos con findAll() y filtrar
+ * en Java (como se hacía antes) con la consulta del repositorio que filtra en la base de datos apoyada en el índice (alta, nombre).
+ * Además de los tiempos reporta cuántas entidades carga Hibernate en cada caso.
+ *
+ * @author Matias Luca Soto
+ */
+@SpringBootTest
+@ActiveProfiles("embebido")
+@Tag("rendimiento")
+class RendimientoListarActivosTests {
+
+	private static final int AUTORES = 100_000;
+	private static final int CADA_CUANTOS_INACTIVO = 10;
+	private static final String PREFIJO = "Rendimiento ";
+
+	@Autowired
+	private AutorService autorService;
+	@Autowired
+	private AutorRepositorio autorRepositorio;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@BeforeEach
+	void cargarAutores() {
+		List<Object[]> filas = new ArrayList<>(AUTORES);
+		for (int i = 0; i < AUTORES; i++) {
+			filas.add(new Object[]{bytes(GeneradorUuidV7.generar()), String.format("%s%06d", PREFIJO, i), i % CADA_CUANTOS_INACTIVO != 0});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO autor (id, nombre, alta) VALUES (?, ?, ?)", filas);
+	}
+
+	@AfterEach
+	void borrarAutores() {
+		jdbcTemplate.update("DELETE FROM autor WHERE nombre LIKE ?", PREFIJO + "%");
+	}
+
+	@Test
+	void filtrarEnLaBaseContraFiltrarEnJava() throws Exception {
+		TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+		transaccion.setReadOnly(true);
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		//Lo que hacía listarActivos antes: todas las filas a memoria y el filtro en un ciclo
+		Cronometro.Operacion antes = () -> transaccion.execute(estado -> {
+			List<Autor> activos = new ArrayList<>();
+			for (Autor autor : autorRepositorio.findAll()) {
+				if (autor.getAlta()) {
+					activos.add(autor);
+				}
+			}
+			return activos;
+		});
+		Cronometro.Operacion despues = autorService::listarActivos;
+
+		long activos = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM autor WHERE alta = TRUE", Long.class);
+		assertEquals(activos, autorService.listarActivos().size());
+
+		medir("antes: findAll() y filtro en Java", antes, estadisticas);
+		medir("despues: buscarActivos() en la base", despues, estadisticas);
+	}
+
+	private void medir(String nombre, Cronometro.Operacion operacion, Statistics estadisticas) throws Exception {
+		estadisticas.clear();
+		operacion.ejecutar();
+		long cargadas = estadisticas.getEntityLoadCount();
+		Cronometro.medir(nombre, 5, 20, operacion).imprimir();
+		Cronometro.reportar("%-55s %,d entidades cargadas por llamada", nombre, cargadas);
+	}
+
+	private static byte[] bytes(String id) {
+		UUID uuid = UUID.fromString(id);
+		return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+	}
+}
@@ -0,0 +1,71 @@
+package libreria.spring.LibreriaSpring.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import libreria.spring.LibreriaSpring.aspectos.MedicionServiciosAspecto;
+import libreria.spring.LibreriaSpring.rendimiento.Cronometro;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+
+/**
+ * Prueba de rendimiento del costo por llamada de MedicionServiciosAspecto: compara llamar a ClienteService.buscarOpciones con un
+ * texto vacío (que vuelve enseguida, sin tocar el índice ni la base) directamente sobre el objeto y a través del proxy de Spring,
+ * que lo pasa por el aspecto y registra la duración en el timer con los percentiles e histograma de application.properties. La
+ * diferencia es lo que agrega la medición a cada operación de los Services; el objetivo es que quede por debajo de 2 microsegundos,
+ * despreciable frente a cualquier operación que consulte la base.
+ *
+ * @author Matias Luca Soto
+ */
+@SpringBootTest
+@ActiveProfiles("embebido")
+@Tag("rendimiento")
+class RendimientoMedicionServiciosTests {
+
+	private static final int LLAMADAS = 10_000;
+	private static final double OBJETIVO_NANOS = 2_000;
+
+	@Autowired
+	private ClienteService clienteService;
+	@Autowired
+	private MeterRegistry registro;
+
+	@Test
+	void costoPorLlamada() throws Exception {
+		ClienteService sinAspecto = AopTestUtils.getUltimateTargetObject(clienteService);
+		assertEquals(0, clienteService.buscarOpciones("", BusquedaPrefijo.LIMITE_SUGERENCIAS).size());
+		Timer timer = registro.get(MedicionServiciosAspecto.METRICA).tag("clase", "ClienteService")
+				.tag("metodo", "buscarOpciones").tag("resultado", "exito").timer();
+
+		double directo = medir("directo, sin aspecto", sinAspecto);
+		long antes = timer.count();
+		double conAspecto = medir("por el proxy, con el aspecto", clienteService);
+		assertTrue(timer.count() - antes >= LLAMADAS);
+
+		Cronometro.reportar("%-55s %.0f ns por llamada", "costo del aspecto", conAspecto - directo);
+		assertTrue(conAspecto - directo < OBJETIVO_NANOS);
+	}
+
+	/**
+	 * Cada repetición es un ciclo de LLAMADAS llamadas, porque una sola dura menos que la resolución del reloj
+	 *
+	 * @return La mediana por llamada, en nanosegundos
+	 */
+	private double medir(String nombre, ClienteService servicio) throws Exception {
+		Cronometro.Mediciones mediciones = Cronometro.medir(nombre, 50, 200, () -> {
+			for (int i = 0; i < LLAMADAS; i++) {
+				servicio.buscarOpciones("", BusquedaPrefijo.LIMITE_SUGERENCIAS);
+			}
+		});
+		mediciones.imprimir();
+		double porLlamada = mediciones.porLlamada(LLAMADAS);
+		Cronometro.reportar("%-55s %.0f ns por llamada", nombre, porLlamada);
+		return porLlamada;
+	}
+}